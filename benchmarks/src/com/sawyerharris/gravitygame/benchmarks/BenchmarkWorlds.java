@@ -0,0 +1,63 @@
+package com.sawyerharris.gravitygame.benchmarks;
+
+import java.util.Random;
+
+import com.sawyerharris.gravitygame.physics.GravityField;
+import com.sawyerharris.gravitygame.physics.Simulation;
+
+/**
+ * Builds reproducible simulations for benchmarks.
+ * 
+ * @author Sawyer Harris
+ *
+ */
+final class BenchmarkWorlds {
+	/** Width, height of world, matching LevelScreen */
+	static final int WORLD_WIDTH = 1280;
+	static final int WORLD_HEIGHT = 1920;
+
+	/** Planets are kept at least this far from the ship origin */
+	private static final float CLEAR_RADIUS = 300;
+	/** Range of planet radii */
+	private static final int MIN_RADIUS = 20;
+	private static final int MAX_RADIUS = 60;
+
+	private BenchmarkWorlds() {
+	}
+
+	/**
+	 * Creates a simulation with the ship at the origin and the given number
+	 * of randomly placed planets, none of which overlap the area around the
+	 * origin. The same count always produces the same layout.
+	 * 
+	 * @param numPlanets
+	 * @return simulation
+	 */
+	static Simulation create(int numPlanets) {
+		Simulation simulation = new Simulation(WORLD_WIDTH, WORLD_HEIGHT);
+		fill(simulation.getField(), numPlanets, numPlanets);
+		simulation.setOrigin(0, 0);
+		simulation.reset();
+		return simulation;
+	}
+
+	/**
+	 * Adds randomly placed planets to a field.
+	 * 
+	 * @param field
+	 * @param numPlanets
+	 * @param seed
+	 */
+	static void fill(GravityField field, int numPlanets, long seed) {
+		Random random = new Random(seed);
+		while (field.getSize() < numPlanets) {
+			float x = (random.nextFloat() - 0.5f) * WORLD_WIDTH;
+			float y = (random.nextFloat() - 0.5f) * WORLD_HEIGHT;
+			if (x * x + y * y < CLEAR_RADIUS * CLEAR_RADIUS) {
+				continue;
+			}
+			int radius = MIN_RADIUS + random.nextInt(MAX_RADIUS - MIN_RADIUS + 1);
+			field.add(x, y, radius, GravityField.massOf(radius), random.nextInt(10) == 0);
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package com.sawyerharris.gravitygame.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sawyerharris.gravitygame.physics.CollisionEvent;
+import com.sawyerharris.gravitygame.physics.Simulation;
+
+/**
+ * Measures the collision checks run after every physics step, in the worst
+ * case where the ship hits nothing and every candidate must be tested.
+ * 
+ * @author Sawyer Harris
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+	/** Number of planets in the level */
+	@Param({ "1", "10", "100" })
+	public int planets;
+
+	private Simulation simulation;
+
+	@Setup
+	public void setup() {
+		simulation = BenchmarkWorlds.create(planets);
+	}
+
+	@Benchmark
+	public CollisionEvent checkCollisions() {
+		return simulation.checkCollisions();
+	}
+
+	/** Sweep over a fast step from the origin, about 40 units long */
+	@Benchmark
+	public CollisionEvent sweepCollisions() {
+		return simulation.sweepCollisions(0, 0, 30, 25);
+	}
+}
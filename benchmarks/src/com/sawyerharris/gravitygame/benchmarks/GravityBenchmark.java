@@ -0,0 +1,88 @@
+package com.sawyerharris.gravitygame.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sawyerharris.gravitygame.physics.BarnesHutTree;
+import com.sawyerharris.gravitygame.physics.GravityField;
+
+/**
+ * Compares a single gravity evaluation by direct summation and by Barnes-Hut,
+ * to find the planet count where Barnes-Hut overtakes direct summation. That
+ * count is GravityField.DEFAULT_BARNES_HUT_THRESHOLD.
+ * 
+ * @author Sawyer Harris
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GravityBenchmark {
+	/** Number of sample positions evaluated per invocation */
+	private static final int SAMPLES = 64;
+
+	/** Number of planets in the level */
+	@Param({ "16", "64", "128", "256", "512", "1024" })
+	public int planets;
+
+	/** Barnes-Hut opening angle */
+	@Param({ "0.5" })
+	public float theta;
+
+	private GravityField field;
+	private BarnesHutTree tree;
+	/** Sample positions as x, y pairs spread over the world */
+	private float[] samples;
+	private float[] out;
+
+	@Setup
+	public void setup() {
+		field = new GravityField();
+		BenchmarkWorlds.fill(field, planets, planets);
+		tree = new BarnesHutTree(theta);
+		tree.build(field);
+		samples = new float[SAMPLES * 2];
+		for (int i = 0; i < SAMPLES; i++) {
+			samples[2 * i] = ((i * 37) % SAMPLES / (float) SAMPLES - 0.5f) * BenchmarkWorlds.WORLD_WIDTH;
+			samples[2 * i + 1] = ((i * 11) % SAMPLES / (float) SAMPLES - 0.5f) * BenchmarkWorlds.WORLD_HEIGHT;
+		}
+		out = new float[2];
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public float direct() {
+		float sum = 0;
+		for (int i = 0; i < SAMPLES; i++) {
+			field.exactAcceleration(samples[2 * i], samples[2 * i + 1], out);
+			sum += out[0];
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public float barnesHut() {
+		float sum = 0;
+		for (int i = 0; i < SAMPLES; i++) {
+			tree.acceleration(samples[2 * i], samples[2 * i + 1], out);
+			sum += out[0];
+		}
+		return sum;
+	}
+}
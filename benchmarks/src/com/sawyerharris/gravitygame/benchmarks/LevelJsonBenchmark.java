@@ -0,0 +1,136 @@
+package com.sawyerharris.gravitygame.benchmarks;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.badlogic.gdx.utils.Json;
+import com.sawyerharris.gravitygame.game.Level;
+import com.sawyerharris.gravitygame.physics.LevelData;
+
+/**
+ * Measures level JSON parsing, and decoding of the binary levels LevelManager
+ * loads at startup in its place, and serialization of the level list as done
+ * when custom levels are saved.
+ * Must be run with android/assets as the working directory.
+ * 
+ * @author Sawyer Harris
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LevelJsonBenchmark {
+	/** Level folder, relative to android/assets */
+	private static final String LEVELS_FOLDER = "levels";
+
+	private Json json;
+	/** Raw contents of every level file */
+	private ArrayList<String> levelTexts;
+	/** Every level in the binary format */
+	private ArrayList<byte[]> levelBytes;
+	/** Parsed levels */
+	private ArrayList<Level> levels;
+
+	@Setup
+	public void setup() throws IOException {
+		json = new Json();
+		levelTexts = new ArrayList<String>();
+		levelBytes = new ArrayList<byte[]>();
+		levels = new ArrayList<Level>();
+
+		File[] files = new File(LEVELS_FOLDER).listFiles();
+		if (files == null) {
+			throw new IOException("Level folder not found; run from android/assets.");
+		}
+		for (File file : files) {
+			if (file.getName().endsWith(".txt")) {
+				String text = read(file);
+				levelTexts.add(text);
+				Level level = json.fromJson(Level.class, text);
+				levels.add(level);
+				levelBytes.add(level.toData().toBytes());
+			}
+		}
+	}
+
+	/**
+	 * Parses every level file. Reported time is for the whole set.
+	 */
+	@Benchmark
+	public void parseLevels(Blackhole blackhole) {
+		for (int i = 0; i < levelTexts.size(); i++) {
+			blackhole.consume(json.fromJson(Level.class, levelTexts.get(i)));
+		}
+	}
+
+	/**
+	 * Decodes every level from the binary format into a Level, as
+	 * LevelManager does at startup. Reported time is for the whole set.
+	 */
+	@Benchmark
+	public void decodeBinaryLevels(Blackhole blackhole) {
+		for (int i = 0; i < levelBytes.size(); i++) {
+			blackhole.consume(new Level(LevelData.fromBytes(levelBytes.get(i))));
+		}
+	}
+
+	/**
+	 * Decodes every level from the binary format into level data only, as
+	 * the level solver and replay verifier need. Reported time is for the
+	 * whole set.
+	 */
+	@Benchmark
+	public void decodeBinaryLevelData(Blackhole blackhole) {
+		for (int i = 0; i < levelBytes.size(); i++) {
+			blackhole.consume(LevelData.fromBytes(levelBytes.get(i)));
+		}
+	}
+
+	/**
+	 * Serializes the whole level list the way LevelManager.saveLevel does.
+	 */
+	@Benchmark
+	public String serializeLevelList() {
+		return json.toJson(levels);
+	}
+
+	/**
+	 * Reads a file into a string.
+	 */
+	private static String read(File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			byte[] bytes = new byte[(int) file.length()];
+			int offset = 0;
+			while (offset < bytes.length) {
+				int count = in.read(bytes, offset, bytes.length - offset);
+				if (count < 0) {
+					break;
+				}
+				offset += count;
+			}
+			return new String(bytes, 0, offset, "UTF-8");
+		} finally {
+			in.close();
+		}
+	}
+}
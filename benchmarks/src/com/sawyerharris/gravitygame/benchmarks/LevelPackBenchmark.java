@@ -0,0 +1,112 @@
+package com.sawyerharris.gravitygame.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Json;
+import com.sawyerharris.gravitygame.manager.LevelPack;
+
+/**
+ * Measures opening a level pack, which reads only its index, against decoding
+ * every level in it up front as LevelManager used to. The pack is built from
+ * the level files repeated to the given number of levels. Must be run with
+ * android/assets as the working directory.
+ *
+ * @author Sawyer Harris
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LevelPackBenchmark {
+	/** Level folder, relative to android/assets */
+	private static final String LEVELS_FOLDER = "levels";
+	/** Name of the only section of the pack */
+	private static final String SECTION = "official";
+
+	/** Number of levels in the pack */
+	@Param({ "10", "1000", "10000" })
+	public int levelCount;
+
+	/** Temporary pack file */
+	private File file;
+	private FileHandle handle;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		Json json = new Json();
+		ArrayList<com.sawyerharris.gravitygame.game.Level> sources = new ArrayList<com.sawyerharris.gravitygame.game.Level>();
+		File[] files = new File(LEVELS_FOLDER).listFiles();
+		if (files == null) {
+			throw new IOException("Level folder not found; run from android/assets.");
+		}
+		for (File levelFile : files) {
+			if (levelFile.getName().endsWith(".txt")) {
+				sources.add(json.fromJson(com.sawyerharris.gravitygame.game.Level.class, new FileHandle(levelFile)));
+			}
+		}
+		ArrayList<com.sawyerharris.gravitygame.game.Level> levels = new ArrayList<com.sawyerharris.gravitygame.game.Level>();
+		for (int i = 0; i < levelCount; i++) {
+			levels.add(sources.get(i % sources.size()));
+		}
+
+		file = File.createTempFile("levels", ".pack");
+		OutputStream out = new FileOutputStream(file);
+		try {
+			LevelPack.write(out, Collections.singletonList(SECTION), Collections.singletonList(levels));
+		} finally {
+			out.close();
+		}
+		handle = new FileHandle(file);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		file.delete();
+	}
+
+	/**
+	 * Opens the pack and gets the first level, as at startup followed by
+	 * pressing play.
+	 */
+	@Benchmark
+	public void openPack(Blackhole blackhole) throws IOException {
+		LevelPack.Section section = LevelPack.read(handle).getSection(SECTION);
+		blackhole.consume(section.get(0));
+	}
+
+	/**
+	 * Opens the pack and decodes every level, as if all were loaded up front.
+	 */
+	@Benchmark
+	public void decodeAll(Blackhole blackhole) throws IOException {
+		LevelPack.Section section = LevelPack.read(handle).getSection(SECTION);
+		for (int i = 0; i < section.size(); i++) {
+			blackhole.consume(section.get(i));
+		}
+	}
+}
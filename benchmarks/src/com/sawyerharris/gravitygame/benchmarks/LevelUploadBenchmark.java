@@ -0,0 +1,166 @@
+package com.sawyerharris.gravitygame.benchmarks;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.badlogic.gdx.utils.Json;
+import com.sawyerharris.gravitygame.game.Level;
+import com.sawyerharris.gravitygame.manager.LevelManager;
+
+/**
+ * Compares the old GET upload, which put the level JSON in the query string,
+ * with the gzip compressed POST body LevelManager sends now. The JMH
+ * benchmarks measure the cost of encoding on the client; main prints the
+ * bytes on the wire for each level. Must be run with android/assets as the
+ * working directory.
+ *
+ * @author Sawyer Harris
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LevelUploadBenchmark {
+	/** Level folder, relative to android/assets */
+	private static final String LEVELS_FOLDER = "levels";
+	/** Planets in the generated crowded level */
+	private static final int CROWDED_PLANETS = 200;
+
+	private Json json;
+	/** Levels to encode */
+	private ArrayList<Level> levels;
+
+	@Setup
+	public void setup() throws IOException {
+		json = new Json();
+		levels = loadLevels(json);
+	}
+
+	/**
+	 * Encodes every level the old way: serialized twice, once for the level
+	 * and once for its hash, into a query string.
+	 */
+	@Benchmark
+	public void queryString(Blackhole blackhole) throws IOException {
+		for (int i = 0; i < levels.size(); i++) {
+			Level level = levels.get(i);
+			blackhole.consume(oldQuery(json, level));
+		}
+	}
+
+	/**
+	 * Encodes every level the new way: serialized once and gzip compressed.
+	 */
+	@Benchmark
+	public void gzipBody(Blackhole blackhole) {
+		for (int i = 0; i < levels.size(); i++) {
+			String text = json.toJson(levels.get(i));
+			blackhole.consume(text.hashCode());
+			blackhole.consume(LevelManager.compressLevel(text));
+		}
+	}
+
+	/**
+	 * Builds the query string the old client sent, escaped properly rather
+	 * than only replacing spaces, as a browser or proxy would need.
+	 */
+	private static String oldQuery(Json json, Level level) throws IOException {
+		return "op=write&group=default&level=" + URLEncoder.encode(json.toJson(level), "UTF-8") + "&hash="
+				+ json.toJson(level).hashCode() + "&author=" + URLEncoder.encode(level.getAuthor(), "UTF-8")
+				+ "&pass=s17gg";
+	}
+
+	/**
+	 * Prints the bytes on the wire per level for each encoding, not counting
+	 * HTTP headers common to both.
+	 *
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		Json json = new Json();
+		ArrayList<Level> levels = loadLevels(json);
+		System.out.println(String.format("%-24s %8s %10s %10s", "level", "json", "get query", "post gzip"));
+		long totalQuery = 0;
+		long totalGzip = 0;
+		for (Level level : levels) {
+			String text = json.toJson(level);
+			int query = oldQuery(json, level).length();
+			int gzip = LevelManager.compressLevel(text).length;
+			totalQuery += query;
+			totalGzip += gzip;
+			System.out.println(String.format("%-24s %8d %10d %10d", level.getName(), text.length(), query, gzip));
+		}
+		System.out.println(String.format("%-24s %8s %10d %10d", "total", "", totalQuery, totalGzip));
+	}
+
+	/**
+	 * Loads every level file plus a generated crowded level.
+	 */
+	private static ArrayList<Level> loadLevels(Json json) throws IOException {
+		ArrayList<Level> levels = new ArrayList<Level>();
+		File[] files = new File(LEVELS_FOLDER).listFiles();
+		if (files == null) {
+			throw new IOException("Level folder not found; run from android/assets.");
+		}
+		for (File file : files) {
+			if (file.getName().endsWith(".txt")) {
+				levels.add(json.fromJson(Level.class, read(file)));
+			}
+		}
+
+		// Built as JSON since the Level constructor needs a running game
+		StringBuilder crowded = new StringBuilder("{name:crowded,author:benchmark,type:CUSTOM,theme:cone,");
+		crowded.append("shipOrigin:{x:0,y:0},planets:[");
+		for (int i = 0; i < CROWDED_PLANETS; i++) {
+			float x = (i % 16) * 80 - 600 + (i * 7919 % 13) / 3f;
+			float y = (i / 16) * 150 - 900 + (i * 104729 % 17) / 3f;
+			crowded.append(i == 0 ? "" : ",").append("{position:{x:").append(x).append(",y:").append(y);
+			crowded.append("},radius:").append(20 + i % 30).append(i == CROWDED_PLANETS - 1 ? ",homePlanet:true}" : "}");
+		}
+		crowded.append("]}");
+		levels.add(json.fromJson(Level.class, crowded.toString()));
+		return levels;
+	}
+
+	/**
+	 * Reads a file into a string.
+	 */
+	private static String read(File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			byte[] bytes = new byte[(int) file.length()];
+			int offset = 0;
+			while (offset < bytes.length) {
+				int count = in.read(bytes, offset, bytes.length - offset);
+				if (count < 0) {
+					break;
+				}
+				offset += count;
+			}
+			return new String(bytes, 0, offset, "UTF-8");
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package com.sawyerharris.gravitygame.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sawyerharris.gravitygame.physics.GravityField;
+import com.sawyerharris.gravitygame.physics.IntegratorType;
+import com.sawyerharris.gravitygame.physics.Simulation;
+
+/**
+ * Measures the cost of a physics step, the work done once per tick while the
+ * ship is in flight.
+ * 
+ * @author Sawyer Harris
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhysicsBenchmark {
+	/** Number of steps in a flight, short enough to stay clear of planets */
+	private static final int STEPS = 30;
+	/** Length of a step, matching LevelPlayScreen */
+	private static final float DT = 1 / 60f;
+
+	/** Number of planets in the level */
+	@Param({ "1", "10", "100" })
+	public int planets;
+
+	/** Integrator used */
+	@Param({ "RK4", "VERLET", "DORMAND_PRINCE" })
+	public IntegratorType integrator;
+
+	/** Whether the field uses an acceleration cache */
+	@Param({ "false", "true" })
+	public boolean cached;
+
+	private Simulation simulation;
+
+	@Setup
+	public void setup() {
+		simulation = BenchmarkWorlds.create(planets);
+		simulation.setIntegrator(integrator.create());
+		// Simulations cache crowded fields by default; force either mode
+		GravityField field = simulation.getField();
+		field.setCacheThreshold(cached ? 0 : Integer.MAX_VALUE);
+		field.updateCache();
+	}
+
+	/**
+	 * Launches the ship and flies it for a fixed number of steps. Reported
+	 * time is per step.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(STEPS)
+	public float flight() {
+		simulation.reset();
+		simulation.launch(100, 60);
+		for (int i = 0; i < STEPS; i++) {
+			simulation.step(DT);
+		}
+		return simulation.getShip().x;
+	}
+}
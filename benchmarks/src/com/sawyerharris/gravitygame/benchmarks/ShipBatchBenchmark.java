@@ -0,0 +1,95 @@
+package com.sawyerharris.gravitygame.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sawyerharris.gravitygame.physics.FlightInput;
+import com.sawyerharris.gravitygame.physics.ShipBatch;
+import com.sawyerharris.gravitygame.physics.Simulation;
+
+/**
+ * Measures a short flight of many ghost ships in one batch, against flying the
+ * same number of separate simulations. Reported time is for the whole flight.
+ * 
+ * @author Sawyer Harris
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShipBatchBenchmark {
+	/** Number of steps in a flight, short enough to stay clear of planets */
+	private static final int STEPS = 30;
+	/** Length of a step, matching LevelPlayScreen */
+	private static final float DT = 1 / 60f;
+	/** Number of planets in the level */
+	private static final int PLANETS = 10;
+
+	/** Number of ships */
+	@Param({ "1", "10", "100", "500" })
+	public int ships;
+
+	private Simulation simulation;
+	private ShipBatch batch;
+	private Simulation[] separate;
+	private FlightInput[] inputs;
+
+	@Setup
+	public void setup() {
+		simulation = BenchmarkWorlds.create(PLANETS);
+		batch = new ShipBatch(BenchmarkWorlds.WORLD_WIDTH, BenchmarkWorlds.WORLD_HEIGHT);
+		separate = new Simulation[ships];
+		inputs = new FlightInput[ships];
+		for (int i = 0; i < ships; i++) {
+			// Slow launches in a fan so no ship reaches a planet in a flight
+			double angle = 2 * Math.PI * i / ships;
+			inputs[i] = new FlightInput((float) Math.cos(angle) * 50, (float) Math.sin(angle) * 50);
+			batch.add(inputs[i]);
+			separate[i] = BenchmarkWorlds.create(PLANETS);
+		}
+	}
+
+	/**
+	 * Flies every ship for a flight in one batch.
+	 */
+	@Benchmark
+	public float batch() {
+		batch.reset();
+		for (int s = 0; s < STEPS; s++) {
+			batch.step(simulation.getField(), DT);
+		}
+		return batch.getX(0);
+	}
+
+	/**
+	 * Flies every ship for a flight in its own simulation.
+	 */
+	@Benchmark
+	public float separate() {
+		float sum = 0;
+		for (int i = 0; i < ships; i++) {
+			Simulation sim = separate[i];
+			sim.reset();
+			sim.launch(inputs[i].getLaunchX(), inputs[i].getLaunchY());
+			for (int s = 0; s < STEPS; s++) {
+				sim.step(DT);
+			}
+			sum += sim.getShip().x;
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,98 @@
+package com.sawyerharris.gravitygame.game;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.badlogic.gdx.scenes.scene2d.Touchable;
+import com.sawyerharris.gravitygame.physics.ShipBatch;
+
+/**
+ * Actor that draws every ship of a ShipBatch as a faded ghost, e.g. the
+ * player's earlier attempts. Like Ship, the motion is owned by the physics;
+ * this actor only draws it.
+ * 
+ * @author Sawyer Harris
+ *
+ */
+public class GhostShips extends Actor {
+	/** Opacity of ghosts */
+	private static final float GHOST_ALPHA = 0.35f;
+	/** Scale of ghost sprites, matching Ship */
+	private static final float SCALE = 0.25f;
+
+	/** Ships to draw */
+	private final ShipBatch ships;
+	/** Interpolation between previous and current positions */
+	private float interpolation;
+	/** Ship style frame drawn for every ghost */
+	private TextureRegion region;
+
+	/**
+	 * Constructs a ghost actor that views the given batch.
+	 * 
+	 * @param ships
+	 */
+	public GhostShips(ShipBatch ships) {
+		this.ships = ships;
+		interpolation = 1;
+		setTouchable(Touchable.disabled);
+	}
+
+	/**
+	 * Sets the ship style to draw ghosts with.
+	 * 
+	 * @param style
+	 *            index of ship style
+	 */
+	public void setStyle(int style) {
+		region = GravityGame.getInstance().getAssets().getShipAnimation(style, "default").getKeyFrame(0);
+	}
+
+	/**
+	 * Sets how far between their positions at the start and end of the most
+	 * recent tick the ghosts are drawn.
+	 * 
+	 * @param alpha
+	 *            0 for the start of the tick, 1 for the current position
+	 */
+	public void interpolate(float alpha) {
+		interpolation = alpha;
+	}
+
+	@Override
+	public void draw(Batch batch, float parentAlpha) {
+		if (region == null || ships.getCount() == 0) {
+			return;
+		}
+		Color color = batch.getColor();
+		float r = color.r;
+		float g = color.g;
+		float b = color.b;
+		float a = color.a;
+		batch.setColor(r, g, b, a * parentAlpha * GHOST_ALPHA);
+
+		float width = region.getRegionWidth();
+		float height = region.getRegionHeight();
+		for (int i = 0; i < ships.getCount(); i++) {
+			if (!ships.isFlying(i)) {
+				continue;
+			}
+			float tickX = ships.getTickX(i);
+			float tickY = ships.getTickY(i);
+			float x = tickX + (ships.getX(i) - tickX) * interpolation;
+			float y = tickY + (ships.getY(i) - tickY) * interpolation;
+			float vx = ships.getVx(i);
+			float vy = ships.getVy(i);
+			float rotation = 0;
+			if (vx != 0 || vy != 0) {
+				rotation = MathUtils.atan2(vy, vx) * MathUtils.radiansToDegrees - 90;
+			}
+			batch.draw(region, x - width / 2, y - height / 2, width / 2, height / 2, width, height, SCALE, SCALE,
+					rotation);
+		}
+
+		batch.setColor(r, g, b, a);
+	}
+}
@@ -5,7 +5,9 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.utils.TimeUtils;
 import com.sawyerharris.gravitygame.manager.AssetManager;
+import com.sawyerharris.gravitygame.manager.EditJournal;
 import com.sawyerharris.gravitygame.manager.LevelManager;
 import com.sawyerharris.gravitygame.manager.ThemeManager;
 import com.sawyerharris.gravitygame.screen.LevelEditScreen;
@@ -42,6 +44,11 @@ public class GravityGame extends Game {
 	/** Player status */
 	private PlayerStatus status;
 
+	/** Time create() was called, in ns */
+	private long createTime;
+	/** Time from create() to the end of the first frame in ms, or -1 */
+	private long startupMillis = -1;
+
 	@Override
 	public void create() {
 		// Make sure create() is only called once
@@ -50,6 +57,7 @@ public class GravityGame extends Game {
 		}
 		// Set up singleton
 		game = this;
+		createTime = TimeUtils.nanoTime();
 
 		status = new PlayerStatus();
 
@@ -69,6 +77,22 @@ public class GravityGame extends Game {
 		Gdx.input.setCatchBackKey(true);
 
 		setScreenToMenu();
+		recoverEdit();
+	}
+
+	/**
+	 * Returns to the level editor if an editing session was cut short, e.g.
+	 * by the app being killed, with the edits made up to then.
+	 */
+	private void recoverEdit() {
+		EditJournal.Recovery recovery = levels.getEditJournal().recover();
+		if (recovery == null) {
+			return;
+		}
+		Level level = recovery.getLevel();
+		int index = Math.min(recovery.getCustomLevelIndex(), levels.getCustomLevels().size());
+		System.out.println("Recovered unsaved edits to " + level.getName() + ".");
+		editLevel(level, level.getName(), index);
 	}
 
 	/**
@@ -179,9 +203,25 @@ public class GravityGame extends Game {
 		} catch (IndexOutOfBoundsException e) {
 			//
 		}
+		editLevel(level, name, index);
+	}
+
+	/**
+	 * Loads a level into the level editor, starts journaling edits to it and
+	 * redirects input to the level editor screen.
+	 * 
+	 * @param level
+	 *            level, or null for a new level
+	 * @param name
+	 *            name for custom level
+	 * @param index
+	 *            index of custom level in list
+	 */
+	private void editLevel(Level level, String name, int index) {
 		levelEditScreen.loadLevel(level);
 		levelEditScreen.setCustomLevelIndex(index);
 		levelEditScreen.setCustomLevelName(name);
+		levelEditScreen.beginJournal();
 		setScreen(levelEditScreen);
 		Gdx.input.setInputProcessor(levelEditScreen.getMux());
 	}
@@ -232,8 +272,21 @@ public class GravityGame extends Game {
 		return status;
 	}
 
+	/**
+	 * Returns the time from create() to the end of the first frame. Online
+	 * levels load in the background, so this does not depend on the network.
+	 * 
+	 * @return startup time in ms, or -1 if the first frame has not finished
+	 */
+	public long getStartupMillis() {
+		return startupMillis;
+	}
+
 	@Override
 	public void dispose() {
+		// Stops the trajectory preview thread
+		levelPlayScreen.dispose();
+		levels.dispose();
 		batch.dispose();
 		assets.dispose();
 	}
@@ -246,5 +299,10 @@ public class GravityGame extends Game {
 
 		// Game.render() delegates to the current screen's render()
 		super.render();
+
+		if (startupMillis < 0) {
+			startupMillis = TimeUtils.timeSinceNanos(createTime) / 1000000;
+			System.out.println("Startup took " + startupMillis + " ms to the first frame.");
+		}
 	}
 }
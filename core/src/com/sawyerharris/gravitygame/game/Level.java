@@ -3,6 +3,9 @@ package com.sawyerharris.gravitygame.game;
 import java.util.ArrayList;
 
 import com.badlogic.gdx.math.Vector2;
+import com.sawyerharris.gravitygame.physics.GravityField;
+import com.sawyerharris.gravitygame.physics.IntegratorType;
+import com.sawyerharris.gravitygame.physics.LevelData;
 import com.sawyerharris.gravitygame.screen.LevelScreen;
 
 /**
@@ -27,6 +30,12 @@ public class Level {
 	private Vector2 shipOrigin;
 	/** List of planets */
 	private ArrayList<PlanetMeta> planets;
+	/** Integrator used to play the level, or null for the default */
+	private IntegratorType integrator;
+	/** Id of level on the level server, or 0; not part of the level's JSON */
+	private transient long onlineId;
+	/** Gravity field the level was decoded with, or null; not part of the level's JSON */
+	private transient GravityField field;
 
 	/**
 	 * Empty constructor, used only by JSON deserialization.
@@ -53,6 +62,48 @@ public class Level {
 		this.planets = planets;
 	}
 
+	/**
+	 * Constructs a level from level data, e.g. as decoded from the binary
+	 * level format.
+	 * 
+	 * @param data
+	 *            level data
+	 * @throws IllegalArgumentException
+	 *             if the level type is unknown
+	 */
+	public Level(LevelData data) throws IllegalArgumentException {
+		this.name = data.getName();
+		this.author = data.getAuthor();
+		this.message = data.getMessage();
+		this.type = LevelType.valueOf(data.getType());
+		this.theme = data.getTheme();
+		this.integrator = data.getIntegrator();
+		this.shipOrigin = new Vector2(data.getOriginX(), data.getOriginY());
+		GravityField field = data.getField();
+		this.planets = new ArrayList<PlanetMeta>(field.getSize());
+		for (int i = 0; i < field.getSize(); i++) {
+			Vector2 position = new Vector2(field.getX(i), field.getY(i));
+			planets.add(new PlanetMeta(position, (int) field.getRadius(i), field.isHome(i)));
+		}
+		this.field = field;
+	}
+
+	/**
+	 * Converts the level to level data, e.g. to encode it in the binary level
+	 * format.
+	 * 
+	 * @return level data
+	 */
+	public LevelData toData() {
+		GravityField field = new GravityField();
+		for (PlanetMeta planet : planets) {
+			Vector2 position = planet.getPosition();
+			int radius = planet.getRadius();
+			field.add(position.x, position.y, radius, GravityField.massOf(radius), planet.isHomePlanet());
+		}
+		return new LevelData(name, author, message, theme, type.name(), integrator, shipOrigin.x, shipOrigin.y, field);
+	}
+
 	/**
 	 * Gets initial position of ship.
 	 * 
@@ -116,6 +167,47 @@ public class Level {
 		return planets;
 	}
 
+	/**
+	 * Gets the gravity field the level was decoded with, so that it can be
+	 * loaded without rebuilding it from the list of planets.
+	 * 
+	 * @return field, or null if the level was not constructed from level data
+	 */
+	public GravityField getField() {
+		return field;
+	}
+
+	/**
+	 * Gets the type of integrator used to play the level.
+	 * 
+	 * @return integrator type, RK4 if the level does not specify one
+	 */
+	public IntegratorType getIntegratorType() {
+		if (integrator == null) {
+			return IntegratorType.RK4;
+		}
+		return integrator;
+	}
+
+	/**
+	 * Gets the id of the level on the level server.
+	 * 
+	 * @return id, or 0 if the level did not come from the server
+	 */
+	public long getOnlineId() {
+		return onlineId;
+	}
+
+	/**
+	 * Sets the id of the level on the level server. Only called when the
+	 * level is read from the server or the online level cache.
+	 * 
+	 * @param onlineId
+	 */
+	public void setOnlineId(long onlineId) {
+		this.onlineId = onlineId;
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
@@ -6,6 +6,7 @@ import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.scenes.scene2d.Touchable;
+import com.sawyerharris.gravitygame.physics.GravityField;
 import com.sawyerharris.gravitygame.screen.LevelScreen;
 
 /**
@@ -18,8 +19,6 @@ public class Planet extends Actor {
 	/** Maximum, minimum radius allowed */
 	public static final int MAX_RADIUS = 200;
 	public static final int MIN_RADIUS = 50;
-	/** Mass area density */
-	private static final float MASS_DENSITY = 1000;
 
 	/** Radius of planet */
 	private int radius;
@@ -92,6 +91,19 @@ public class Planet extends Actor {
 		return mass;
 	}
 
+	/**
+	 * Copies the planet's position, radius, mass and home status into the
+	 * given index of a gravity field.
+	 * 
+	 * @param field
+	 *            gravity field to update
+	 * @param index
+	 *            index of this planet in the field
+	 */
+	public void writeTo(GravityField field, int index) {
+		field.set(index, getX(), getY(), radius, mass, homePlanet);
+	}
+
 	/**
 	 * Returns the planet's position.
 	 * 
@@ -128,7 +140,7 @@ public class Planet extends Actor {
 		}
 		radius = rad;
 		sprite.setScale(rad / (float) (sprite.getRegionWidth() / 2));
-		mass = MASS_DENSITY * rad * rad;
+		mass = GravityField.massOf(rad);
 	}
 
 	/**
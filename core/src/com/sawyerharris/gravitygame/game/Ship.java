@@ -1,55 +1,48 @@
 package com.sawyerharris.gravitygame.game;
 
-import java.util.ArrayList;
-
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.scenes.scene2d.Touchable;
+import com.sawyerharris.gravitygame.physics.ShipState;
+import com.sawyerharris.gravitygame.physics.Simulation;
 import com.sawyerharris.gravitygame.screen.LevelScreen;
 
 /**
- * Represents a Ship actor.
+ * Represents a Ship actor. The ship's motion is owned by a Simulation; this
+ * actor only draws it and forwards input.
  * 
  * @author Sawyer Harris
  *
  */
 public class Ship extends Actor {
-	/** Collision radius */
-	public static final int RADIUS = 25;
 	/** Touchable radius */
 	private static final int TOUCH_RADIUS = 120;
-	/** Maximum amount of boost a ship may have */
-	public static final int MAX_BOOST = 600;
-	/** Scalar for how much boost is applied */
-	private static final float BOOST_SCALAR = 200f;
 
+	/** Simulation this actor is a view of */
+	private final Simulation simulation;
 	/** Initial position of ship */
 	private Vector2 initialPosition;
-	/** Ship velocity used for physics update */
-	private Vector2 vel;
-	/** Ship position used for physics update */
-	private Vector2 pos;
 	/** Animated sprite of ship */
 	private ShipSprite sprite;
 	/** Index of ship style in animation list */
 	private int style;
-	/** Amount of boost remaining */
-	private int boost;
-	/** If the ship is using boost */
-	private boolean boosting;
+	/** Whether the boost animation is showing */
+	private boolean showingBoost;
 
 	/**
-	 * Constructs a ship.
+	 * Constructs a ship that views the given simulation.
+	 * 
+	 * @param simulation
 	 */
-	public Ship() {
+	public Ship(Simulation simulation) {
+		this.simulation = simulation;
 		sprite = new ShipSprite();
-		pos = new Vector2();
-		vel = new Vector2();
-		initialPosition = new Vector2();
+		initialPosition = new Vector2(simulation.getOriginX(), simulation.getOriginY());
 		reset();
 		sprite.setSize(sprite.getRegionWidth(), sprite.getRegionHeight());
 	}
@@ -66,16 +59,25 @@ public class Ship extends Actor {
 	 * Start using boost.
 	 */
 	public void startBoosting() {
-		sprite.setAnimation(GravityGame.getInstance().getAssets().getShipAnimation(style, "boost"));
-		boosting = true;
+		simulation.setBoosting(true);
+		updateAnimation();
 	}
 
 	/**
 	 * Stop using boost.
 	 */
 	public void stopBoosting() {
-		sprite.setAnimation(GravityGame.getInstance().getAssets().getShipAnimation(style, "default"));
-		boosting = false;
+		simulation.setBoosting(false);
+		updateAnimation();
+	}
+
+	/**
+	 * Sets the sprite's animation to match whether the simulation is boosting.
+	 */
+	private void updateAnimation() {
+		showingBoost = simulation.isBoosting();
+		sprite.setAnimation(
+				GravityGame.getInstance().getAssets().getShipAnimation(style, showingBoost ? "boost" : "default"));
 	}
 
 	/**
@@ -83,11 +85,10 @@ public class Ship extends Actor {
 	 */
 	public void reset() {
 		style = GravityGame.getInstance().getPlayerStatus().getShipStyle();
-		setPosition(initialPosition);
-		vel.set(0, 0);
-		stopBoosting();
+		simulation.reset();
+		setPosition(simulation.getOriginX(), simulation.getOriginY());
+		updateAnimation();
 		setTouchable(Touchable.enabled);
-		boost = MAX_BOOST;
 	}
 
 	/**
@@ -100,13 +101,12 @@ public class Ship extends Actor {
 	}
 
 	/**
-	 * Sets the ship's position.
+	 * Sets the ship actor's position.
 	 * 
 	 * @param pos
 	 */
 	public void setPosition(Vector2 pos) {
-		if (pos.x < -LevelScreen.WORLD_WIDTH / 2 || pos.x > LevelScreen.WORLD_WIDTH / 2
-				|| pos.y < -LevelScreen.WORLD_HEIGHT / 2 || pos.y > LevelScreen.WORLD_HEIGHT / 2) {
+		if (!simulation.inBounds(pos.x, pos.y)) {
 			throw new IllegalArgumentException("Ship position out of bounds.");
 		}
 		setPosition(pos.x, pos.y);
@@ -127,112 +127,55 @@ public class Ship extends Actor {
 	 * @param pos
 	 */
 	public void setInitialPosition(Vector2 pos) {
-		if (pos.x < -LevelScreen.WORLD_WIDTH / 2 || pos.x > LevelScreen.WORLD_WIDTH / 2
-				|| pos.y < -LevelScreen.WORLD_HEIGHT / 2 || pos.y > LevelScreen.WORLD_HEIGHT / 2) {
-			throw new IllegalArgumentException("Ship position out of bounds.");
-		}
+		simulation.setOrigin(pos.x, pos.y);
 		initialPosition = pos;
 	}
 
 	/**
-	 * Returns the ship's velocity.
-	 * 
-	 * @return vel
-	 */
-	public Vector2 getVelocity() {
-		return vel;
-	}
-
-	/**
-	 * Sets the ship's velocity
+	 * Launches the ship with the given velocity.
 	 * 
 	 * @param velocity
 	 *            velocity vector of ship
 	 */
-	public void setVelocity(Vector2 velocity) {
-		vel = velocity;
+	public void launch(Vector2 velocity) {
+		simulation.launch(velocity.x, velocity.y);
 	}
 
 	/**
 	 * Returns amount of boost remaining.
 	 * 
-	 * @return boost
+	 * @return boost in seconds of thrust
 	 */
-	public int getBoost() {
-		return boost;
+	public float getBoost() {
+		return simulation.getBoost();
 	}
 
 	/**
-	 * Updates ship's position and velocity using Runge-Kutta 4th Order method.
+	 * Returns the simulation this actor is a view of.
 	 * 
-	 * @param dt
-	 *            delta t in numerical algorithm
+	 * @return simulation
 	 */
-	public void physicsUpdate(float dt, ArrayList<Planet> planets) {
-		pos.set(getPosition());
-
-		Vector2 vela = new Vector2(vel).add(computeAccel(pos, planets).scl(dt / 2));
-		Vector2 posa = new Vector2(pos).add(new Vector2(vel).scl(dt / 2));
-
-		Vector2 velb = new Vector2(vel).add(computeAccel(posa, planets).scl(dt / 2));
-		Vector2 posb = new Vector2(pos).add(new Vector2(vela).scl(dt / 2));
-
-		Vector2 velc = new Vector2(vel).add(computeAccel(posb, planets).scl(dt));
-		Vector2 posc = new Vector2(pos).add(new Vector2(velb).scl(dt));
-
-		Vector2 veld = new Vector2(vel).add(computeAccel(posc, planets).scl(dt));
-		Vector2 posd = new Vector2(pos).add(new Vector2(velc).scl(dt));
-
-		vel = new Vector2(vela.add(velb.scl(2)).add(velc).add(veld.scl(1.0f / 2)).scl(1.0f / 3))
-				.sub(new Vector2(vel).scl(1.0f / 2));
-		pos = new Vector2(posa.add(posb.scl(2)).add(posc).add(posd.scl(1.0f / 2)).scl(1.0f / 3))
-				.sub(new Vector2(pos).scl(1.0f / 2));
-
-		setPosition(pos);
-	}
-
-	/**
-	 * Computes the acceleration of the ship due to the gravity of the planets.
-	 * 
-	 * @param shipPosition
-	 *            position of ship
-	 * @param planets
-	 *            list of planets
-	 * @return acceleration
-	 */
-	private Vector2 computeGravityAccel(Vector2 shipPosition, ArrayList<Planet> planets) {
-		Vector2 acc = new Vector2(0, 0);
-		for (Planet planet : planets) {
-			Vector2 r = new Vector2(pos);
-			r.sub(planet.getPosition());
-			float rcube = (float) Math.pow(r.len(), 3);
-			acc.add(r.scl(-planet.getMass() / rcube));
-		}
-		return acc;
+	public Simulation getSimulation() {
+		return simulation;
 	}
 
 	/**
-	 * Computes the acceleration of the ship due to gravity AND boost.
+	 * Moves the actor between its positions at the start and end of the most
+	 * recent physics tick, however many steps it was run as, so motion stays
+	 * smooth when frames do not line up with ticks. Also switches off the
+	 * boost animation if boost ran out.
 	 * 
-	 * @param shipPosition
-	 *            position of ship
-	 * @param planets
-	 *            list of planets
-	 * @return acceleration
-	 */
-	private Vector2 computeAccel(Vector2 shipPosition, ArrayList<Planet> planets) {
-		Vector2 acc = computeGravityAccel(shipPosition, planets);
-		if (boosting) {
-			if (boost > 0) {
-				Vector2 boostVec = new Vector2(vel).nor().scl(BOOST_SCALAR);
-				acc.add(boostVec);
-				boost--;
-			} else {
-				// Ran out of boost
-				stopBoosting();
-			}
+	 * @param alpha
+	 *            0 for the start of the tick, 1 for the current position
+	 */
+	public void interpolate(float alpha) {
+		ShipState state = simulation.getShip();
+		float tickX = simulation.getTickX();
+		float tickY = simulation.getTickY();
+		setPosition(tickX + (state.x - tickX) * alpha, tickY + (state.y - tickY) * alpha);
+		if (showingBoost != simulation.isBoosting()) {
+			updateAnimation();
 		}
-		return acc;
 	}
 
 	@Override
@@ -269,8 +212,9 @@ public class Ship extends Actor {
 			setSize(getRegionWidth(), getRegionHeight());
 			setCenter(Ship.this.getPosition().x, Ship.this.getPosition().y);
 			setOriginCenter();
-			if (vel.len2() != 0) {
-				setRotation(vel.angle() - 90);
+			ShipState state = simulation.getShip();
+			if (state.vx != 0 || state.vy != 0) {
+				setRotation(MathUtils.atan2(state.vy, state.vx) * MathUtils.radiansToDegrees - 90);
 			} else {
 				setRotation(0);
 			}
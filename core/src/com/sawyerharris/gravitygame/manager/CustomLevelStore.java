@@ -0,0 +1,266 @@
+package com.sawyerharris.gravitygame.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.Json;
+import com.badlogic.gdx.utils.SerializationException;
+import com.sawyerharris.gravitygame.game.Level;
+
+/**
+ * Stores custom levels one file per level in a folder, with an index file
+ * listing their ids in order. Saving a level writes only that level's file,
+ * plus the index if the level is new, so the cost of a save does not depend
+ * on how many levels there are. Levels are serialized on the calling thread
+ * and written on a background thread. Every file is written to a temporary
+ * file first and then moved into place, so a write cut short never replaces
+ * good data.
+ *
+ * @author Sawyer Harris
+ *
+ */
+class CustomLevelStore {
+	/** Index file, one level id per line */
+	private static final String INDEX_FILE = "index.txt";
+	/** Extension of level files, which are named by level id */
+	private static final String LEVEL_EXTENSION = ".json";
+	/** Extension of files being written */
+	private static final String TEMP_EXTENSION = ".tmp";
+	/** Time allowed for pending writes to finish when disposed, in ms */
+	private static final long DISPOSE_TIMEOUT = 2000;
+
+	/** Folder holding the level files and index */
+	private final FileHandle folder;
+	/** Id of the level at each index of the custom levels list */
+	private final ArrayList<Integer> ids;
+	/** Id given to the next new level */
+	private int nextId;
+	/** Background thread that writes files, in the order they were saved */
+	private final ExecutorService writer;
+
+	/**
+	 * Constructs a store in the given folder.
+	 *
+	 * @param folder
+	 *            folder, created on first write if it does not exist
+	 */
+	CustomLevelStore(FileHandle folder) {
+		this.folder = folder;
+		this.ids = new ArrayList<Integer>();
+		this.nextId = 1;
+		this.writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "CustomLevels");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Returns whether the store has been written to before.
+	 *
+	 * @return true if the index file exists
+	 */
+	boolean exists() {
+		return folder.child(INDEX_FILE).exists();
+	}
+
+	/**
+	 * Reads every level in the store, in index order. Level files missing
+	 * from the index, e.g. because the index was not written before the app
+	 * was killed, are added after the indexed levels in the order they were
+	 * created. Unreadable or invalid levels are skipped.
+	 *
+	 * @param json
+	 *            Json to read levels with
+	 * @return levels
+	 */
+	ArrayList<Level> load(Json json) {
+		ids.clear();
+		ArrayList<Integer> order = new ArrayList<Integer>();
+		FileHandle index = folder.child(INDEX_FILE);
+		if (index.exists()) {
+			for (String line : index.readString("UTF-8").split("\n")) {
+				Integer id = parseId(line.trim());
+				if (id != null && !order.contains(id)) {
+					order.add(id);
+				}
+			}
+		}
+		ArrayList<Integer> unindexed = new ArrayList<Integer>();
+		for (FileHandle file : folder.list(LEVEL_EXTENSION)) {
+			Integer id = parseId(file.nameWithoutExtension());
+			if (id != null) {
+				nextId = Math.max(nextId, id + 1);
+				if (!order.contains(id)) {
+					unindexed.add(id);
+				}
+			}
+		}
+		Collections.sort(unindexed);
+		order.addAll(unindexed);
+
+		ArrayList<Level> levels = new ArrayList<Level>();
+		for (Integer id : order) {
+			FileHandle file = levelFile(id);
+			if (!file.exists()) {
+				continue;
+			}
+			try {
+				Level level = json.fromJson(Level.class, file.readString("UTF-8"));
+				if (LevelManager.checkLevel(level)) {
+					levels.add(level);
+					ids.add(id);
+				}
+			} catch (SerializationException e) {
+				System.out.println("Skipping unreadable custom level " + file.name() + ": " + e.getMessage());
+			} catch (GdxRuntimeException e) {
+				System.out.println("Skipping unreadable custom level " + file.name() + ": " + e.getMessage());
+			}
+		}
+		if (!unindexed.isEmpty()) {
+			writeIndex();
+		}
+		return levels;
+	}
+
+	/**
+	 * Saves a level at the given index of the custom levels list. The level
+	 * is serialized now and written in the background.
+	 *
+	 * @param index
+	 *            index of the level, or the number of levels to add it
+	 * @param level
+	 *            level to save
+	 * @param json
+	 *            Json owned by the calling thread
+	 * @throws IndexOutOfBoundsException
+	 *             if index < 0 || index > number of levels
+	 */
+	void save(int index, Level level, Json json) throws IndexOutOfBoundsException {
+		if (index < 0 || index > ids.size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + ids.size());
+		}
+		boolean added = index == ids.size();
+		if (added) {
+			ids.add(nextId++);
+		}
+		write(levelFile(ids.get(index)), json.toJson(level));
+		if (added) {
+			writeIndex();
+		}
+	}
+
+	/**
+	 * Saves every level, replacing the contents of the store. Used to move
+	 * levels from the old single Preferences string.
+	 *
+	 * @param levels
+	 * @param json
+	 *            Json owned by the calling thread
+	 */
+	void saveAll(List<Level> levels, Json json) {
+		for (Integer id : ids) {
+			final FileHandle file = levelFile(id);
+			submit(new Runnable() {
+				@Override
+				public void run() {
+					file.delete();
+				}
+			});
+		}
+		ids.clear();
+		for (int i = 0; i < levels.size(); i++) {
+			ids.add(nextId++);
+			write(levelFile(ids.get(i)), json.toJson(levels.get(i)));
+		}
+		writeIndex();
+	}
+
+	/**
+	 * Waits for pending writes to finish, then stops the background thread.
+	 */
+	void dispose() {
+		writer.shutdown();
+		try {
+			if (!writer.awaitTermination(DISPOSE_TIMEOUT, TimeUnit.MILLISECONDS)) {
+				System.out.println("Custom levels were still being written at exit.");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Writes the index in the background.
+	 */
+	private void writeIndex() {
+		StringBuilder sb = new StringBuilder();
+		for (Integer id : ids) {
+			sb.append(id);
+			sb.append('\n');
+		}
+		write(folder.child(INDEX_FILE), sb.toString());
+	}
+
+	/**
+	 * Writes text to a file in the background, through a temporary file.
+	 */
+	private void write(final FileHandle file, final String text) {
+		submit(new Runnable() {
+			@Override
+			public void run() {
+				FileHandle temp = file.sibling(file.name() + TEMP_EXTENSION);
+				try {
+					temp.writeString(text, false, "UTF-8");
+					temp.moveTo(file);
+				} catch (GdxRuntimeException e) {
+					System.out.println("Unable to save " + file.name() + ": " + e.getMessage());
+				}
+			}
+		});
+	}
+
+	/**
+	 * Runs a task on the background thread, or on this thread if it has been
+	 * stopped.
+	 */
+	private void submit(Runnable task) {
+		try {
+			writer.execute(task);
+		} catch (RejectedExecutionException e) {
+			task.run();
+		}
+	}
+
+	/**
+	 * Returns the file of the level of the given id.
+	 */
+	private FileHandle levelFile(int id) {
+		return folder.child(id + LEVEL_EXTENSION);
+	}
+
+	/**
+	 * Parses a level id.
+	 *
+	 * @return id, or null if the string is not one
+	 */
+	private static Integer parseId(String s) {
+		try {
+			int id = Integer.parseInt(s);
+			return id > 0 ? Integer.valueOf(id) : null;
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,585 @@
+package com.sawyerharris.gravitygame.manager;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.Json;
+import com.sawyerharris.gravitygame.game.Level;
+import com.sawyerharris.gravitygame.game.Level.PlanetMeta;
+
+/**
+ * Append-only journal of the edits made in the level editor, so an editing
+ * session survives the app being killed and edits can be undone and redone.
+ * <p>
+ * A session starts from a snapshot of the level. Each edit is appended to the
+ * journal with a sequence number; edits are batched and written on a
+ * background thread. Every so often the session is compacted: the current
+ * level is written as the new snapshot, recording the last sequence number it
+ * includes, and the journal is emptied. Recovery loads the snapshot and
+ * replays the edits after it. Undoing or redoing an edit appends its effect
+ * as a new edit, so the journal only ever describes the level going forward.
+ * <p>
+ * The snapshot is the custom level index and the sequence number on one line,
+ * then the level JSON. Each journal line is the sequence number, the planet
+ * index, or -1 for the ship, then the state before and after the edit as
+ * "x,y,radius,home" or "-" if there was none. Only used on the rendering
+ * thread.
+ *
+ * @author Sawyer Harris
+ *
+ */
+public class EditJournal {
+	/** Index of edits that move the ship rather than a planet */
+	public static final int SHIP = -1;
+
+	/** Snapshot and journal files */
+	private static final String SNAPSHOT_FILE = "snapshot.json";
+	private static final String JOURNAL_FILE = "journal.txt";
+	/** Extension of files being written */
+	private static final String TEMP_EXTENSION = ".tmp";
+	/** Pending edits that trigger a write */
+	private static final int BATCH_SIZE = 16;
+	/** Longest pending edits wait before being written, in seconds */
+	private static final float FLUSH_INTERVAL = 1f;
+	/** Journaled edits that trigger compaction */
+	private static final int COMPACT_EDITS = 200;
+	/** Most edits that can be undone */
+	private static final int MAX_HISTORY = 500;
+	/** Time allowed for pending writes to finish when disposed, in ms */
+	private static final long DISPOSE_TIMEOUT = 2000;
+
+	/** Folder holding the snapshot and journal */
+	private final FileHandle folder;
+	/** Json owned by the rendering thread */
+	private final Json json;
+	/** Background thread that writes files, in order */
+	private final ExecutorService writer;
+
+	/** Whether a session is in progress */
+	private boolean active;
+	/** Sequence number of the last edit */
+	private int sequence;
+	/** Edits journaled since the last snapshot */
+	private int editsSinceSnapshot;
+	/** Journal lines not yet written */
+	private final StringBuilder pending;
+	private int pendingEdits;
+	/** Time since pending edits were last written, in seconds */
+	private float sinceFlush;
+	/** Edits that can be undone, then those that can be redone */
+	private final ArrayList<Edit> history;
+	/** Number of edits in history that can be undone */
+	private int undoCount;
+
+	/**
+	 * Constructs a journal in the given folder.
+	 *
+	 * @param folder
+	 *            folder, created on first write if it does not exist
+	 * @param json
+	 *            Json owned by the rendering thread
+	 */
+	EditJournal(FileHandle folder, Json json) {
+		this.folder = folder;
+		this.json = json;
+		this.pending = new StringBuilder();
+		this.history = new ArrayList<Edit>();
+		this.writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "EditJournal");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Returns whether a session was left unfinished by an earlier launch, or
+	 * is in progress.
+	 *
+	 * @return true if there is a snapshot
+	 */
+	public boolean hasSession() {
+		return active || folder.child(SNAPSHOT_FILE).exists();
+	}
+
+	/**
+	 * Starts a session, replacing any earlier one.
+	 *
+	 * @param customLevelIndex
+	 *            index the level will be saved at
+	 * @param level
+	 *            level as it is before any edits
+	 */
+	public void begin(int customLevelIndex, Level level) {
+		active = true;
+		sequence = 0;
+		history.clear();
+		undoCount = 0;
+		pending.setLength(0);
+		pendingEdits = 0;
+		// Delete the old journal first so none of it is replayed onto the new
+		// snapshot, whose sequence numbers start again
+		submit(new Runnable() {
+			@Override
+			public void run() {
+				folder.child(JOURNAL_FILE).delete();
+			}
+		});
+		writeSnapshot(customLevelIndex, level);
+	}
+
+	/**
+	 * Ends the session and deletes its files. Edits that were not saved are
+	 * discarded, as when leaving the editor before.
+	 */
+	public void end() {
+		active = false;
+		history.clear();
+		undoCount = 0;
+		pending.setLength(0);
+		pendingEdits = 0;
+		submit(new Runnable() {
+			@Override
+			public void run() {
+				folder.child(JOURNAL_FILE).delete();
+				folder.child(SNAPSHOT_FILE).delete();
+			}
+		});
+	}
+
+	/**
+	 * Rebuilds the level of an unfinished session from its snapshot and
+	 * journal. Edits that cannot be applied, e.g. a line cut short when the
+	 * app was killed, end the replay.
+	 *
+	 * @return recovered session, or null if there is none or it is unreadable
+	 */
+	public Recovery recover() {
+		FileHandle snapshotFile = folder.child(SNAPSHOT_FILE);
+		if (!snapshotFile.exists()) {
+			return null;
+		}
+		int customLevelIndex;
+		int snapshotSequence;
+		Level snapshot;
+		try {
+			String text = snapshotFile.readString("UTF-8");
+			int newline = text.indexOf('\n');
+			String[] header = text.substring(0, newline).split(" ");
+			customLevelIndex = Integer.parseInt(header[0]);
+			snapshotSequence = Integer.parseInt(header[1]);
+			snapshot = json.fromJson(Level.class, text.substring(newline + 1));
+		} catch (RuntimeException e) {
+			System.out.println("Discarding unreadable editor snapshot: " + e);
+			return null;
+		}
+		if (!LevelManager.checkLevel(snapshot)) {
+			return null;
+		}
+
+		ArrayList<PlanetMeta> planets = new ArrayList<PlanetMeta>(snapshot.getPlanets());
+		Vector2 origin = new Vector2(snapshot.getShipOrigin());
+		int replayed = 0;
+		FileHandle journalFile = folder.child(JOURNAL_FILE);
+		if (journalFile.exists()) {
+			for (String line : journalFile.readString("UTF-8").split("\n")) {
+				if (line.length() == 0) {
+					continue;
+				}
+				try {
+					String[] fields = line.split(" ");
+					if (fields.length != 4) {
+						throw new IllegalArgumentException("Incomplete edit.");
+					}
+					if (Integer.parseInt(fields[0]) <= snapshotSequence) {
+						// Already in the snapshot
+						continue;
+					}
+					Edit edit = new Edit(Integer.parseInt(fields[1]), parseState(fields[2]), parseState(fields[3]));
+					apply(planets, origin, edit);
+					replayed++;
+				} catch (RuntimeException e) {
+					System.out.println("Stopping editor recovery at \"" + line + "\": " + e);
+					break;
+				}
+			}
+		}
+		System.out.println("Recovered level editor session with " + replayed + " edits.");
+		Level level = new Level(snapshot.getName(), snapshot.getAuthor(), origin, planets);
+		return new Recovery(customLevelIndex, level);
+	}
+
+	/**
+	 * Records an edit that has been made.
+	 *
+	 * @param edit
+	 */
+	public void record(Edit edit) {
+		if (!active) {
+			return;
+		}
+		// A new edit discards those that could have been redone
+		while (history.size() > undoCount) {
+			history.remove(history.size() - 1);
+		}
+		history.add(edit);
+		if (history.size() > MAX_HISTORY) {
+			history.remove(0);
+		}
+		undoCount = history.size();
+		append(edit);
+	}
+
+	/**
+	 * Takes the last edit off the undo history. The caller reverts it by
+	 * applying its before state; the reversal is journaled here.
+	 *
+	 * @return edit to revert, or null if there is none
+	 */
+	public Edit undo() {
+		if (!active || undoCount == 0) {
+			return null;
+		}
+		Edit edit = history.get(--undoCount);
+		append(edit.reverse());
+		return edit;
+	}
+
+	/**
+	 * Takes the next undone edit. The caller makes it again by applying its
+	 * after state; it is journaled here.
+	 *
+	 * @return edit to redo, or null if there is none
+	 */
+	public Edit redo() {
+		if (!active || undoCount == history.size()) {
+			return null;
+		}
+		Edit edit = history.get(undoCount++);
+		append(edit);
+		return edit;
+	}
+
+	/**
+	 * Returns whether enough edits have been journaled since the last
+	 * snapshot that the session should be compacted.
+	 *
+	 * @return true if compact should be called
+	 */
+	public boolean shouldCompact() {
+		return active && editsSinceSnapshot >= COMPACT_EDITS;
+	}
+
+	/**
+	 * Replaces the snapshot with the current level and empties the journal.
+	 * Undo history is kept.
+	 *
+	 * @param customLevelIndex
+	 *            index the level will be saved at
+	 * @param level
+	 *            level with every edit so far
+	 */
+	public void compact(int customLevelIndex, Level level) {
+		if (active) {
+			flush();
+			writeSnapshot(customLevelIndex, level);
+		}
+	}
+
+	/**
+	 * Writes pending edits if the oldest has waited long enough. Called every
+	 * frame while editing.
+	 *
+	 * @param delta
+	 *            time since the last call in seconds
+	 */
+	public void update(float delta) {
+		sinceFlush += delta;
+		if (pendingEdits > 0 && sinceFlush >= FLUSH_INTERVAL) {
+			flush();
+		}
+	}
+
+	/**
+	 * Writes pending edits in the background, e.g. when the app is paused.
+	 */
+	public void flush() {
+		sinceFlush = 0;
+		if (pendingEdits == 0) {
+			return;
+		}
+		final String text = pending.toString();
+		pending.setLength(0);
+		pendingEdits = 0;
+		submit(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					folder.child(JOURNAL_FILE).writeString(text, true, "UTF-8");
+				} catch (GdxRuntimeException e) {
+					System.out.println("Unable to write editor journal: " + e.getMessage());
+				}
+			}
+		});
+	}
+
+	/**
+	 * Writes pending edits and stops the background thread.
+	 */
+	void dispose() {
+		flush();
+		writer.shutdown();
+		try {
+			if (!writer.awaitTermination(DISPOSE_TIMEOUT, TimeUnit.MILLISECONDS)) {
+				System.out.println("Editor journal was still being written at exit.");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Adds an edit to the pending journal lines.
+	 */
+	private void append(Edit edit) {
+		pending.append(++sequence);
+		pending.append(' ');
+		pending.append(edit.getIndex());
+		pending.append(' ');
+		appendState(pending, edit.getBefore());
+		pending.append(' ');
+		appendState(pending, edit.getAfter());
+		pending.append('\n');
+		pendingEdits++;
+		editsSinceSnapshot++;
+		if (pendingEdits >= BATCH_SIZE) {
+			flush();
+		}
+	}
+
+	/**
+	 * Writes the snapshot through a temporary file, then empties the journal.
+	 * A journal left behind if the app is killed in between only holds edits
+	 * the snapshot already includes, which recovery skips by sequence number.
+	 */
+	private void writeSnapshot(int customLevelIndex, Level level) {
+		final String text = customLevelIndex + " " + sequence + "\n" + json.toJson(level);
+		editsSinceSnapshot = 0;
+		submit(new Runnable() {
+			@Override
+			public void run() {
+				FileHandle file = folder.child(SNAPSHOT_FILE);
+				FileHandle temp = folder.child(SNAPSHOT_FILE + TEMP_EXTENSION);
+				try {
+					temp.writeString(text, false, "UTF-8");
+					temp.moveTo(file);
+					folder.child(JOURNAL_FILE).delete();
+				} catch (GdxRuntimeException e) {
+					System.out.println("Unable to write editor snapshot: " + e.getMessage());
+				}
+			}
+		});
+	}
+
+	/**
+	 * Runs a task on the background thread, or on this thread if it has been
+	 * stopped.
+	 */
+	private void submit(Runnable task) {
+		try {
+			writer.execute(task);
+		} catch (RejectedExecutionException e) {
+			task.run();
+		}
+	}
+
+	/**
+	 * Applies an edit to a list of planets and a ship origin.
+	 *
+	 * @throws IndexOutOfBoundsException
+	 *             if the edit does not fit the planets
+	 * @throws IllegalArgumentException
+	 *             if a ship edit has no position
+	 */
+	private static void apply(ArrayList<PlanetMeta> planets, Vector2 origin, Edit edit)
+			throws IndexOutOfBoundsException, IllegalArgumentException {
+		PlanetMeta after = edit.getAfter();
+		if (edit.getIndex() == SHIP) {
+			if (after == null) {
+				throw new IllegalArgumentException("Ship edits need a position.");
+			}
+			origin.set(after.getPosition());
+		} else if (edit.getBefore() == null) {
+			planets.add(edit.getIndex(), after);
+		} else if (after == null) {
+			planets.remove(edit.getIndex());
+		} else {
+			planets.set(edit.getIndex(), after);
+		}
+	}
+
+	/**
+	 * Appends a planet state, or "-" if there is none.
+	 */
+	private static void appendState(StringBuilder sb, PlanetMeta state) {
+		if (state == null) {
+			sb.append('-');
+			return;
+		}
+		sb.append(state.getPosition().x);
+		sb.append(',');
+		sb.append(state.getPosition().y);
+		sb.append(',');
+		sb.append(state.getRadius());
+		sb.append(',');
+		sb.append(state.isHomePlanet() ? 1 : 0);
+	}
+
+	/**
+	 * Parses a planet state written by appendState.
+	 *
+	 * @throws NumberFormatException
+	 *             if the state is invalid
+	 */
+	private static PlanetMeta parseState(String s) throws NumberFormatException {
+		if (s.equals("-")) {
+			return null;
+		}
+		String[] parts = s.split(",");
+		if (parts.length != 4) {
+			throw new NumberFormatException("Invalid planet state: " + s);
+		}
+		Vector2 position = new Vector2(Float.parseFloat(parts[0]), Float.parseFloat(parts[1]));
+		return new PlanetMeta(position, Integer.parseInt(parts[2]), parts[3].equals("1"));
+	}
+
+	/**
+	 * A change to one planet, or to the ship, as its state before and after.
+	 * A planet with no state before was added; one with no state after was
+	 * removed. Ship states hold only a position.
+	 *
+	 * @author Sawyer Harris
+	 *
+	 */
+	public static class Edit {
+		/** Index of the planet, or SHIP */
+		private final int index;
+		/** States before and after, or null */
+		private final PlanetMeta before;
+		private final PlanetMeta after;
+
+		/**
+		 * Constructs an edit.
+		 *
+		 * @param index
+		 *            index of the planet in the planet list, or SHIP
+		 * @param before
+		 *            state before, or null if the planet was added
+		 * @param after
+		 *            state after, or null if the planet was removed
+		 */
+		public Edit(int index, PlanetMeta before, PlanetMeta after) {
+			if (index < SHIP || (before == null && after == null)) {
+				throw new IllegalArgumentException("Invalid edit.");
+			}
+			this.index = index;
+			this.before = before;
+			this.after = after;
+		}
+
+		/**
+		 * Constructs an edit that moves the ship.
+		 *
+		 * @param from
+		 * @param to
+		 * @return edit
+		 */
+		public static Edit moveShip(Vector2 from, Vector2 to) {
+			return new Edit(SHIP, new PlanetMeta(new Vector2(from), 0, false), new PlanetMeta(new Vector2(to), 0, false));
+		}
+
+		/**
+		 * Returns the edit that undoes this one.
+		 *
+		 * @return reverse edit
+		 */
+		public Edit reverse() {
+			return new Edit(index, after, before);
+		}
+
+		/**
+		 * Returns the index of the planet edited.
+		 *
+		 * @return index, or SHIP
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		/**
+		 * Returns the state before the edit.
+		 *
+		 * @return state, or null if the planet was added
+		 */
+		public PlanetMeta getBefore() {
+			return before;
+		}
+
+		/**
+		 * Returns the state after the edit.
+		 *
+		 * @return state, or null if the planet was removed
+		 */
+		public PlanetMeta getAfter() {
+			return after;
+		}
+	}
+
+	/**
+	 * Level and custom level index of a recovered session.
+	 *
+	 * @author Sawyer Harris
+	 *
+	 */
+	public static class Recovery {
+		/** Index the level will be saved at */
+		private final int customLevelIndex;
+		/** Level with the journaled edits applied */
+		private final Level level;
+
+		/**
+		 * Constructs a recovery.
+		 */
+		private Recovery(int customLevelIndex, Level level) {
+			this.customLevelIndex = customLevelIndex;
+			this.level = level;
+		}
+
+		/**
+		 * Returns the index the level will be saved at.
+		 *
+		 * @return custom level index
+		 */
+		public int getCustomLevelIndex() {
+			return customLevelIndex;
+		}
+
+		/**
+		 * Returns the recovered level.
+		 *
+		 * @return level
+		 */
+		public Level getLevel() {
+			return level;
+		}
+	}
+}
@@ -1,21 +1,36 @@
 package com.sawyerharris.gravitygame.manager;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.URLEncoder;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.GZIPOutputStream;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Preferences;
 import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Base64Coder;
 import com.badlogic.gdx.utils.Json;
 import com.badlogic.gdx.utils.JsonReader;
 import com.badlogic.gdx.utils.JsonValue;
 import com.badlogic.gdx.utils.SerializationException;
+import com.badlogic.gdx.utils.TimeUtils;
 import com.sawyerharris.gravitygame.game.GravityGame;
 import com.sawyerharris.gravitygame.game.Level;
 import com.sawyerharris.gravitygame.game.PlayerStatus;
+import com.sawyerharris.gravitygame.physics.Replay;
 
 /**
  * Loads and manages retrieval, saving, uploading, and downloading of levels.
@@ -27,32 +42,74 @@ public class LevelManager {
 	/** Singleton instance of game */
 	private final GravityGame game = GravityGame.getInstance();
 
-	/** URL of level server */
-	private static final String LEVEL_SERVER = "http://gravity-game.appspot.com/?";
+	/** URL levels are uploaded to */
+	private static final String LEVEL_UPLOAD = "http://gravity-game.appspot.com/upload";
+	/** URL of level catalogue, which lists levels with their ids */
+	private static final String LEVEL_CATALOG = "http://gravity-game.appspot.com/levels?group=default";
+	/** URL of the leaderboard, which verifies replays of online levels */
+	private static final String LEADERBOARD = "http://gravity-game.appspot.com/leaderboard?group=default";
+	/** Name scores are submitted under if the player has not set one */
+	private static final String DEFAULT_PLAYER = "Anonymous";
+	/** Number of online levels requested per page */
+	private static final int ONLINE_PAGE_SIZE = 20;
+	/** Time allowed to connect to and then read from the level server, in ms */
+	private static final int CONNECT_TIMEOUT = 5000;
+	private static final int READ_TIMEOUT = 10000;
 
-	/** Name of Preferences file to load */
+	/** Preferences file and key custom levels were saved in by older versions */
 	private static final String PREFS_NAME = "com.sawyerharris.gravitygame.customlevels";
+	private static final String PREFS_KEY = "customLevels";
+	/** Local folder custom levels are saved in */
+	private static final String CUSTOM_LEVELS_FOLDER = "customlevels/";
+	/** Local folder the level editor journal is kept in */
+	private static final String EDIT_JOURNAL_FOLDER = "editor/";
 	/** Level folder */
 	private static final String LEVELS_FOLDER = "levels/";
-	/** Level list file */
+	/** Level list file, and the sections of it */
 	private static final String LEVELS_META_FILE = "meta/levels.txt";
+	private static final String OFFICIAL_SECTION = "official";
+	private static final String TUTORIAL_SECTION = "tutorial";
+	/** Pack of the levels in the level list, generated at build time */
+	private static final String LEVELS_PACK_FILE = "levels/levels.pack";
+	/** Local file caching online levels between launches */
+	private static final String ONLINE_CACHE_FILE = "onlinelevels.txt";
 
 	/** JSON */
 	private JsonReader reader;
 	private Json json;
 
 	/** Levels lists */
-	private ArrayList<Level> levels;
-	private ArrayList<Level> tutorialLevels;
+	private LevelPack.Section levels;
+	private LevelPack.Section tutorialLevels;
 	private ArrayList<Level> customLevels;
 	private ArrayList<Level> onlineLevels;
 
+	/** Server cursor of the next page of online levels, or null */
+	private String onlineCursor;
+	/** Whether the server may have more online levels */
+	private boolean moreOnlineLevels;
+	/** Upload date of the newest online level in ms, and its validator */
+	private long onlineNewest;
+	private String onlineEtag;
+	/** JSON used only on the online thread */
+	private final Json onlineJson = new Json();
+	/** Background thread that fetches online levels */
+	private final ExecutorService onlineExecutor;
+	/** Online request in progress, or null */
+	private Future<?> onlineRequest;
+	/** Incremented to discard the results of cancelled requests */
+	private int onlineGeneration;
+	/** Notified when online levels have loaded, or null */
+	private OnlineLevelsListener onlineListener;
+
 	/** Level status */
 	private int currentLevel;
 	private boolean onTutorialLevels;
 
-	/** Custom levels preferences */
-	private Preferences prefs;
+	/** Stores each custom level in its own file */
+	private CustomLevelStore customLevelStore;
+	/** Journal of the level editor session */
+	private EditJournal editJournal;
 
 	/** List of level indexes that correspond to ship style unlocks */
 	ArrayList<Integer> styleUnlockLevelIndexList;
@@ -63,12 +120,21 @@ public class LevelManager {
 	public LevelManager() {
 		reader = new JsonReader();
 		json = new Json();
+		onlineExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "OnlineLevels");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
 
 		prepareShipStyleUnlockList();
 		loadLevels();
 		loadLevelStatus();
 		loadCustomLevels();
 		loadOnlineLevels();
+		editJournal = new EditJournal(Gdx.files.local(EDIT_JOURNAL_FOLDER), json);
 	}
 
 	/**
@@ -79,7 +145,7 @@ public class LevelManager {
 	 *            level to check
 	 * @return true if level is valid
 	 */
-	private boolean checkLevel(Level l) {
+	static boolean checkLevel(Level l) {
 		if (l == null) {
 			return false;
 		}
@@ -103,27 +169,50 @@ public class LevelManager {
 	}
 
 	/**
-	 * Loads official and tutorial levels.
+	 * Opens official and tutorial levels. Only the index of the level pack
+	 * generated at build time is read; each level is decoded on first use. If
+	 * there is no pack, the JSON level files are used instead, each parsed on
+	 * first use.
 	 */
 	private void loadLevels() {
-		levels = new ArrayList<Level>();
-		tutorialLevels = new ArrayList<Level>();
-		FileHandle file = Gdx.files.internal(LEVELS_META_FILE);
-		JsonValue meta = reader.parse(file);
-
-		String[] levelNames = meta.get("official").asStringArray();
-		for (int i = 0; i < levelNames.length; i++) {
-			FileHandle levelFile = Gdx.files.internal(LEVELS_FOLDER + levelNames[i]);
-			Level level = json.fromJson(Level.class, levelFile);
-			levels.add(level);
+		long start = TimeUtils.millis();
+		FileHandle packFile = Gdx.files.internal(LEVELS_PACK_FILE);
+		if (packFile.exists()) {
+			try {
+				LevelPack pack = LevelPack.read(packFile);
+				levels = pack.getSection(OFFICIAL_SECTION);
+				tutorialLevels = pack.getSection(TUTORIAL_SECTION);
+			} catch (IOException e) {
+				System.out.println("Could not read " + packFile.path() + ", using JSON: " + e.getMessage());
+			} catch (IllegalArgumentException e) {
+				System.out.println("Could not read " + packFile.path() + ", using JSON: " + e.getMessage());
+			}
 		}
+		if (levels == null || tutorialLevels == null) {
+			JsonValue meta = reader.parse(Gdx.files.internal(LEVELS_META_FILE));
+			levels = jsonSection(meta, OFFICIAL_SECTION);
+			tutorialLevels = jsonSection(meta, TUTORIAL_SECTION);
+		}
+		System.out.println("Opened " + (levels.size() + tutorialLevels.size()) + " levels in "
+				+ TimeUtils.timeSinceMillis(start) + " ms.");
+	}
 
-		String[] tutorialLevelNames = meta.get("tutorial").asStringArray();
-		for (int i = 0; i < tutorialLevelNames.length; i++) {
-			FileHandle levelFile = Gdx.files.internal(LEVELS_FOLDER + tutorialLevelNames[i]);
-			Level level = json.fromJson(Level.class, levelFile);
-			tutorialLevels.add(level);
+	/**
+	 * Creates a section of JSON level files from the level list file.
+	 * 
+	 * @param meta
+	 *            parsed level list file
+	 * @param name
+	 *            name of the section
+	 * @return section
+	 */
+	private LevelPack.Section jsonSection(JsonValue meta, String name) {
+		String[] fileNames = meta.get(name).asStringArray();
+		FileHandle[] files = new FileHandle[fileNames.length];
+		for (int i = 0; i < fileNames.length; i++) {
+			files[i] = Gdx.files.internal(LEVELS_FOLDER + fileNames[i]);
 		}
+		return LevelPack.Section.fromJson(name, files, json);
 	}
 
 	/**
@@ -135,72 +224,428 @@ public class LevelManager {
 	}
 
 	/**
-	 * Loads the player's custom levels.
+	 * Loads the player's custom levels. Levels saved by older versions as a
+	 * single Preferences string are moved to the custom level store. The
+	 * string is only removed on the next launch, once the store has been
+	 * written.
 	 */
 	private void loadCustomLevels() {
 		customLevels = new ArrayList<Level>();
-		prefs = Gdx.app.getPreferences(PREFS_NAME);
-		String customLevelStr = prefs.getString("customLevels");
+		customLevelStore = new CustomLevelStore(Gdx.files.local(CUSTOM_LEVELS_FOLDER));
+		Preferences prefs = Gdx.app.getPreferences(PREFS_NAME);
+		if (customLevelStore.exists()) {
+			customLevels = customLevelStore.load(json);
+			if (prefs.contains(PREFS_KEY)) {
+				prefs.remove(PREFS_KEY);
+				prefs.flush();
+			}
+			return;
+		}
+
+		String customLevelStr = prefs.getString(PREFS_KEY);
 		try {
 			@SuppressWarnings("unchecked")
 			ArrayList<Level> list = json.fromJson(ArrayList.class, Level.class, customLevelStr);
 			if (list != null) {
 				for (Level level : list) {
-					if (!checkLevel(level)) {
-						list.remove(level);
+					if (checkLevel(level)) {
+						customLevels.add(level);
 					}
 				}
-				customLevels = list;
 			}
 		} catch (SerializationException e) {
 			System.out.println("Unable to load custom levels.");
 			e.printStackTrace(System.out);
 		}
+		if (!customLevels.isEmpty()) {
+			System.out.println("Moving " + customLevels.size() + " custom levels out of preferences.");
+			customLevelStore.saveAll(customLevels, json);
+		}
 	}
 
 	/**
-	 * Loads levels from the online databse.
+	 * Starts loading online levels in the background. Levels cached by the
+	 * previous launch are published as soon as they are read, then the
+	 * server is asked only for levels uploaded since. If nothing has changed
+	 * the server answers 304 Not Modified and nothing is downloaded.
 	 */
 	private void loadOnlineLevels() {
 		onlineLevels = new ArrayList<Level>();
-
-		BufferedReader in;
-		try {
-			URL url = new URL(LEVEL_SERVER + "op=read&group=default");
-			in = new BufferedReader(new InputStreamReader(url.openStream()));
-			String inputLine;
-			boolean begin = false;
-			while (!begin) {
-				inputLine = in.readLine();
-				if (inputLine == null) {
-					System.out.println("Stream ended before begin was detected.");
-					return;
-				}
-				if (inputLine.equals("begin")) {
-					begin = true;
+		cancelOnlineLoad();
+		final int generation = onlineGeneration;
+		final long start = TimeUtils.millis();
+		submitOnline(new Runnable() {
+			@Override
+			public void run() {
+				OnlinePage cached = readOnlineCache();
+				if (cached == null) {
+					fetchLatest(generation, false, -1, null, start);
+				} else {
+					postOnlinePage(generation, PageMode.REPLACE, cached, false, start);
+					fetchLatest(generation, true, cached.newest, cached.etag, start);
 				}
 			}
+		});
+	}
 
-			while ((inputLine = in.readLine()) != null) {
-				if (inputLine.equals("")) {
-					continue;
+	/**
+	 * Starts fetching online levels uploaded since the newest one loaded, e.g.
+	 * after uploading a level. Cancels any request in progress.
+	 */
+	public void refreshOnlineLevels() {
+		cancelOnlineLoad();
+		final int generation = onlineGeneration;
+		final boolean loaded = onlineEtag != null;
+		final long since = onlineNewest;
+		final String etag = onlineEtag;
+		final long start = TimeUtils.millis();
+		submitOnline(new Runnable() {
+			@Override
+			public void run() {
+				if (loaded) {
+					fetchLatest(generation, true, since, etag, start);
+				} else {
+					fetchLatest(generation, false, -1, null, start);
 				}
+			}
+		});
+	}
+
+	/**
+	 * Starts loading the next page of online levels in the background. Once
+	 * it arrives it is appended to the online levels list on the rendering
+	 * thread and the listener is notified.
+	 * 
+	 * @return true if a request was started, false if one is already in
+	 *         progress or there are no more levels
+	 */
+	public boolean loadMoreOnlineLevels() {
+		if (!moreOnlineLevels || onlineRequest != null) {
+			return false;
+		}
+		final int generation = onlineGeneration;
+		final String cursor = onlineCursor;
+		final long start = TimeUtils.millis();
+		return submitOnline(new Runnable() {
+			@Override
+			public void run() {
+				OnlinePage page = null;
 				try {
-					Level level = json.fromJson(Level.class, inputLine);
-					if (checkLevel(level)) {
-						onlineLevels.add(level);
-					}
-				} catch (SerializationException e) {
-					// Invalid level formatting
-					e.printStackTrace(System.out);
+					page = fetchOnlinePage(cursor, -1, null);
+				} catch (IOException e) {
+					// Includes timeouts; cancelled requests are discarded when posted
+					System.out.println("Unable to load online levels: " + e);
 				}
+				postOnlinePage(generation, PageMode.APPEND, page, true, start);
+			}
+		});
+	}
+
+	/**
+	 * Fetches the newest online levels and posts them. Runs on the online
+	 * thread.
+	 * 
+	 * @param generation
+	 *            generation the request was made in
+	 * @param delta
+	 *            true to fetch only levels newer than since and add them to
+	 *            those loaded, false to fetch the first page and replace them
+	 * @param since
+	 *            upload date of the newest level loaded, in ms
+	 * @param etag
+	 *            validator of the levels loaded, or null
+	 * @param start
+	 *            time the request was made, in ms
+	 */
+	private void fetchLatest(int generation, boolean delta, long since, String etag, long start) {
+		OnlinePage page = null;
+		boolean replace = !delta;
+		try {
+			page = fetchOnlinePage(null, delta ? since : -1, etag);
+			if (delta && page.cursor != null) {
+				// A full page of new levels may not reach those loaded, so start
+				// over. Its cursor belongs to the filtered query and cannot page
+				// the unfiltered one, so the first page is fetched again.
+				page = fetchOnlinePage(null, -1, null);
+				replace = true;
 			}
-			in.close();
 		} catch (IOException e) {
-			System.out.println("Unable to connect to level server.");
-			e.printStackTrace(System.out);
+			// Includes timeouts; cancelled requests are discarded when posted
+			System.out.println("Unable to load online levels: " + e);
+			page = null;
+		}
+		postOnlinePage(generation, replace ? PageMode.REPLACE : PageMode.PREPEND, page, true, start);
+	}
+
+	/**
+	 * Submits a task to the online thread as the request in progress.
+	 * 
+	 * @param task
+	 * @return true if the task was submitted
+	 */
+	private boolean submitOnline(Runnable task) {
+		try {
+			onlineRequest = onlineExecutor.submit(task);
+			return true;
+		} catch (RejectedExecutionException e) {
+			// Shut down
+			return false;
+		}
+	}
+
+	/**
+	 * Hands a page to the rendering thread to be published.
+	 */
+	private void postOnlinePage(final int generation, final PageMode mode, final OnlinePage page, final boolean last,
+			final long start) {
+		Gdx.app.postRunnable(new Runnable() {
+			@Override
+			public void run() {
+				onlinePageLoaded(generation, mode, page, last, start);
+			}
+		});
+	}
+
+	/**
+	 * Publishes a page of online levels and caches the result if it came
+	 * from the server. Runs on the rendering thread.
+	 * 
+	 * @param generation
+	 *            generation the request was made in
+	 * @param mode
+	 *            how the page is combined with the levels loaded
+	 * @param page
+	 *            page that was loaded, or null if the request failed
+	 * @param last
+	 *            true if this is the server's answer and ends the request,
+	 *            false if it was read from the cache
+	 * @param start
+	 *            time the request was made, in ms
+	 */
+	private void onlinePageLoaded(int generation, PageMode mode, OnlinePage page, boolean last, long start) {
+		if (generation != onlineGeneration) {
+			// Cancelled after the page arrived
+			return;
+		}
+		if (last) {
+			onlineRequest = null;
+		}
+		if (page == null) {
+			if (last && onlineListener != null) {
+				onlineListener.onlineLevelsFailed();
+			}
+			return;
+		}
+		if (page.notModified) {
+			System.out.println("Online levels are up to date, checked in " + (TimeUtils.millis() - start) + " ms.");
 			return;
 		}
+
+		HashSet<Long> ids = new HashSet<Long>();
+		for (Level level : page.levels) {
+			ids.add(level.getOnlineId());
+		}
+		int first = 0;
+		switch (mode) {
+		case REPLACE:
+			onlineLevels.clear();
+			onlineLevels.addAll(page.levels);
+			onlineCursor = page.cursor;
+			moreOnlineLevels = page.cursor != null;
+			onlineNewest = page.newest;
+			onlineEtag = page.etag;
+			break;
+		case PREPEND:
+			// Drop any older copies of the new levels
+			for (int i = onlineLevels.size() - 1; i >= 0; i--) {
+				if (ids.contains(onlineLevels.get(i).getOnlineId())) {
+					onlineLevels.remove(i);
+				}
+			}
+			onlineLevels.addAll(0, page.levels);
+			onlineNewest = page.newest;
+			onlineEtag = page.etag;
+			break;
+		case APPEND:
+			for (Level level : onlineLevels) {
+				ids.remove(level.getOnlineId());
+			}
+			first = onlineLevels.size();
+			for (Level level : page.levels) {
+				if (ids.contains(level.getOnlineId())) {
+					onlineLevels.add(level);
+				}
+			}
+			onlineCursor = page.cursor;
+			moreOnlineLevels = page.cursor != null;
+			break;
+		}
+		System.out.println((last ? "Loaded " : "Read cached ") + page.levels.size() + " online levels in "
+				+ (TimeUtils.millis() - start) + " ms.");
+		if (onlineListener != null) {
+			onlineListener.onlineLevelsLoaded(first, mode != PageMode.APPEND);
+		}
+		if (last) {
+			saveOnlineCache();
+		}
+	}
+
+	/**
+	 * Cancels any online request in progress. Its results are discarded even
+	 * if they have already arrived.
+	 */
+	public void cancelOnlineLoad() {
+		onlineGeneration++;
+		if (onlineRequest != null) {
+			onlineRequest.cancel(true);
+			onlineRequest = null;
+		}
+	}
+
+	/**
+	 * Fetches a page of online levels from the level catalogue, blocking until
+	 * it has been read. Runs on the online thread.
+	 * 
+	 * @param cursor
+	 *            cursor of the page, or null for the first page
+	 * @param since
+	 *            only fetch levels uploaded after this time in ms, or -1
+	 * @param etag
+	 *            validator of the levels already loaded, or null
+	 * @return page, which is marked not modified if the server says the
+	 *         loaded levels are current
+	 * @throws IOException
+	 *             if the server could not be reached or timed out
+	 */
+	private OnlinePage fetchOnlinePage(String cursor, long since, String etag) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		sb.append(LEVEL_CATALOG);
+		sb.append("&limit=");
+		sb.append(ONLINE_PAGE_SIZE);
+		if (cursor != null) {
+			sb.append("&cursor=");
+			sb.append(URLEncoder.encode(cursor, "UTF-8"));
+		}
+		if (since >= 0) {
+			sb.append("&since=");
+			sb.append(since);
+		}
+		HttpURLConnection connection = (HttpURLConnection) new URL(sb.toString()).openConnection();
+		connection.setConnectTimeout(CONNECT_TIMEOUT);
+		connection.setReadTimeout(READ_TIMEOUT);
+		if (etag != null) {
+			connection.setRequestProperty("If-None-Match", etag);
+		}
+		try {
+			if (connection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+				OnlinePage page = new OnlinePage();
+				page.notModified = true;
+				return page;
+			}
+			BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(), "UTF-8"));
+			try {
+				OnlinePage page = OnlinePage.read(in, onlineJson);
+				page.etag = connection.getHeaderField("ETag");
+				return page;
+			} finally {
+				in.close();
+			}
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	/**
+	 * Reads the online levels cached by an earlier launch. Runs on the online
+	 * thread.
+	 * 
+	 * @return cached levels, or null if there are none or they are unreadable
+	 */
+	private OnlinePage readOnlineCache() {
+		FileHandle file = Gdx.files.local(ONLINE_CACHE_FILE);
+		if (!file.exists()) {
+			return null;
+		}
+		try {
+			BufferedReader in = new BufferedReader(file.reader("UTF-8"));
+			try {
+				return OnlinePage.read(in, onlineJson);
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			System.out.println("Discarding unreadable online level cache: " + e);
+			return null;
+		} catch (RuntimeException e) {
+			System.out.println("Discarding unreadable online level cache: " + e);
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the loaded online levels to the cache on the online thread. The
+	 * cache is written to a temporary file first so an interrupted write
+	 * never replaces a good cache.
+	 */
+	private void saveOnlineCache() {
+		final ArrayList<Level> snapshot = new ArrayList<Level>(onlineLevels);
+		final String cursor = onlineCursor;
+		final long newest = onlineNewest;
+		final String etag = onlineEtag;
+		try {
+			onlineExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					FileHandle file = Gdx.files.local(ONLINE_CACHE_FILE);
+					FileHandle temp = Gdx.files.local(ONLINE_CACHE_FILE + ".tmp");
+					try {
+						Writer out = temp.writer(false, "UTF-8");
+						try {
+							OnlinePage.write(out, onlineJson, snapshot, cursor, newest, etag);
+						} finally {
+							out.close();
+						}
+						temp.moveTo(file);
+					} catch (IOException e) {
+						System.out.println("Unable to cache online levels: " + e);
+					} catch (RuntimeException e) {
+						System.out.println("Unable to cache online levels: " + e);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// Shut down
+		}
+	}
+
+	/**
+	 * Sets the listener notified on the rendering thread when online levels
+	 * have loaded.
+	 * 
+	 * @param listener
+	 *            listener, or null
+	 */
+	public void setOnlineLevelsListener(OnlineLevelsListener listener) {
+		onlineListener = listener;
+	}
+
+	/**
+	 * Returns whether online levels are being loaded.
+	 * 
+	 * @return true if a request is in progress
+	 */
+	public boolean isLoadingOnlineLevels() {
+		return onlineRequest != null;
+	}
+
+	/**
+	 * Returns whether the server may have online levels that have not been
+	 * loaded yet.
+	 * 
+	 * @return true if there may be more
+	 */
+	public boolean hasMoreOnlineLevels() {
+		return moreOnlineLevels;
 	}
 
 	/**
@@ -301,7 +746,8 @@ public class LevelManager {
 	}
 
 	/**
-	 * Saves a custom level at the given index.
+	 * Saves a custom level at the given index. Only that level is written, in
+	 * the background.
 	 * 
 	 * @param index
 	 *            index in which to save
@@ -316,43 +762,318 @@ public class LevelManager {
 		} else {
 			customLevels.set(index, level);
 		}
-		prefs.putString("customLevels", json.toJson(customLevels));
-		prefs.flush();
+		customLevelStore.save(index, level, json);
 	}
 
 	/**
-	 * Uploads the given level to the database.
+	 * Starts uploading the given level to the database in the background. The
+	 * level is serialized once and sent gzip compressed in a POST body. Once
+	 * it is saved, online levels are refreshed to include it.
 	 * 
 	 * @param level
 	 *            Level to be uploaded
-	 * @return true if level was successfully uploaded
+	 * @return true if the upload was started
 	 */
-	public boolean uploadLevel(Level level) {
+	public boolean uploadLevel(final Level level) {
 		// Check for valid level
 		if (level == null) {
 			return false;
 		}
 
+		try {
+			onlineExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						final long id = postLevel(level);
+						System.out.println("Uploaded level " + level.getName() + " as " + id + ".");
+						Gdx.app.postRunnable(new Runnable() {
+							@Override
+							public void run() {
+								refreshOnlineLevels();
+							}
+						});
+					} catch (IOException e) {
+						System.out.println("Unable to upload level: " + e);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// Shut down
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Posts a level to the upload endpoint, blocking until it is saved. Runs
+	 * on the online thread.
+	 * 
+	 * @param level
+	 * @return id of the saved level
+	 * @throws IOException
+	 *             if the server could not be reached or rejected the level
+	 */
+	private long postLevel(Level level) throws IOException {
+		String text = onlineJson.toJson(level);
+		byte[] body = compressLevel(text);
+
 		StringBuilder sb = new StringBuilder();
-		sb.append(LEVEL_SERVER);
-		sb.append("op=write&group=default&level=");
-		sb.append(json.toJson(level));
-		sb.append("&hash=");
-		sb.append(json.toJson(level).hashCode());
+		sb.append(LEVEL_UPLOAD);
+		sb.append("?group=default&hash=");
+		sb.append(text.hashCode());
 		sb.append("&author=");
-		sb.append(level.getAuthor());
+		sb.append(URLEncoder.encode(level.getAuthor(), "UTF-8"));
 		sb.append("&pass=s17gg");
+		HttpURLConnection connection = (HttpURLConnection) new URL(sb.toString()).openConnection();
+		connection.setConnectTimeout(CONNECT_TIMEOUT);
+		connection.setReadTimeout(READ_TIMEOUT);
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		connection.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
+		connection.setRequestProperty("Content-Encoding", "gzip");
+		connection.setFixedLengthStreamingMode(body.length);
 		try {
-			URL url = new URL(sb.toString().replaceAll(" ", "%20"));
-			System.out.print(url.toString());
-			BufferedReader in = new BufferedReader(new InputStreamReader(url.openStream()));
-			in.close();
-			loadOnlineLevels();
-			return true;
-		} catch (IOException e) {
-			e.printStackTrace();
+			OutputStream out = connection.getOutputStream();
+			try {
+				out.write(body);
+			} finally {
+				out.close();
+			}
+			if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+				throw new IOException("Server answered " + connection.getResponseCode() + " "
+						+ connection.getResponseMessage());
+			}
+			BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(), "UTF-8"));
+			try {
+				String line = in.readLine();
+				if (line == null || !line.startsWith("uploaded ")) {
+					throw new IOException("Unexpected upload response: " + line);
+				}
+				return Long.parseLong(line.substring("uploaded ".length()).trim());
+			} catch (NumberFormatException e) {
+				throw new IOException("Unexpected upload response.", e);
+			} finally {
+				in.close();
+			}
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	/**
+	 * Starts submitting the replay of a win on an online level to the
+	 * leaderboard in the background. The server re-runs the replay and only
+	 * records the score if it reaches a home planet.
+	 * 
+	 * @param level
+	 *            online level that was beaten
+	 * @param replay
+	 *            replay of the winning attempt
+	 * @param attempts
+	 *            number of attempts taken
+	 * @return true if the submission was started
+	 */
+	public boolean submitReplay(final Level level, final Replay replay, final int attempts) {
+		if (level == null || level.getOnlineId() == 0 || replay == null) {
 			return false;
 		}
+		String username = game.getPlayerStatus().getUsername();
+		final String player = username == null || username.equals("") ? DEFAULT_PLAYER : username;
+		final byte[] body = replay.toBytes();
+
+		try {
+			onlineExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						String time = postReplay(level.getOnlineId(), body, attempts, player);
+						System.out.println("Leaderboard verified " + level.getName() + " in " + time + " s.");
+					} catch (IOException e) {
+						System.out.println("Unable to submit replay: " + e);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// Shut down
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Posts an encoded replay to the leaderboard, blocking until it has been
+	 * verified. Runs on the online thread.
+	 * 
+	 * @param id
+	 *            online id of the level
+	 * @param body
+	 *            encoded replay
+	 * @param attempts
+	 * @param player
+	 * @return verified completion time
+	 * @throws IOException
+	 *             if the server could not be reached or rejected the replay
+	 */
+	private String postReplay(long id, byte[] body, int attempts, String player) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		sb.append(LEADERBOARD);
+		sb.append("&id=");
+		sb.append(id);
+		sb.append("&player=");
+		sb.append(URLEncoder.encode(player, "UTF-8"));
+		sb.append("&attempts=");
+		sb.append(attempts);
+		HttpURLConnection connection = (HttpURLConnection) new URL(sb.toString()).openConnection();
+		connection.setConnectTimeout(CONNECT_TIMEOUT);
+		connection.setReadTimeout(READ_TIMEOUT);
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		connection.setRequestProperty("Content-Type", "application/octet-stream");
+		connection.setFixedLengthStreamingMode(body.length);
+		try {
+			OutputStream out = connection.getOutputStream();
+			try {
+				out.write(body);
+			} finally {
+				out.close();
+			}
+			if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+				throw new IOException("Server answered " + connection.getResponseCode() + " "
+						+ connection.getResponseMessage());
+			}
+			BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(), "UTF-8"));
+			try {
+				String line = in.readLine();
+				if (line == null || !line.startsWith("verified ")) {
+					throw new IOException("Unexpected leaderboard response: " + line);
+				}
+				return line.substring("verified ".length()).trim();
+			} finally {
+				in.close();
+			}
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	/**
+	 * Starts loading the replays of the fastest leaderboard scores of an
+	 * online level in the background, so they can be flown as ghosts.
+	 * 
+	 * @param level
+	 *            online level
+	 * @param limit
+	 *            most replays to load
+	 * @param listener
+	 *            receives the replays on the rendering thread
+	 * @return true if loading was started
+	 */
+	public boolean loadLeaderboardReplays(final Level level, final int limit,
+			final LeaderboardReplaysListener listener) {
+		if (level == null || level.getOnlineId() == 0 || limit <= 0) {
+			return false;
+		}
+
+		try {
+			onlineExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						final ArrayList<Replay> replays = fetchReplays(level.getOnlineId(), limit);
+						Gdx.app.postRunnable(new Runnable() {
+							@Override
+							public void run() {
+								listener.leaderboardReplaysLoaded(level, replays);
+							}
+						});
+					} catch (IOException e) {
+						System.out.println("Unable to load leaderboard replays: " + e);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// Shut down
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Fetches the replays of the fastest leaderboard scores of a level,
+	 * blocking until they are read. Scores whose replay cannot be decoded are
+	 * skipped. Runs on the online thread.
+	 * 
+	 * @param id
+	 *            online id of the level
+	 * @param limit
+	 *            most replays to fetch
+	 * @return replays, fastest first
+	 * @throws IOException
+	 *             if the server could not be reached or timed out
+	 */
+	private ArrayList<Replay> fetchReplays(long id, int limit) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		sb.append(LEADERBOARD);
+		sb.append("&id=");
+		sb.append(id);
+		sb.append("&limit=");
+		sb.append(limit);
+		sb.append("&replays=true");
+		HttpURLConnection connection = (HttpURLConnection) new URL(sb.toString()).openConnection();
+		connection.setConnectTimeout(CONNECT_TIMEOUT);
+		connection.setReadTimeout(READ_TIMEOUT);
+		try {
+			if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+				throw new IOException("Server answered " + connection.getResponseCode() + " "
+						+ connection.getResponseMessage());
+			}
+			BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(), "UTF-8"));
+			try {
+				String line = in.readLine();
+				if (line == null || !line.equals("begin")) {
+					throw new IOException("Unexpected leaderboard response: " + line);
+				}
+				ArrayList<Replay> replays = new ArrayList<Replay>();
+				while ((line = in.readLine()) != null) {
+					// player time attempts boost replay
+					String[] fields = line.split(" ");
+					if (fields.length < 5) {
+						continue;
+					}
+					try {
+						replays.add(Replay.fromBytes(Base64Coder.decode(fields[4])));
+					} catch (IllegalArgumentException e) {
+						System.out.println("Skipping unreadable replay of " + fields[0] + ".");
+					}
+				}
+				return replays;
+			} finally {
+				in.close();
+			}
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	/**
+	 * Gzip compresses level JSON as sent by uploadLevel.
+	 * 
+	 * @param text
+	 *            level JSON
+	 * @return compressed UTF-8 bytes
+	 */
+	public static byte[] compressLevel(String text) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(text.length() / 2);
+		try {
+			GZIPOutputStream out = new GZIPOutputStream(bytes);
+			out.write(text.getBytes("UTF-8"));
+			out.close();
+		} catch (IOException e) {
+			// Not thrown by in-memory streams
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
 	}
 
 	/**
@@ -360,7 +1081,7 @@ public class LevelManager {
 	 * 
 	 * @return levels
 	 */
-	public ArrayList<Level> getOfficialLevels() {
+	public LevelPack.Section getOfficialLevels() {
 		return levels;
 	}
 
@@ -369,7 +1090,7 @@ public class LevelManager {
 	 * 
 	 * @return tutorialLevels
 	 */
-	public ArrayList<Level> getTutorialLevels() {
+	public LevelPack.Section getTutorialLevels() {
 		return tutorialLevels;
 	}
 
@@ -382,6 +1103,16 @@ public class LevelManager {
 		return customLevels;
 	}
 
+	/**
+	 * Returns the journal of the level editor, which keeps the edits of the
+	 * level being edited.
+	 * 
+	 * @return edit journal
+	 */
+	public EditJournal getEditJournal() {
+		return editJournal;
+	}
+
 	/**
 	 * Returns list of user-uploaded online levels.
 	 * 
@@ -390,4 +1121,65 @@ public class LevelManager {
 	public ArrayList<Level> getOnlineLevels() {
 		return onlineLevels;
 	}
+
+	/**
+	 * Cancels any online request and stops the background threads, waiting
+	 * for custom levels and the edit journal to finish saving.
+	 */
+	public void dispose() {
+		cancelOnlineLoad();
+		onlineExecutor.shutdownNow();
+		customLevelStore.dispose();
+		editJournal.dispose();
+	}
+
+	/**
+	 * Receives online levels as they load.
+	 */
+	public interface OnlineLevelsListener {
+		/**
+		 * Called on the rendering thread after a page of online levels was
+		 * added to the online levels list.
+		 * 
+		 * @param start
+		 *            index of the first level added
+		 * @param replaced
+		 *            true if the list was cleared first, so start is 0
+		 */
+		public void onlineLevelsLoaded(int start, boolean replaced);
+
+		/**
+		 * Called on the rendering thread when a request for online levels
+		 * failed, e.g. timed out.
+		 */
+		public void onlineLevelsFailed();
+	}
+
+	/**
+	 * Receives the leaderboard replays of a level.
+	 */
+	public interface LeaderboardReplaysListener {
+		/**
+		 * Called on the rendering thread once the replays of a level have
+		 * loaded.
+		 * 
+		 * @param level
+		 *            level the replays were requested for
+		 * @param replays
+		 *            replays, fastest first
+		 */
+		public void leaderboardReplaysLoaded(Level level, ArrayList<Replay> replays);
+	}
+
+	/**
+	 * How a page of online levels is combined with those already loaded.
+	 */
+	private enum PageMode {
+		/** Page is the first page and replaces all levels */
+		REPLACE,
+		/** Page holds levels newer than all those loaded */
+		PREPEND,
+		/** Page is the next page after those loaded */
+		APPEND
+	}
 }
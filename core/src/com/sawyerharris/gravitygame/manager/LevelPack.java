@@ -0,0 +1,352 @@
+package com.sawyerharris.gravitygame.manager;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Json;
+import com.sawyerharris.gravitygame.game.Level;
+import com.sawyerharris.gravitygame.physics.LevelData;
+
+/**
+ * Bundle of levels in one file with an index in front, so that opening a pack
+ * only reads level names and offsets. Each level is decoded the first time it
+ * is requested and kept after that. Levels are grouped into named sections,
+ * e.g. official and tutorial.
+ * <p>
+ * Format, big endian:
+ *
+ * <pre>
+ * int     magic "GGP" followed by format version
+ * int     length of the rest of the index
+ * varint  number of sections
+ * each section:
+ *   UTF     section name
+ *   varint  number of levels
+ *   each level:
+ *     UTF     level name
+ *     varint  length of the level
+ * levels in the binary level format of LevelData, in index order
+ * </pre>
+ *
+ * @author Sawyer Harris
+ *
+ */
+public class LevelPack {
+	/** "GGP" followed by format version 1 */
+	private static final int MAGIC = 0x47475001;
+	/** Upper bound on sections and levels, to reject corrupt counts */
+	private static final int MAX_COUNT = 1 << 20;
+
+	/** Pack file */
+	private final FileHandle file;
+	/** Sections in file order */
+	private final ArrayList<Section> sections;
+
+	/**
+	 * Constructs a pack, see read.
+	 */
+	private LevelPack(FileHandle file) {
+		this.file = file;
+		this.sections = new ArrayList<Section>();
+	}
+
+	/**
+	 * Opens a pack, reading only its index.
+	 *
+	 * @param file
+	 *            pack file
+	 * @return pack
+	 * @throws IOException
+	 *             if the file cannot be read
+	 * @throws IllegalArgumentException
+	 *             if the file is not a level pack
+	 */
+	public static LevelPack read(FileHandle file) throws IOException, IllegalArgumentException {
+		LevelPack pack = new LevelPack(file);
+		DataInputStream in = new DataInputStream(new BufferedInputStream(file.read()));
+		try {
+			if (in.readInt() != MAGIC) {
+				throw new IllegalArgumentException("Not a level pack, or unsupported version.");
+			}
+			// Levels start right after the index
+			long start = 8 + in.readInt();
+			int sectionCount = readCount(in);
+			long offset = 0;
+			for (int s = 0; s < sectionCount; s++) {
+				String name = in.readUTF();
+				int size = readCount(in);
+				String[] names = new String[size];
+				long[] offsets = new long[size];
+				int[] lengths = new int[size];
+				for (int i = 0; i < size; i++) {
+					names[i] = in.readUTF();
+					offsets[i] = start + offset;
+					lengths[i] = readCount(in);
+					offset += lengths[i];
+				}
+				pack.sections.add(new Section(name, pack, names, offsets, lengths, null, null));
+			}
+		} catch (EOFException e) {
+			throw new IllegalArgumentException("Truncated level pack index.", e);
+		} finally {
+			in.close();
+		}
+		return pack;
+	}
+
+	/**
+	 * Writes a pack.
+	 *
+	 * @param out
+	 * @param sectionNames
+	 *            name of each section
+	 * @param sectionLevels
+	 *            levels of each section
+	 * @throws IOException
+	 */
+	public static void write(OutputStream out, List<String> sectionNames, List<? extends List<Level>> sectionLevels)
+			throws IOException {
+		if (sectionNames.size() != sectionLevels.size()) {
+			throw new IllegalArgumentException("Every section needs a name.");
+		}
+		ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+		DataOutputStream index = new DataOutputStream(indexBytes);
+		ByteArrayOutputStream bodies = new ByteArrayOutputStream();
+		writeVarint(index, sectionNames.size());
+		for (int s = 0; s < sectionNames.size(); s++) {
+			List<Level> levels = sectionLevels.get(s);
+			index.writeUTF(sectionNames.get(s));
+			writeVarint(index, levels.size());
+			for (Level level : levels) {
+				byte[] body = level.toData().toBytes();
+				index.writeUTF(level.getName());
+				writeVarint(index, body.length);
+				bodies.write(body);
+			}
+		}
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(MAGIC);
+		data.writeInt(index.size());
+		indexBytes.writeTo(data);
+		bodies.writeTo(data);
+		data.flush();
+	}
+
+	/**
+	 * Returns the section of the given name.
+	 *
+	 * @param name
+	 * @return section, or null if the pack has none of that name
+	 */
+	public Section getSection(String name) {
+		for (Section section : sections) {
+			if (section.getName().equals(name)) {
+				return section;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Reads the bytes of one level from the pack file.
+	 */
+	private byte[] readLevel(long offset, int length) throws IOException {
+		DataInputStream in = new DataInputStream(file.read());
+		try {
+			long remaining = offset;
+			while (remaining > 0) {
+				long skipped = in.skip(remaining);
+				if (skipped <= 0) {
+					// skip may stop short; reading a byte advances or hits the end
+					in.readByte();
+					skipped = 1;
+				}
+				remaining -= skipped;
+			}
+			byte[] bytes = new byte[length];
+			in.readFully(bytes);
+			return bytes;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Reads a varint count and checks it is in range.
+	 */
+	private static int readCount(DataInputStream in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				if (value < 0 || value > MAX_COUNT) {
+					throw new IllegalArgumentException("Count out of range: " + value);
+				}
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Varint too long.");
+	}
+
+	/**
+	 * Writes an unsigned LEB128 varint, as in Replay.
+	 */
+	private static void writeVarint(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7f) != 0) {
+			out.writeByte((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	/**
+	 * A list of levels in a pack, decoded on first use. Can also be backed by
+	 * separate JSON level files, for when there is no pack.
+	 *
+	 * @author Sawyer Harris
+	 *
+	 */
+	public static class Section {
+		/** Name of the section */
+		private final String name;
+		/** Pack holding the levels, or null if they are JSON files */
+		private final LevelPack pack;
+		/** Level names, or null if they are JSON files */
+		private final String[] names;
+		/** Position and length of each level in the pack file */
+		private final long[] offsets;
+		private final int[] lengths;
+		/** JSON level files and the Json to read them, if there is no pack */
+		private final FileHandle[] files;
+		private final Json json;
+		/** Levels decoded so far, null where not yet requested */
+		private final Level[] levels;
+
+		/**
+		 * Constructs a section.
+		 */
+		private Section(String name, LevelPack pack, String[] names, long[] offsets, int[] lengths,
+				FileHandle[] files, Json json) {
+			this.name = name;
+			this.pack = pack;
+			this.names = names;
+			this.offsets = offsets;
+			this.lengths = lengths;
+			this.files = files;
+			this.json = json;
+			this.levels = new Level[files == null ? names.length : files.length];
+		}
+
+		/**
+		 * Constructs a section backed by JSON level files, each parsed on
+		 * first use.
+		 *
+		 * @param name
+		 *            name of the section
+		 * @param files
+		 *            level files
+		 * @param json
+		 *            Json to read the files with
+		 * @return section
+		 */
+		public static Section fromJson(String name, FileHandle[] files, Json json) {
+			return new Section(name, null, null, null, null, files, json);
+		}
+
+		/**
+		 * Returns the name of the section.
+		 *
+		 * @return name
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Returns the number of levels in the section.
+		 *
+		 * @return size
+		 */
+		public int size() {
+			return levels.length;
+		}
+
+		/**
+		 * Returns the name of a level without decoding it, if the section is
+		 * in a pack.
+		 *
+		 * @param index
+		 * @return level name
+		 * @throws IndexOutOfBoundsException
+		 */
+		public String getLevelName(int index) throws IndexOutOfBoundsException {
+			checkIndex(index);
+			if (names == null) {
+				return get(index).getName();
+			}
+			return names[index];
+		}
+
+		/**
+		 * Returns a level, decoding it if this is the first request for it.
+		 *
+		 * @param index
+		 * @return level
+		 * @throws IndexOutOfBoundsException
+		 * @throws IllegalStateException
+		 *             if the level cannot be read
+		 */
+		public Level get(int index) throws IndexOutOfBoundsException, IllegalStateException {
+			checkIndex(index);
+			if (levels[index] == null) {
+				if (pack == null) {
+					levels[index] = json.fromJson(Level.class, files[index]);
+				} else {
+					try {
+						byte[] bytes = pack.readLevel(offsets[index], lengths[index]);
+						levels[index] = new Level(LevelData.fromBytes(bytes));
+					} catch (IOException e) {
+						throw new IllegalStateException("Could not read level " + index + " of " + name + ".", e);
+					} catch (IllegalArgumentException e) {
+						throw new IllegalStateException("Could not read level " + index + " of " + name + ".", e);
+					}
+				}
+			}
+			return levels[index];
+		}
+
+		/**
+		 * Returns the index of a level returned by get. Levels that have not
+		 * been requested cannot be in the section, so only those are searched.
+		 *
+		 * @param level
+		 * @return index, or -1 if the level is not in this section
+		 */
+		public int indexOf(Level level) {
+			for (int i = 0; i < levels.length; i++) {
+				if (level != null && levels[i] == level) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * Throws if the index is out of range.
+		 */
+		private void checkIndex(int index) throws IndexOutOfBoundsException {
+			if (index < 0 || index >= levels.length) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + levels.length);
+			}
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package com.sawyerharris.gravitygame.manager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.badlogic.gdx.utils.Json;
+import com.badlogic.gdx.utils.SerializationException;
+import com.sawyerharris.gravitygame.game.Level;
+
+/**
+ * Page of online levels in the level catalogue format shared by the level
+ * server and the on-device cache: "etag", "newest" and "cursor" lines, then
+ * "begin" and one "id json" line per level, newest first.
+ *
+ * @author Sawyer Harris
+ *
+ */
+class OnlinePage {
+	/** Levels in the page, newest first */
+	final ArrayList<Level> levels = new ArrayList<Level>();
+	/** Cursor of the next page, or null if there are no more */
+	String cursor;
+	/** Upload date of the newest level on the server, in ms */
+	long newest;
+	/** Validator of the server's response, or null */
+	String etag;
+	/** True if the server reported that nothing changed; levels is empty */
+	boolean notModified;
+
+	/**
+	 * Reads a page. Lines that are not valid levels are skipped.
+	 *
+	 * @param in
+	 *            reader positioned at the start of the page
+	 * @param json
+	 *            Json instance owned by the calling thread
+	 * @return page
+	 * @throws IOException
+	 *             if the page ends before "begin"
+	 * @throws InterruptedIOException
+	 *             if the calling thread was interrupted
+	 */
+	static OnlinePage read(BufferedReader in, Json json) throws IOException {
+		OnlinePage page = new OnlinePage();
+		String line;
+		boolean begin = false;
+		while (!begin) {
+			line = in.readLine();
+			if (line == null) {
+				throw new IOException("Stream ended before begin was detected.");
+			}
+			if (line.startsWith("cursor ")) {
+				page.cursor = line.substring("cursor ".length()).trim();
+			} else if (line.startsWith("newest ")) {
+				page.newest = Long.parseLong(line.substring("newest ".length()).trim());
+			} else if (line.startsWith("etag ")) {
+				page.etag = line.substring("etag ".length());
+			} else if (line.equals("begin")) {
+				begin = true;
+			}
+		}
+
+		while ((line = in.readLine()) != null) {
+			if (Thread.interrupted()) {
+				throw new InterruptedIOException("Online level request cancelled.");
+			}
+			int space = line.indexOf(' ');
+			if (space < 0) {
+				continue;
+			}
+			try {
+				long id = Long.parseLong(line.substring(0, space));
+				Level level = json.fromJson(Level.class, line.substring(space + 1));
+				if (LevelManager.checkLevel(level)) {
+					level.setOnlineId(id);
+					page.levels.add(level);
+				}
+			} catch (NumberFormatException e) {
+				// Invalid id
+				e.printStackTrace(System.out);
+			} catch (SerializationException e) {
+				// Invalid level formatting
+				e.printStackTrace(System.out);
+			}
+		}
+		return page;
+	}
+
+	/**
+	 * Writes levels in the same format, e.g. to the cache.
+	 *
+	 * @param out
+	 * @param json
+	 *            Json instance owned by the calling thread
+	 * @param levels
+	 *            levels, newest first
+	 * @param cursor
+	 *            cursor of the page after the levels, or null
+	 * @param newest
+	 *            upload date of the newest level on the server
+	 * @param etag
+	 *            validator of the server's response, or null
+	 * @throws IOException
+	 */
+	static void write(Writer out, Json json, List<Level> levels, String cursor, long newest, String etag)
+			throws IOException {
+		if (etag != null) {
+			out.write("etag " + etag + "\n");
+		}
+		out.write("newest " + newest + "\n");
+		if (cursor != null) {
+			out.write("cursor " + cursor + "\n");
+		}
+		out.write("begin\n");
+		for (Level level : levels) {
+			out.write(level.getOnlineId() + " " + json.toJson(level) + "\n");
+		}
+	}
+}
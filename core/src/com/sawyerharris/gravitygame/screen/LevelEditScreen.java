@@ -19,11 +19,15 @@ import com.sawyerharris.gravitygame.game.Level;
 import com.sawyerharris.gravitygame.game.Planet;
 import com.sawyerharris.gravitygame.game.Theme;
 import com.sawyerharris.gravitygame.game.Level.PlanetMeta;
+import com.sawyerharris.gravitygame.manager.EditJournal;
+import com.sawyerharris.gravitygame.manager.EditJournal.Edit;
 import com.sawyerharris.gravitygame.screen.LevelPlayScreen.Context;
 
 /**
  * Level editor screen for custom levels. Allows ship and planets to be
- * translated and planets to be scaled.
+ * translated and planets to be scaled. Every edit is recorded in the edit
+ * journal, which allows it to be undone and recovers the session if the app
+ * is killed.
  * 
  * @author Sawyer Harris
  *
@@ -32,6 +36,9 @@ public class LevelEditScreen extends LevelScreen {
 	/** Singleton instance of game */
 	private final GravityGame game = GravityGame.getInstance();
 
+	/** Journal of edits made to the level */
+	private final EditJournal journal = game.getLevels().getEditJournal();
+
 	/** Scalar for how much a mouse scroll translates into a planet zoom */
 	private static final float SCROLL_SCALAR = 10f;
 
@@ -52,15 +59,42 @@ public class LevelEditScreen extends LevelScreen {
 
 		getShip().setTouchable(Touchable.enabled);
 		getShip().addListener(new ActorGestureListener() {
+			/** Ship origin when the gesture started */
+			private Vector2 start;
+
+			@Override
+			public void touchDown(InputEvent event, float x, float y, int pointer, int button) {
+				start = new Vector2(getShip().getInitialPosition());
+				super.touchDown(event, x, y, pointer, button);
+			}
+
 			@Override
 			public void pan(InputEvent event, float x, float y, float deltaX, float deltaY) {
 				getShip().translate(x, y);
 			}
+
+			@Override
+			public void touchUp(InputEvent event, float x, float y, int pointer, int button) {
+				Vector2 end = getShip().getInitialPosition();
+				if (start != null && !start.equals(end)) {
+					record(Edit.moveShip(start, end));
+				}
+				start = null;
+				super.touchUp(event, x, y, pointer, button);
+			}
 		});
 
 		getOverlay().createEditButtons();
 	}
 
+	/**
+	 * Starts journaling edits to the level that has been loaded, with the
+	 * custom level index and name already set.
+	 */
+	public void beginJournal() {
+		journal.begin(customLevelIndex, makeLevel());
+	}
+
 	/**
 	 * Sets the name of the custom level that will be applied if the user saves
 	 * the level.
@@ -99,8 +133,9 @@ public class LevelEditScreen extends LevelScreen {
 		Vector2 position = new Vector2(worldCoords.x, worldCoords.y);
 		final Planet planet = new Planet(position, Planet.MIN_RADIUS, region, false);
 		addPlanetListener(planet);
-		getPlanets().add(planet);
-		getStage().addActor(planet);
+		int index = getPlanets().size();
+		addPlanet(planet);
+		record(new Edit(index, null, stateOf(planet)));
 	}
 
 	/**
@@ -113,19 +148,32 @@ public class LevelEditScreen extends LevelScreen {
 	private void addPlanetListener(final Planet planet) {
 		planet.addListener(new ActorGestureListener() {
 			private boolean inflate;
+			/** State of the planet when the gesture started */
+			private PlanetMeta start;
+
+			@Override
+			public void touchDown(InputEvent event, float x, float y, int pointer, int button) {
+				start = stateOf(planet);
+				super.touchDown(event, x, y, pointer, button);
+			}
 
 			@Override
 			public void pan(InputEvent event, float x, float y, float deltaX, float deltaY) {
 				planet.translate(x, y);
+				syncPlanet(planet);
 			}
 
 			@Override
 			public void tap(InputEvent event, float x, float y, int count, int button) {
+				int index = getPlanets().indexOf(planet);
+				PlanetMeta before = stateOf(planet);
 				if (planet.isHomePlanet()) {
-					planet.remove();
-					getPlanets().remove(planet);
+					removePlanet(planet);
+					record(new Edit(index, before, null));
 				} else {
 					planet.setHomePlanet(true);
+					syncPlanet(planet);
+					record(new Edit(index, before, stateOf(planet)));
 				}
 			}
 
@@ -140,6 +188,7 @@ public class LevelEditScreen extends LevelScreen {
 							this.cancel();
 						}
 						planet.zoom(1);
+						syncPlanet(planet);
 					}
 				}, 0, 0.01f);
 				return true;
@@ -149,24 +198,141 @@ public class LevelEditScreen extends LevelScreen {
 			public void touchUp(InputEvent event, float x, float y, int pointer, int button) {
 				inflate = false;
 				super.touchUp(event, x, y, pointer, button);
+				// Record a drag or inflate as one edit; taps record their own
+				int index = getPlanets().indexOf(planet);
+				if (start != null && index != -1) {
+					PlanetMeta end = stateOf(planet);
+					if (!start.getPosition().equals(end.getPosition()) || start.getRadius() != end.getRadius()) {
+						record(new Edit(index, start, end));
+					}
+				}
+				start = null;
 			}
 		});
 	}
 
+	/**
+	 * Returns the current state of a planet.
+	 * 
+	 * @param planet
+	 * @return position, radius and home status
+	 */
+	private static PlanetMeta stateOf(Planet planet) {
+		return new PlanetMeta(new Vector2(planet.getPosition()), planet.getRadius(), planet.isHomePlanet());
+	}
+
+	/**
+	 * Records an edit in the journal, compacting the journal when it has
+	 * grown.
+	 * 
+	 * @param edit
+	 */
+	private void record(Edit edit) {
+		journal.record(edit);
+		compactJournal();
+	}
+
+	/**
+	 * Compacts the journal into a snapshot of the level if it has grown.
+	 */
+	private void compactJournal() {
+		if (journal.shouldCompact()) {
+			journal.compact(customLevelIndex, makeLevel());
+		}
+	}
+
+	/**
+	 * Undoes the last edit.
+	 */
+	public void undo() {
+		Edit edit = journal.undo();
+		if (edit != null) {
+			applyState(edit.getIndex(), edit.getAfter(), edit.getBefore());
+			compactJournal();
+		}
+	}
+
+	/**
+	 * Redoes the last edit undone.
+	 */
+	public void redo() {
+		Edit edit = journal.redo();
+		if (edit != null) {
+			applyState(edit.getIndex(), edit.getBefore(), edit.getAfter());
+			compactJournal();
+		}
+	}
+
+	/**
+	 * Changes a planet, or the ship, from one state to another. A planet with
+	 * no state before is added and one with no state after is removed.
+	 * 
+	 * @param index
+	 *            index of the planet, or EditJournal.SHIP
+	 * @param from
+	 *            current state, or null
+	 * @param to
+	 *            new state, or null
+	 */
+	private void applyState(int index, PlanetMeta from, PlanetMeta to) {
+		if (index == EditJournal.SHIP) {
+			Vector2 position = new Vector2(to.getPosition());
+			getShip().setPosition(position);
+			getShip().setInitialPosition(position);
+		} else if (from == null) {
+			TextureRegion region = game.getAssets().getPlanet(LevelScreen.DEFAULT_THEME.getPlanet());
+			Planet planet = new Planet(new Vector2(to.getPosition()), to.getRadius(), region, to.isHomePlanet());
+			addPlanetListener(planet);
+			addPlanet(index, planet);
+		} else if (to == null) {
+			removePlanet(getPlanets().get(index));
+		} else {
+			Planet planet = getPlanets().get(index);
+			planet.setPosition(new Vector2(to.getPosition()));
+			planet.setRadius(to.getRadius());
+			planet.setHomePlanet(to.isHomePlanet());
+			syncPlanet(planet);
+		}
+	}
+
 	@Override
 	public void keyDown(int keycode) {
+		boolean control = Gdx.input.isKeyPressed(Keys.CONTROL_LEFT) || Gdx.input.isKeyPressed(Keys.CONTROL_RIGHT);
+		boolean shift = Gdx.input.isKeyPressed(Keys.SHIFT_LEFT) || Gdx.input.isKeyPressed(Keys.SHIFT_RIGHT);
 		if (keycode == Keys.BACK || keycode == Keys.BACKSPACE) {
+			// Leaving discards unsaved edits, so the session is over
+			journal.end();
 			game.setScreenToMenu();
+		} else if (control && (keycode == Keys.Y || (keycode == Keys.Z && shift))) {
+			redo();
+		} else if (control && keycode == Keys.Z) {
+			undo();
 		}
 	}
 
+	@Override
+	public void render(float delta) {
+		super.render(delta);
+		journal.update(delta);
+	}
+
+	@Override
+	public void pause() {
+		journal.flush();
+	}
+
 	@Override
 	public void scrolled(int amount) {
 		Vector2 coords = getStage().screenToStageCoordinates(new Vector2(Gdx.input.getX(), Gdx.input.getY()));
 		Actor actor = getStage().hit(coords.x, coords.y, true);
 		if (actor instanceof Planet) {
 			Planet planet = (Planet) actor;
+			PlanetMeta before = stateOf(planet);
 			planet.zoom(amount * SCROLL_SCALAR);
+			syncPlanet(planet);
+			if (planet.getRadius() != before.getRadius()) {
+				record(new Edit(getPlanets().indexOf(planet), before, stateOf(planet)));
+			}
 		}
 	}
 
@@ -229,7 +395,8 @@ public class LevelEditScreen extends LevelScreen {
 
 	/**
 	 * If level has a home planet and the player has set their username, upload
-	 * the level to the online custom level database.
+	 * the level to the online custom level database. The upload runs in the
+	 * background.
 	 */
 	public void uploadLevel() {
 		if (checkLevel() && !game.getPlayerStatus().getUsername().equals("")) {
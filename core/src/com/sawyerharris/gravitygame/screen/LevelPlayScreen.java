@@ -1,17 +1,31 @@
 package com.sawyerharris.gravitygame.screen;
 
+import java.util.ArrayList;
+
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input.Keys;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer.ShapeType;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
 import com.badlogic.gdx.scenes.scene2d.Touchable;
 import com.badlogic.gdx.scenes.scene2d.utils.ActorGestureListener;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.sawyerharris.gravitygame.game.GhostShips;
 import com.sawyerharris.gravitygame.game.GravityGame;
 import com.sawyerharris.gravitygame.game.Level;
-import com.sawyerharris.gravitygame.game.Planet;
-import com.sawyerharris.gravitygame.game.Ship;
 import com.sawyerharris.gravitygame.game.Theme;
+import com.sawyerharris.gravitygame.manager.LevelManager.LeaderboardReplaysListener;
+import com.sawyerharris.gravitygame.physics.FixedTimestep;
+import com.sawyerharris.gravitygame.physics.FlightInput;
+import com.sawyerharris.gravitygame.physics.Replay;
+import com.sawyerharris.gravitygame.physics.ReplayRecorder;
+import com.sawyerharris.gravitygame.physics.ShipBatch;
+import com.sawyerharris.gravitygame.physics.Simulation;
+import com.sawyerharris.gravitygame.physics.TrajectoryPreview;
 import com.sawyerharris.gravitygame.ui.LevelHeader;
 
 /**
@@ -28,6 +42,17 @@ public class LevelPlayScreen extends LevelScreen {
 	private static final float VEL_SCALAR = 0.1f;
 	private static final float ZOOM_SCALAR = 0.0005f;
 
+	/** Maximum physics ticks per frame; time beyond this is dropped */
+	private static final int MAX_TICKS_PER_FRAME = 5;
+	/** Weight of the newest drag sample in the aim velocity estimate */
+	private static final float AIM_SMOOTHING = 0.5f;
+	/** Maximum number of ghosts, counting earlier attempts and leaderboard runs */
+	private static final int MAX_GHOSTS = 128;
+	/** Maximum number of leaderboard runs shown as ghosts on online levels */
+	private static final int MAX_LEADERBOARD_GHOSTS = 16;
+	/** Color of the aiming preview path */
+	private static final Color PREVIEW_COLOR = new Color(1, 1, 1, 0.5f);
+
 	/** State of gameplay */
 	private GameplayState state;
 
@@ -35,9 +60,40 @@ public class LevelPlayScreen extends LevelScreen {
 	private Vector2 cameraAimingPosition;
 	private float cameraAimingZoom;
 
+	/** Converts frame time into fixed physics ticks */
+	private FixedTimestep timestep;
+	/** Number of integration substeps per tick from the next attempt on */
+	private int substeps;
+
+	/** Predicts the path of the shot being aimed */
+	private TrajectoryPreview preview;
+	/** Estimated drag velocity of the shot being aimed */
+	private Vector2 aimVelocity;
+	/** Time of the previous drag sample in nanoseconds */
+	private long lastDragTime;
+	/** Shape renderer used to draw the preview */
+	private ShapeRenderer renderer;
+
 	/** Number of attempts player has taken to beat the level */
 	private int numAttempts;
 
+	/** Input of the earlier attempts at this level, oldest first */
+	private ArrayList<FlightInput> attempts;
+	/** Records the current attempt */
+	private ReplayRecorder recorder;
+	/** Replay of the most recent finished attempt */
+	private Replay lastReplay;
+	/** Replays of the fastest leaderboard runs of this level, fastest first */
+	private ArrayList<Replay> leaderboardRuns;
+	/** Receives the leaderboard runs of online levels */
+	private LeaderboardReplaysListener leaderboardListener;
+	/** Ghosts replaying earlier attempts alongside the current one */
+	private ShipBatch ghosts;
+	/** Whether ghosts can be flown with the level's integrator */
+	private boolean ghostsShown;
+	/** Actor drawing the ghosts */
+	private GhostShips ghostActor;
+
 	/** Level header, used by overlay */
 	private LevelHeader header;
 
@@ -61,14 +117,46 @@ public class LevelPlayScreen extends LevelScreen {
 
 		numAttempts = 0;
 
+		attempts = new ArrayList<FlightInput>();
+		leaderboardRuns = new ArrayList<Replay>();
+		leaderboardListener = new LeaderboardReplaysListener() {
+			@Override
+			public void leaderboardReplaysLoaded(Level level, ArrayList<Replay> replays) {
+				addLeaderboardRuns(level, replays);
+			}
+		};
+		recorder = new ReplayRecorder();
+		ghosts = new ShipBatch(WORLD_WIDTH, WORLD_HEIGHT);
+		ghostActor = new GhostShips(ghosts);
+
+		timestep = new FixedTimestep(FixedTimestep.TICK, MAX_TICKS_PER_FRAME);
+		substeps = timestep.getSubsteps();
+
+		preview = new TrajectoryPreview(WORLD_WIDTH, WORLD_HEIGHT);
+		aimVelocity = new Vector2();
+		this.renderer = renderer;
+
 		header = new LevelHeader(batch, renderer);
 
 		getShip().setTouchable(Touchable.enabled);
 		getShip().addListener(new ActorGestureListener() {
+			@Override
+			public void touchDown(InputEvent event, float x, float y, int pointer, int button) {
+				aimVelocity.setZero();
+				lastDragTime = TimeUtils.nanoTime();
+			}
+
+			@Override
+			public void pan(InputEvent event, float x, float y, float deltaX, float deltaY) {
+				if (state == GameplayState.AIMING) {
+					aimPreview(deltaX, deltaY);
+				}
+			}
+
 			@Override
 			public void fling(InputEvent event, float velX, float velY, int button) {
 				if (state == GameplayState.AIMING) {
-					getShip().setVelocity(new Vector2(velX, velY).scl(VEL_SCALAR));
+					getShip().launch(new Vector2(velX, velY).scl(VEL_SCALAR));
 					fire();
 				}
 			}
@@ -77,22 +165,6 @@ public class LevelPlayScreen extends LevelScreen {
 		aim();
 	}
 
-	/**
-	 * Checks if ship has collided with a planet.
-	 */
-	private void checkCollisions() {
-		// Check for planet collisions
-		for (Planet planet : getPlanets()) {
-			if (getShip().getPosition().dst(planet.getPosition()) < planet.getRadius() + Ship.RADIUS) {
-				if (planet.isHomePlanet()) {
-					victory();
-				} else {
-					aim();
-				}
-			}
-		}
-	}
-
 	/**
 	 * Reset camera position and zoom to defaults.
 	 */
@@ -108,6 +180,23 @@ public class LevelPlayScreen extends LevelScreen {
 		numAttempts = 0;
 		resetCamera();
 
+		attempts.clear();
+		lastReplay = null;
+		ghosts.clear();
+		ghosts.setOrigin(getSimulation().getOriginX(), getSimulation().getOriginY());
+		leaderboardRuns.clear();
+		// Ghosts are only flown where they follow the paths the ship flew
+		ghostsShown = ShipBatch.supports(level.getIntegratorType());
+		if (ghostsShown) {
+			ghosts.setIntegratorType(level.getIntegratorType());
+			getStage().addActor(ghostActor);
+			// Other players' best runs on online levels are flown as ghosts too
+			game.getLevels().loadLeaderboardReplays(level, MAX_LEADERBOARD_GHOSTS, leaderboardListener);
+		}
+
+		preview.setIntegratorType(level.getIntegratorType());
+		getGravityField().updateCache();
+
 		header.setText(level.getName(), level.getMessage());
 		Theme theme = game.getThemes().getTheme(level.getTheme());
 		header.setColor(theme.getColor());
@@ -187,6 +276,8 @@ public class LevelPlayScreen extends LevelScreen {
 	 */
 	public void aim() {
 		getShip().reset();
+		preview.clear();
+		ghosts.clear();
 		getCamera().setMoveTarget(cameraAimingPosition);
 		getCamera().setZoomTarget(cameraAimingZoom);
 		state = GameplayState.AIMING;
@@ -197,10 +288,68 @@ public class LevelPlayScreen extends LevelScreen {
 	 */
 	public void fire() {
 		state = GameplayState.FIRING;
+		preview.clear();
+		timestep.reset();
 		numAttempts++;
+		if (substeps != timestep.getSubsteps()) {
+			// Ghosts recorded with another substep count would not follow
+			// their paths
+			timestep.setSubsteps(substeps);
+			attempts.clear();
+		}
+
+		// Replay leaderboard runs and earlier attempts as ghosts, then start
+		// recording this one
+		ghosts.clear();
+		if (ghostsShown) {
+			for (Replay run : leaderboardRuns) {
+				if (run.getSubsteps() == substeps) {
+					ghosts.add(run.getInput());
+				}
+			}
+			for (FlightInput attempt : attempts) {
+				ghosts.add(attempt);
+			}
+		}
+		ghostActor.setStyle(game.getPlayerStatus().getShipStyle());
+		ghostActor.interpolate(0);
+		recorder.start(getSimulation(), getLevel().getIntegratorType(), timestep.getStep(), timestep.getSubsteps());
+		while (!attempts.isEmpty() && attempts.size() >= MAX_GHOSTS - leaderboardRuns.size()) {
+			attempts.remove(0);
+		}
+		attempts.add(recorder.getInput());
 		getShip().setTouchable(Touchable.disabled);
 	}
 
+	/**
+	 * Keeps the leaderboard runs of a level to be flown as ghosts from the
+	 * next attempt on. Runs recorded on a different version of the level, or
+	 * with a different integrator or step, would not fly the same and are
+	 * dropped, as are all runs if another level was loaded meanwhile. Runs
+	 * with another substep count are only flown while that count is used.
+	 * 
+	 * @param level
+	 *            level the runs were loaded for
+	 * @param replays
+	 *            replays of the runs, fastest first
+	 */
+	private void addLeaderboardRuns(Level level, ArrayList<Replay> replays) {
+		if (level != getLevel()) {
+			return;
+		}
+		Simulation simulation = getSimulation();
+		long hash = Replay.hashLevel(getGravityField(), simulation.getOriginX(), simulation.getOriginY());
+		for (Replay replay : replays) {
+			if (leaderboardRuns.size() == MAX_LEADERBOARD_GHOSTS) {
+				break;
+			}
+			if (replay.getLevelHash() == hash && replay.getIntegrator() == level.getIntegratorType()
+					&& replay.getStep() == FixedTimestep.TICK) {
+				leaderboardRuns.add(replay);
+			}
+		}
+	}
+
 	/**
 	 * Called when a level is beaten.
 	 */
@@ -209,6 +358,8 @@ public class LevelPlayScreen extends LevelScreen {
 		header.hide();
 		switch (context) {
 		case CUSTOM:
+			// Wins on online levels go on their leaderboard
+			game.getLevels().submitReplay(getLevel(), lastReplay, numAttempts);
 			game.setScreenToMenu();
 			break;
 		case PLAYING:
@@ -227,21 +378,122 @@ public class LevelPlayScreen extends LevelScreen {
 	@Override
 	public void render(float delta) {
 		if (state == GameplayState.FIRING) {
-			try {
-				getShip().physicsUpdate(delta, getPlanets());
-			} catch (IllegalArgumentException e) {
-				// Ship position out of bounds
-				aim();
-			}
-
-			checkCollisions();
-
+			updatePhysics(delta);
 			getCamera().setMoveTarget(getShip().getPosition());
 		}
 		super.render(delta);
+		if (state == GameplayState.AIMING) {
+			drawPreview();
+		}
 		header.draw();
 	}
 
+	/**
+	 * Updates the aim velocity estimate from a drag of the ship and requests a
+	 * new preview for it. The estimate follows the fling velocity the drag
+	 * would produce if released now.
+	 * 
+	 * @param deltaX
+	 * @param deltaY
+	 *            drag since the previous sample
+	 */
+	private void aimPreview(float deltaX, float deltaY) {
+		long now = TimeUtils.nanoTime();
+		float elapsed = (now - lastDragTime) / 1000000000f;
+		lastDragTime = now;
+		if (elapsed <= 0) {
+			return;
+		}
+		aimVelocity.scl(1 - AIM_SMOOTHING).add(deltaX / elapsed * AIM_SMOOTHING, deltaY / elapsed * AIM_SMOOTHING);
+		preview.request(getSimulation(), aimVelocity.x * VEL_SCALAR, aimVelocity.y * VEL_SCALAR);
+	}
+
+	/**
+	 * Draws the newest finished preview path.
+	 */
+	private void drawPreview() {
+		preview.poll();
+		int count = preview.getPointCount();
+		if (count < 2) {
+			return;
+		}
+		float[] points = preview.getPoints();
+		Gdx.gl.glEnable(GL20.GL_BLEND);
+		Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+		renderer.setProjectionMatrix(getCamera().combined);
+		renderer.begin(ShapeType.Line);
+		renderer.setColor(PREVIEW_COLOR);
+		for (int i = 1; i < count; i++) {
+			renderer.line(points[2 * i - 2], points[2 * i - 1], points[2 * i], points[2 * i + 1]);
+		}
+		renderer.end();
+	}
+
+	@Override
+	public void dispose() {
+		preview.dispose();
+		super.dispose();
+	}
+
+	/**
+	 * Runs the fixed number of physics ticks owed for this frame, each as the
+	 * configured number of substeps, handling collisions after every substep,
+	 * then interpolates the ship actor between its positions at the start and
+	 * end of the last tick. Collisions are swept along each substep, so the
+	 * ship is shown at its point of impact when it reaches home. Boost changes
+	 * are recorded into the current attempt's replay, and ghosts are stepped
+	 * in lockstep with the ship.
+	 * 
+	 * @param delta
+	 *            frame time in seconds
+	 */
+	private void updatePhysics(float delta) {
+		Simulation simulation = getSimulation();
+		int ticks = timestep.advance(delta);
+		int substeps = timestep.getSubsteps();
+		float dt = timestep.getSubstep();
+		for (int i = 0; i < ticks; i++) {
+			simulation.startTick();
+			ghosts.startTick();
+			for (int j = 0; j < substeps; j++) {
+				recorder.record();
+				ghosts.step(getGravityField(), dt);
+				switch (simulation.step(dt)) {
+				case HOME:
+					lastReplay = recorder.finish();
+					getShip().interpolate(1);
+					victory();
+					return;
+				case PLANET:
+				case OUT_OF_BOUNDS:
+					lastReplay = recorder.finish();
+					aim();
+					return;
+				default:
+					break;
+				}
+			}
+		}
+		getShip().interpolate(timestep.getAlpha());
+		ghostActor.interpolate(timestep.getAlpha());
+	}
+
+	/**
+	 * Sets the number of integration substeps run per physics tick, from the
+	 * next attempt on. More substeps improve accuracy near planets at a
+	 * proportional cost. Replays record the substep count, so leaderboard
+	 * verification runs them the same way.
+	 * 
+	 * @param substeps
+	 *            substeps per tick, from 1 to FixedTimestep.MAX_SUBSTEPS
+	 */
+	public void setSubsteps(int substeps) {
+		if (substeps < 1 || substeps > FixedTimestep.MAX_SUBSTEPS) {
+			throw new IllegalArgumentException("Substeps must be from 1 to " + FixedTimestep.MAX_SUBSTEPS + ".");
+		}
+		this.substeps = substeps;
+	}
+
 	/**
 	 * State of game while playing.
 	 * 
@@ -12,6 +12,9 @@ import com.sawyerharris.gravitygame.game.Level.PlanetMeta;
 import com.sawyerharris.gravitygame.game.Planet;
 import com.sawyerharris.gravitygame.game.Ship;
 import com.sawyerharris.gravitygame.game.Theme;
+import com.sawyerharris.gravitygame.physics.GravityField;
+import com.sawyerharris.gravitygame.physics.IntegratorType;
+import com.sawyerharris.gravitygame.physics.Simulation;
 import com.sawyerharris.gravitygame.ui.Overlay;
 
 /**
@@ -36,6 +39,10 @@ public abstract class LevelScreen extends GameScreen {
 
 	/** Planets, ship, overlay and level */
 	private ArrayList<Planet> planets;
+	/** Headless simulation the ship and planets are views of */
+	private Simulation simulation;
+	/** Packed copy of the planets used by physics and collision code */
+	private GravityField gravityField;
 	private Ship ship;
 	private Overlay overlay;
 	private Level level;
@@ -53,9 +60,11 @@ public abstract class LevelScreen extends GameScreen {
 		overlay = new Overlay(batch, renderer);
 		getMux().addProcessor(0, overlay.getStage());
 
-		ship = new Ship();
+		simulation = new Simulation(WORLD_WIDTH, WORLD_HEIGHT);
+		ship = new Ship(simulation);
 
 		planets = new ArrayList<Planet>();
+		gravityField = simulation.getField();
 	}
 
 	/**
@@ -88,41 +97,126 @@ public abstract class LevelScreen extends GameScreen {
 		Vector2 shipOrigin;
 		ArrayList<PlanetMeta> planetList;
 		Theme theme;
+		IntegratorType integratorType;
 
 		if (level == null) {
 			// No level provided, so a new custom level
 			shipOrigin = new Vector2(DEFAULT_SHIP_ORIGIN);
 			planetList = new ArrayList<PlanetMeta>();
 			theme = DEFAULT_THEME;
+			integratorType = IntegratorType.RK4;
 		} else {
 			// Load from provided level
 			shipOrigin = level.getShipOrigin();
 			planetList = level.getPlanets();
 			theme = game.getThemes().getTheme(level.getTheme());
+			integratorType = level.getIntegratorType();
 		}
 
 		// Load ship
 		ship.setPosition(shipOrigin);
 		ship.setInitialPosition(shipOrigin);
+		simulation.setIntegrator(integratorType.create());
 		ship.reset();
 		getStage().addActor(ship);
 
 		// Load planets
 		planets.clear();
-		for (PlanetMeta meta : planetList) {
-			Vector2 position = meta.getPosition();
-			int radius = meta.getRadius();
-			boolean home = meta.isHomePlanet();
-			TextureRegion region = game.getAssets().getPlanet(game.getThemes().getTheme(level.getTheme()).getPlanet());
-			Planet planet = new Planet(position, radius, region, home);
-			planets.add(planet);
-			getStage().addActor(planet);
+		TextureRegion region = game.getAssets().getPlanet(theme.getPlanet());
+		GravityField levelField = level == null ? null : level.getField();
+		if (levelField != null) {
+			// Decoded levels carry their field, so its planets are copied as
+			// is, keeping the simulation's cache, and only the actors are made
+			gravityField.copyPlanetsFrom(levelField);
+			for (int i = 0; i < levelField.getSize(); i++) {
+				Vector2 position = new Vector2(levelField.getX(i), levelField.getY(i));
+				Planet planet = new Planet(position, (int) levelField.getRadius(i), region, levelField.isHome(i));
+				planets.add(planet);
+				getStage().addActor(planet);
+			}
+		} else {
+			gravityField.clear();
+			for (PlanetMeta meta : planetList) {
+				Vector2 position = meta.getPosition();
+				int radius = meta.getRadius();
+				boolean home = meta.isHomePlanet();
+				Planet planet = new Planet(position, radius, region, home);
+				addPlanet(planet);
+			}
 		}
 
 		// Set background
 		getBackground().setTheme(theme);
 	}
 
+	/**
+	 * Adds a planet actor to the stage, the planet list and the gravity field.
+	 * 
+	 * @param planet
+	 *            planet to add
+	 */
+	public void addPlanet(Planet planet) {
+		planets.add(planet);
+		gravityField.add(planet.getX(), planet.getY(), planet.getRadius(), planet.getMass(), planet.isHomePlanet());
+		getStage().addActor(planet);
+	}
+
+	/**
+	 * Inserts a planet actor at the given index of the planet list, also
+	 * adding it to the stage and the gravity field.
+	 * 
+	 * @param index
+	 *            index in the planet list
+	 * @param planet
+	 *            planet to add
+	 * @throws IndexOutOfBoundsException
+	 *             if index < 0 || index > number of planets
+	 */
+	public void addPlanet(int index, Planet planet) throws IndexOutOfBoundsException {
+		if (index == planets.size()) {
+			addPlanet(planet);
+			return;
+		}
+		planets.add(index, planet);
+		// The field has no insert, so rebuild it in list order
+		gravityField.clear();
+		for (Planet p : planets) {
+			gravityField.add(p.getX(), p.getY(), p.getRadius(), p.getMass(), p.isHomePlanet());
+		}
+		getStage().addActor(planet);
+	}
+
+	/**
+	 * Removes a planet actor from the stage, the planet list and the gravity
+	 * field.
+	 * 
+	 * @param planet
+	 *            planet to remove
+	 */
+	public void removePlanet(Planet planet) {
+		int index = planets.indexOf(planet);
+		if (index == -1) {
+			return;
+		}
+		planets.remove(index);
+		gravityField.remove(index);
+		planet.remove();
+	}
+
+	/**
+	 * Copies the current position, radius and home status of a planet actor
+	 * into the gravity field. Must be called whenever a planet is modified.
+	 * 
+	 * @param planet
+	 *            planet that was modified
+	 */
+	public void syncPlanet(Planet planet) {
+		int index = planets.indexOf(planet);
+		if (index != -1) {
+			planet.writeTo(gravityField, index);
+		}
+	}
+
 	/**
 	 * Returns the screen's current level.
 	 * 
@@ -141,6 +235,24 @@ public abstract class LevelScreen extends GameScreen {
 		return planets;
 	}
 
+	/**
+	 * Returns the packed gravity field of the planets.
+	 * 
+	 * @return gravityField
+	 */
+	public GravityField getGravityField() {
+		return gravityField;
+	}
+
+	/**
+	 * Returns the headless simulation of the level.
+	 * 
+	 * @return simulation
+	 */
+	public Simulation getSimulation() {
+		return simulation;
+	}
+
 	/**
 	 * Returns ship actor.
 	 * 
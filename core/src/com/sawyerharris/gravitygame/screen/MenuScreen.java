@@ -14,6 +14,8 @@ import com.sawyerharris.gravitygame.game.PlayerStatus;
 import com.sawyerharris.gravitygame.game.Theme;
 import com.sawyerharris.gravitygame.manager.AssetManager;
 import com.sawyerharris.gravitygame.manager.LevelManager;
+import com.sawyerharris.gravitygame.manager.LevelManager.OnlineLevelsListener;
+import com.sawyerharris.gravitygame.manager.LevelPack;
 import com.sawyerharris.gravitygame.screen.LevelPlayScreen.Context;
 import com.sawyerharris.gravitygame.ui.ScrollPanel;
 import com.sawyerharris.gravitygame.ui.TextInputAdapter;
@@ -48,6 +50,9 @@ public class MenuScreen extends GameScreen {
 	/** Current node representing location in menu */
 	private Node currentNode;
 
+	/** Scroll panel listing online levels */
+	private ScrollPanel onlineLevelPanel;
+
 	/** Menu nodes */
 	private static final Node ROOT = new Node(new Vector2(0, 0), null);
 
@@ -74,6 +79,23 @@ public class MenuScreen extends GameScreen {
 		moveToNode(ROOT);
 
 		createMenuItems();
+
+		// Online levels arrive in the background after the menu is shown
+		levels.setOnlineLevelsListener(new OnlineLevelsListener() {
+			@Override
+			public void onlineLevelsLoaded(int start, boolean replaced) {
+				if (replaced) {
+					onlineLevelPanel.clearItems();
+				}
+				addOnlineLevelItems(onlineLevelPanel, start);
+			}
+
+			@Override
+			public void onlineLevelsFailed() {
+				// Ask again on the next scroll
+				onlineLevelPanel.resetNearEnd();
+			}
+		});
 	}
 
 	/**
@@ -330,10 +352,10 @@ public class MenuScreen extends GameScreen {
 		};
 
 		// Load official levels into scroll panel
-		ArrayList<Level> levelList = levels.getOfficialLevels();
+		LevelPack.Section levelList = levels.getOfficialLevels();
 		for (int i = 0; i < levelList.size(); i++) {
 			if (i <= status.getHighestLevel()) {
-				officialLevelPanel.addTextItem(levelList.get(i).getName(), 40);
+				officialLevelPanel.addTextItem(levelList.getLevelName(i), 40);
 			} else {
 				officialLevelPanel.addTextItem("?", 40);
 			}
@@ -352,20 +374,22 @@ public class MenuScreen extends GameScreen {
 
 		// ONLINE_LEVELS
 
-		ScrollPanel onlineLevelPanel = new ScrollPanel(ONLINE_LEVELS.position.x - 300, ONLINE_LEVELS.position.y - 600,
+		onlineLevelPanel = new ScrollPanel(ONLINE_LEVELS.position.x - 300, ONLINE_LEVELS.position.y - 600,
 				600, 1000, THEME.getColor(), 200) {
 			@Override
 			public void click(final int index) {
 				game.setScreenToPlay(levels.getOnlineLevels().get(index), Context.CUSTOM);
 			}
+
+			@Override
+			public boolean nearEnd() {
+				// Fetch the next page from the server, added when it arrives
+				return levels.loadMoreOnlineLevels();
+			}
 		};
 
 		// Load online levels into scroll panel
-		ArrayList<Level> onlineLevelList = levels.getOnlineLevels();
-		for (int i = 0; i < onlineLevelList.size(); i++) {
-			onlineLevelPanel
-					.addTextItem(onlineLevelList.get(i).getName() + "\nby " + onlineLevelList.get(i).getAuthor(), 40);
-		}
+		addOnlineLevelItems(onlineLevelPanel, 0);
 
 		TextItem onlineLevelsBackButton = new TextItem(ONLINE_LEVELS.position.x - 150, ONLINE_LEVELS.position.y + 500,
 				300, 150, THEME.getColor(), Touchable.enabled, "Back", FONT_SIZE) {
@@ -407,6 +431,21 @@ public class MenuScreen extends GameScreen {
 
 	}
 
+	/**
+	 * Adds online levels from the given index onwards to a scroll panel.
+	 * 
+	 * @param panel
+	 *            online levels panel
+	 * @param start
+	 *            index of first level to add
+	 */
+	private void addOnlineLevelItems(ScrollPanel panel, int start) {
+		ArrayList<Level> onlineLevelList = levels.getOnlineLevels();
+		for (int i = start; i < onlineLevelList.size(); i++) {
+			panel.addTextItem(onlineLevelList.get(i).getName() + "\nby " + onlineLevelList.get(i).getAuthor(), 40);
+		}
+	}
+
 	/**
 	 * Moves the camera to the given node.
 	 * 
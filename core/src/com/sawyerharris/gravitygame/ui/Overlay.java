@@ -49,6 +49,8 @@ public class Overlay {
 	private TextItem testButton;
 	private TextItem saveButton;
 	private TextItem uploadButton;
+	private TextItem undoButton;
+	private TextItem redoButton;
 
 	/** Font size and color for editor buttons */
 	private int editFontSize = 32;
@@ -171,9 +173,35 @@ public class Overlay {
 			}
 		};
 
+		undoButton = new TextItem(0, screenHeight - buttonHeight / 2, screenWidth / 4, buttonHeight / 2, editButtonColor,
+				Touchable.enabled, "Undo", editFontSize) {
+			@Override
+			public void click() {
+				Screen screen = game.getScreen();
+				if (screen instanceof LevelEditScreen) {
+					LevelEditScreen les = (LevelEditScreen) screen;
+					les.undo();
+				}
+			}
+		};
+
+		redoButton = new TextItem(3 * screenWidth / 4, screenHeight - buttonHeight / 2, screenWidth / 4,
+				buttonHeight / 2, editButtonColor, Touchable.enabled, "Redo", editFontSize) {
+			@Override
+			public void click() {
+				Screen screen = game.getScreen();
+				if (screen instanceof LevelEditScreen) {
+					LevelEditScreen les = (LevelEditScreen) screen;
+					les.redo();
+				}
+			}
+		};
+
 		stage.addActor(testButton);
 		stage.addActor(saveButton);
 		stage.addActor(uploadButton);
+		stage.addActor(undoButton);
+		stage.addActor(redoButton);
 	}
 
 	/**
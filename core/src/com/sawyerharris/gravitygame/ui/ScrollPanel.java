@@ -18,6 +18,8 @@ import com.badlogic.gdx.scenes.scene2d.utils.ActorGestureListener;
 public class ScrollPanel extends BorderedItem {
 	/** Coefficient of drag when scrolling */
 	private static final float DRAG = 0.95f;
+	/** Number of items left below the visible area that counts as near end */
+	private static final int NEAR_END_ITEMS = 2;
 
 	/** Color of scroll panel */
 	private Color color;
@@ -31,6 +33,8 @@ public class ScrollPanel extends BorderedItem {
 
 	/** Number of items in panel */
 	private int size;
+	/** Number of items in panel when nearEnd last requested more, or -1 */
+	private int nearEndSize;
 
 	/**
 	 * Constructs a scroll panel with the given parameters.
@@ -54,6 +58,7 @@ public class ScrollPanel extends BorderedItem {
 		scrollY = 0;
 		velocity = 0;
 		size = 0;
+		nearEndSize = -1;
 
 		setTouchable(Touchable.enabled);
 		addListener(new ActorGestureListener() {
@@ -80,6 +85,7 @@ public class ScrollPanel extends BorderedItem {
 	private void scroll(float amount) {
 		// If the scroll panel is not full, do not scroll
 		if (iHeight * size < getHeight()) {
+			checkNearEnd();
 			return;
 		}
 		scrollY += amount;
@@ -95,6 +101,43 @@ public class ScrollPanel extends BorderedItem {
 		for (Actor actor : getChildren()) {
 			actor.moveBy(0, amount);
 		}
+		checkNearEnd();
+	}
+
+	/**
+	 * Calls nearEnd if the panel is scrolled to within a few items of its
+	 * end. Once nearEnd has requested more items it is not called again until
+	 * more items are added or resetNearEnd is called.
+	 */
+	private void checkNearEnd() {
+		if (size == nearEndSize) {
+			return;
+		}
+		float floor = size * iHeight + 2 * BorderedItem.BORDER_WIDTH;
+		if (floor - (scrollY + getHeight()) < NEAR_END_ITEMS * iHeight) {
+			if (nearEnd()) {
+				nearEndSize = size;
+			}
+		}
+	}
+
+	/**
+	 * Called when the panel is scrolled near its last item, e.g. to load more
+	 * items. Implemented in anonymous class override.
+	 * 
+	 * @return true if more items were requested, false to be asked again on
+	 *         the next scroll
+	 */
+	public boolean nearEnd() {
+		return false;
+	}
+
+	/**
+	 * Lets nearEnd be called again without more items being added, e.g. after
+	 * a request for them failed.
+	 */
+	public void resetNearEnd() {
+		nearEndSize = -1;
 	}
 
 	/**
@@ -107,6 +150,17 @@ public class ScrollPanel extends BorderedItem {
 	public void click(int index) {
 	}
 
+	/**
+	 * Removes all items and scrolls back to the top.
+	 */
+	public void clearItems() {
+		clearChildren();
+		size = 0;
+		nearEndSize = -1;
+		scrollY = 0;
+		velocity = 0;
+	}
+
 	/**
 	 * Adds a TextItem to the scroll panel.
 	 * 
@@ -117,7 +171,7 @@ public class ScrollPanel extends BorderedItem {
 	 */
 	public void addTextItem(String text, int fontSize) {
 		final int index = size;
-		TextItem item = new TextItem(BORDER_WIDTH, getHeight() - ((index + 1) * iHeight) - BORDER_WIDTH,
+		TextItem item = new TextItem(BORDER_WIDTH, getHeight() - ((index + 1) * iHeight) - BORDER_WIDTH + scrollY,
 				getWidth() - 2 * BORDER_WIDTH, iHeight, color, Touchable.enabled, text, fontSize) {
 			@Override
 			public void click() {
@@ -136,7 +190,7 @@ public class ScrollPanel extends BorderedItem {
 	 */
 	public void addTextureItem(TextureRegion region) {
 		final int index = size;
-		TextureItem item = new TextureItem(BORDER_WIDTH, getHeight() - ((index + 1) * iHeight) - BORDER_WIDTH,
+		TextureItem item = new TextureItem(BORDER_WIDTH, getHeight() - ((index + 1) * iHeight) - BORDER_WIDTH + scrollY,
 				getWidth() - 2 * BORDER_WIDTH, iHeight, color, Touchable.enabled, region) {
 			@Override
 			public void click() {
@@ -0,0 +1,151 @@
+package com.sawyerharris.gravitygame.database;
+
+import com.google.common.io.BaseEncoding;
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.ObjectifyService;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Leaderboard of verified completion times per level.
+ *
+ * POST /leaderboard?group=&id=&player=&attempts= with an encoded replay as the
+ * body re-simulates the replay and stores the score if it reaches home.
+ * GET /leaderboard?group=&id=[&limit=][&replays=true] lists the fastest scores,
+ * one "player time attempts boost" line each after a "begin" line. With
+ * replays each line also ends with the score's replay in base 64, so the game
+ * can fly the best runs as ghosts.
+ */
+public class LeaderboardServlet extends HttpServlet {
+	private static final long serialVersionUID = 1L;
+
+	private static final int VERIFY_WORKERS = 4;
+	private static final int CACHED_LEVELS = 256;
+	private static final long VERIFY_TIMEOUT_MILLIS = 5000;
+	// Replays are a few dozen bytes, anything much larger is not a replay
+	private static final int MAX_REPLAY_BYTES = 4096;
+	private static final int DEFAULT_LIMIT = 20;
+	private static final int MAX_LIMIT = 100;
+
+	private ReplayVerifier verifier;
+
+	@Override
+	public void init() throws ServletException {
+		ObjectifyService.register(LevelGroup.class);
+		ObjectifyService.register(Level.class);
+		ObjectifyService.register(Score.class);
+		verifier = new ReplayVerifier(VERIFY_WORKERS, CACHED_LEVELS, VERIFY_TIMEOUT_MILLIS);
+	}
+
+	@Override
+	protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		response.setContentType("text/plain");
+		String player = request.getParameter("player");
+		Key<Level> level;
+		int attempts;
+		byte[] replay;
+		try {
+			level = levelKey(request);
+			attempts = Integer.parseInt(request.getParameter("attempts"));
+			replay = readBody(request.getInputStream());
+		} catch (IllegalArgumentException e) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+			return;
+		}
+		if (player == null || player.equals("") || attempts < 1) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Missing player or attempts.");
+			return;
+		}
+
+		Score score;
+		try {
+			score = verifier.verify(level, replay, player, attempts);
+		} catch (IllegalArgumentException e) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+			return;
+		} catch (RejectedExecutionException e) {
+			response.setHeader("Retry-After", "1");
+			response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, e.getMessage());
+			return;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+			return;
+		}
+		if (score == null) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Replay does not reach a home planet.");
+			return;
+		}
+
+		ObjectifyService.ofy().save().entity(score).now();
+		response.getWriter().println("verified " + score.time);
+	}
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		response.setContentType("text/plain");
+		Key<Level> level;
+		int limit = DEFAULT_LIMIT;
+		boolean replays = Boolean.parseBoolean(request.getParameter("replays"));
+		try {
+			level = levelKey(request);
+			if (request.getParameter("limit") != null) {
+				limit = Math.max(1, Math.min(MAX_LIMIT, Integer.parseInt(request.getParameter("limit"))));
+			}
+		} catch (IllegalArgumentException e) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+			return;
+		}
+
+		// Ancestor query so a score shows up as soon as it is saved
+		List<Score> scores = ObjectifyService.ofy()
+				.load()
+				.type(Score.class)
+				.ancestor(level)
+				.order("time")
+				.limit(limit)
+				.list();
+
+		PrintWriter out = response.getWriter();
+		out.println("begin");
+		for (Score score : scores) {
+			String line = score.player.replace(' ', '_') + " " + score.time + " " + score.attempts + " " + score.boostUsed;
+			if (replays && score.replay != null) {
+				line += " " + BaseEncoding.base64().encode(score.replay);
+			}
+			out.println(line);
+		}
+	}
+
+	private static Key<Level> levelKey(HttpServletRequest request) throws IllegalArgumentException {
+		String group = request.getParameter("group");
+		String id = request.getParameter("id");
+		if (group == null || group.equals("") || id == null) {
+			throw new IllegalArgumentException("Missing group or id.");
+		}
+		return Key.create(Key.create(LevelGroup.class, group), Level.class, Long.parseLong(id));
+	}
+
+	private static byte[] readBody(InputStream in) throws IOException, IllegalArgumentException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		byte[] buffer = new byte[512];
+		int count;
+		while ((count = in.read(buffer)) != -1) {
+			body.write(buffer, 0, count);
+			if (body.size() > MAX_REPLAY_BYTES) {
+				throw new IllegalArgumentException("Replay too large.");
+			}
+		}
+		return body.toByteArray();
+	}
+}
@@ -0,0 +1,122 @@
+package com.sawyerharris.gravitygame.database;
+
+import com.google.appengine.api.datastore.Cursor;
+import com.google.appengine.api.datastore.QueryResultIterator;
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.ObjectifyService;
+import com.googlecode.objectify.cmd.Query;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Level catalogue for clients that cache levels on the device.
+ *
+ * GET /levels?group=[&limit=][&cursor=][&since=] lists levels newest first as
+ * plain text: a "newest <millis>" line with the date of the newest level in
+ * the group, a "cursor <next>" line if the page is full, then "begin" and one
+ * "<id> <level json>" line per level. With since, only levels uploaded after
+ * that time are listed, so a client can fetch just what it is missing.
+ *
+ * Levels are only ever added, so the newest date identifies the state of a
+ * group. It is sent as the ETag and Last-Modified, and a client that is
+ * already up to date gets 304 Not Modified with no body.
+ */
+public class LevelCatalogServlet extends HttpServlet {
+	private static final long serialVersionUID = 1L;
+
+	private static final int DEFAULT_LIMIT = 20;
+	private static final int MAX_LIMIT = 100;
+
+	@Override
+	public void init() throws ServletException {
+		ObjectifyService.register(LevelGroup.class);
+		ObjectifyService.register(Level.class);
+	}
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		String group = request.getParameter("group");
+		int limit = DEFAULT_LIMIT;
+		long since = -1;
+		Cursor start = null;
+		try {
+			if (group == null || group.equals("")) {
+				throw new IllegalArgumentException("Missing group.");
+			}
+			if (request.getParameter("limit") != null) {
+				limit = Math.max(1, Math.min(MAX_LIMIT, Integer.parseInt(request.getParameter("limit"))));
+			}
+			if (request.getParameter("since") != null) {
+				since = Long.parseLong(request.getParameter("since"));
+			}
+			String cursor = request.getParameter("cursor");
+			if (cursor != null && !cursor.equals("")) {
+				start = Cursor.fromWebSafeString(cursor);
+			}
+		} catch (IllegalArgumentException e) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+			return;
+		}
+		Key<LevelGroup> groupKey = Key.create(LevelGroup.class, group);
+
+		Level newestLevel = ObjectifyService.ofy()
+				.load()
+				.type(Level.class)
+				.ancestor(groupKey)
+				.order("-date")
+				.first()
+				.now();
+		long newest = newestLevel == null ? 0 : newestLevel.date.getTime();
+		String etag = "\"" + newest + "\"";
+		response.setHeader("ETag", etag);
+		response.setDateHeader("Last-Modified", newest);
+		response.setHeader("Cache-Control", "no-cache");
+
+		// Later pages of a listing are never revalidated, only the first
+		if (start == null && (etag.equals(request.getHeader("If-None-Match")) || since >= newest
+				|| request.getDateHeader("If-Modified-Since") >= newest)) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+
+		// Ancestor query so an upload shows up as soon as it is saved
+		Query<Level> query = ObjectifyService.ofy()
+				.load()
+				.type(Level.class)
+				.ancestor(groupKey)
+				.order("-date")
+				.limit(limit);
+		if (since >= 0) {
+			query = query.filter("date >", new Date(since));
+		}
+		if (start != null) {
+			query = query.startAt(start);
+		}
+		List<Level> levels = new ArrayList<Level>();
+		QueryResultIterator<Level> iterator = query.iterator();
+		while (iterator.hasNext()) {
+			levels.add(iterator.next());
+		}
+
+		response.setContentType("text/plain");
+		response.setCharacterEncoding("UTF-8");
+		PrintWriter out = response.getWriter();
+		out.println("newest " + newest);
+		if (levels.size() == limit) {
+			out.println("cursor " + iterator.getCursor().toWebSafeString());
+		}
+		out.println("begin");
+		for (Level level : levels) {
+			out.println(level.id + " " + level.level);
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package com.sawyerharris.gravitygame.database;
+
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+import com.sawyerharris.gravitygame.physics.GravityField;
+import com.sawyerharris.gravitygame.physics.IntegratorType;
+import com.sawyerharris.gravitygame.physics.Simulation;
+
+/**
+ * Parsed copy of a stored level holding just what the physics needs. Read
+ * only once constructed, so one template can be shared by concurrent
+ * verifications.
+ */
+public class LevelTemplate {
+	// Must match LevelScreen in the game
+	public static final float WORLD_WIDTH = 1280;
+	public static final float WORLD_HEIGHT = 1920;
+
+	private final GravityField field;
+	private final float originX;
+	private final float originY;
+	private final IntegratorType integrator;
+
+	private LevelTemplate(GravityField field, float originX, float originY, IntegratorType integrator) {
+		this.field = field;
+		this.originX = originX;
+		this.originY = originY;
+		this.integrator = integrator;
+	}
+
+	/**
+	 * Parses level JSON as written by the game's Json serializer.
+	 *
+	 * @throws IllegalArgumentException if the level cannot be parsed
+	 */
+	public static LevelTemplate parse(String json) throws IllegalArgumentException {
+		JsonValue root;
+		try {
+			root = new JsonReader().parse(json);
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("Level is not valid JSON.", e);
+		}
+		if (root == null) {
+			throw new IllegalArgumentException("Level is empty.");
+		}
+
+		GravityField field = new GravityField();
+		JsonValue planets = root.get("planets");
+		if (planets != null) {
+			for (JsonValue planet = planets.child; planet != null; planet = planet.next) {
+				JsonValue position = planet.get("position");
+				int radius = planet.getInt("radius");
+				field.add(position.getFloat("x", 0), position.getFloat("y", 0), radius, GravityField.massOf(radius),
+						planet.getBoolean("homePlanet", false));
+			}
+		}
+
+		float originX = 0;
+		float originY = 0;
+		JsonValue origin = root.get("shipOrigin");
+		if (origin != null) {
+			originX = origin.getFloat("x", 0);
+			originY = origin.getFloat("y", 0);
+		}
+
+		// Levels without an integrator are played with RK4
+		String integrator = root.getString("integrator", null);
+		IntegratorType type = integrator == null ? IntegratorType.RK4 : IntegratorType.valueOf(integrator);
+
+		return new LevelTemplate(field, originX, originY, type);
+	}
+
+	/**
+	 * Creates a new simulation holding a copy of the level. Only the planets
+	 * are copied, so the simulation keeps the same acceleration cache rule as
+	 * the game and replays of crowded levels follow the path the player flew.
+	 */
+	public Simulation createSimulation() {
+		Simulation simulation = new Simulation(WORLD_WIDTH, WORLD_HEIGHT);
+		simulation.getField().copyPlanetsFrom(field);
+		simulation.setOrigin(originX, originY);
+		simulation.setIntegrator(integrator.create());
+		simulation.reset();
+		return simulation;
+	}
+
+	public IntegratorType getIntegrator() {
+		return integrator;
+	}
+}
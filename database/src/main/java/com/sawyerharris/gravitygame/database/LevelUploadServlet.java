@@ -0,0 +1,77 @@
+package com.sawyerharris.gravitygame.database;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Level uploads with the level in the request body rather than the URL.
+ *
+ * POST /upload?group=&author=&hash=&pass= with the level JSON as the body,
+ * gzip compressed if the request has Content-Encoding: gzip. Answers
+ * "uploaded <id>" once the level is saved. The checks are the same as for
+ * op=write in leveldatabase.jsp.
+ */
+public class LevelUploadServlet extends HttpServlet {
+	private static final long serialVersionUID = 1L;
+
+	// Compressed and uncompressed size limits, far above any real level
+	private static final int MAX_BODY_BYTES = 64 * 1024;
+	private static final int MAX_LEVEL_BYTES = 512 * 1024;
+
+	@Override
+	protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		response.setContentType("text/plain");
+		if (request.getContentLength() > MAX_BODY_BYTES) {
+			response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+			return;
+		}
+
+		String group = request.getParameter("group");
+		String author = request.getParameter("author");
+		String password = request.getParameter("pass");
+		int hash;
+		String level;
+		try {
+			hash = Integer.parseInt(request.getParameter("hash"));
+			InputStream in = request.getInputStream();
+			if ("gzip".equalsIgnoreCase(request.getHeader("Content-Encoding"))) {
+				in = new GZIPInputStream(in);
+			}
+			level = new String(readLimited(in, MAX_LEVEL_BYTES), "UTF-8");
+		} catch (IllegalArgumentException e) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+			return;
+		} catch (IOException e) {
+			// Includes corrupt gzip data
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+			return;
+		}
+
+		LevelWriter writer = new LevelWriter();
+		Level saved = writer.write(group, level, hash, password, author);
+		if (saved == null) {
+			response.sendError(HttpServletResponse.SC_FORBIDDEN, "Level rejected.");
+			return;
+		}
+		response.getWriter().println("uploaded " + saved.id);
+	}
+
+	private static byte[] readLimited(InputStream in, int limit) throws IOException, IllegalArgumentException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int count;
+		while ((count = in.read(buffer)) != -1) {
+			body.write(buffer, 0, count);
+			if (body.size() > limit) {
+				throw new IllegalArgumentException("Level too large.");
+			}
+		}
+		return body.toByteArray();
+	}
+}
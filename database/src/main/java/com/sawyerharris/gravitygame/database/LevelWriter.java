@@ -22,26 +22,32 @@ public class LevelWriter {
 		ObjectifyService.register(Level.class);
 	}
 
-	public void write(String group, String level, int hashCode, String password, String author) {
+	/**
+	 * Saves a level.
+	 *
+	 * @return the saved level, or null if it was rejected
+	 */
+	public Level write(String group, String level, int hashCode, String password, String author) {
 		if (group == null || level == null || author == null || group.equals("") || level.equals("") || author.equals("")) {
 			// One of the fields is null or empty
-			return;
+			return null;
 		}
 		
-		if (!password.equals(PASSWORD)) {
+		if (!PASSWORD.equals(password)) {
 			// Wrong password
-			return;
+			return null;
 		}
 		
 		if (!hashCodeCheck(hashCode, level)) {
 			// Level's hashcode does not match the submitted code
-			return;
+			return null;
 		}
 		
 		Level uploadLevel = new Level(group, level, author);
 
 		// Use Objectify to save the level and now() is used to make the call synchronously
 		ObjectifyService.ofy().save().entity(uploadLevel).now();
+		return uploadLevel;
 	}
 	
 	private boolean hashCodeCheck(int code, String str) {
@@ -0,0 +1,105 @@
+package com.sawyerharris.gravitygame.database;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.ObjectifyService;
+import com.sawyerharris.gravitygame.physics.CollisionEvent;
+import com.sawyerharris.gravitygame.physics.FixedTimestep;
+import com.sawyerharris.gravitygame.physics.Replay;
+import com.sawyerharris.gravitygame.physics.ReplayPlayer;
+import com.sawyerharris.gravitygame.physics.Simulation;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifies submitted replays by re-running them against the stored level.
+ *
+ * App Engine request threads cannot hand work to long lived threads, so
+ * verification runs on the submitting request's thread and a fixed number of
+ * permits bounds how many run at once. Requests that cannot get a permit
+ * within the timeout are rejected rather than queued. Stored levels are never
+ * modified, so parsed levels are cached by key.
+ */
+public class ReplayVerifier {
+	// Longest flight verified, in seconds of play
+	private static final int MAX_FLIGHT_TIME = 120;
+
+	private final Semaphore permits;
+	private final long timeoutMillis;
+	private final LoadingCache<Key<Level>, LevelTemplate> templates;
+
+	public ReplayVerifier(int workers, int cachedLevels, long timeoutMillis) {
+		this.permits = new Semaphore(workers, true);
+		this.timeoutMillis = timeoutMillis;
+		this.templates = CacheBuilder.newBuilder()
+				.maximumSize(cachedLevels)
+				.build(new CacheLoader<Key<Level>, LevelTemplate>() {
+					@Override
+					public LevelTemplate load(Key<Level> key) {
+						Level level = ObjectifyService.ofy().load().key(key).now();
+						if (level == null) {
+							throw new IllegalArgumentException("No such level.");
+						}
+						return LevelTemplate.parse(level.level);
+					}
+				});
+	}
+
+	/**
+	 * Re-runs a replay on a level.
+	 *
+	 * @return the verified score, or null if the replay does not reach a home planet
+	 * @throws IllegalArgumentException if the level does not exist or the replay does not fit it
+	 * @throws RejectedExecutionException if too many verifications are already running
+	 */
+	public Score verify(Key<Level> level, byte[] bytes, String player, int attempts)
+			throws IllegalArgumentException, RejectedExecutionException, InterruptedException {
+		Replay replay = Replay.fromBytes(bytes);
+		// Only the game's tick is accepted, so the verified time is the time
+		// the game flew and the step count below is bounded
+		if (replay.getStep() != FixedTimestep.TICK) {
+			throw new IllegalArgumentException("Replay was not recorded at the game's tick.");
+		}
+
+		if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+			throw new RejectedExecutionException("Too many replays being verified.");
+		}
+		try {
+			LevelTemplate template = getTemplate(level);
+			if (replay.getIntegrator() != template.getIntegrator()) {
+				throw new IllegalArgumentException("Replay used a different integrator than the level.");
+			}
+
+			Simulation simulation = template.createSimulation();
+			ReplayPlayer replayPlayer = new ReplayPlayer(simulation);
+			// Each tick was run as the replay's number of substeps, at most
+			// FixedTimestep.MAX_SUBSTEPS
+			int maxSteps = MAX_FLIGHT_TIME * FixedTimestep.TICKS_PER_SECOND * replay.getSubsteps();
+			CollisionEvent event = replayPlayer.play(replay, maxSteps);
+			if (event != CollisionEvent.HOME) {
+				return null;
+			}
+			float boostUsed = Simulation.MAX_BOOST - simulation.getBoost();
+			return new Score(level, player, simulation.getImpactTime(), attempts, boostUsed, bytes);
+		} finally {
+			permits.release();
+		}
+	}
+
+	private LevelTemplate getTemplate(Key<Level> level) throws IllegalArgumentException {
+		try {
+			return templates.get(level);
+		} catch (ExecutionException | UncheckedExecutionException e) {
+			if (e.getCause() instanceof IllegalArgumentException) {
+				throw (IllegalArgumentException) e.getCause();
+			}
+			throw new IllegalArgumentException("Level could not be loaded.", e.getCause());
+		}
+	}
+}
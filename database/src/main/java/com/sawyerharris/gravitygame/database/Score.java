@@ -0,0 +1,38 @@
+package com.sawyerharris.gravitygame.database;
+
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.annotation.Entity;
+import com.googlecode.objectify.annotation.Id;
+import com.googlecode.objectify.annotation.Index;
+import com.googlecode.objectify.annotation.Parent;
+
+import java.util.Date;
+
+@Entity
+public class Score {
+	@Parent Key<Level> level;
+	@Id public Long id;
+
+	public String player;
+	@Index public float time;
+	public int attempts;
+	// Seconds of boost used
+	public float boostUsed;
+	// Encoded replay the score was verified from
+	public byte[] replay;
+	@Index public Date date;
+
+	public Score() {
+
+	}
+
+	public Score(Key<Level> level, String player, float time, int attempts, float boostUsed, byte[] replay) {
+		this.date = new Date();
+		this.level = level;
+		this.player = player;
+		this.time = time;
+		this.attempts = attempts;
+		this.boostUsed = boostUsed;
+		this.replay = replay;
+	}
+}
@@ -4,8 +4,16 @@
 <%@ page import="com.sawyerharris.gravitygame.database.Level" %>
 <%@ page import="com.googlecode.objectify.Key" %>
 <%@ page import="com.googlecode.objectify.ObjectifyService" %>
+<%@ page import="com.googlecode.objectify.cmd.Query" %>
+<%@ page import="com.google.appengine.api.datastore.Cursor" %>
+<%@ page import="com.google.appengine.api.datastore.QueryResultIterator" %>
+<%@ page import="java.util.ArrayList" %>
 <%@ page import="java.util.List" %>
 <%@ taglib prefix="fn" uri="http://java.sun.com/jsp/jstl/functions" %>
+<%!	// Levels per page when no limit is given, and the most allowed
+	static final int DEFAULT_LIMIT = 20;
+	static final int MAX_LIMIT = 100;
+%>
 <%	try {
 		if (request.getParameter("op").equals("write")) {
 				String group = request.getParameter("group");
@@ -23,16 +31,42 @@
 			// Create the correct Ancestor key
 			Key<LevelGroup> theGroup = Key.create(LevelGroup.class, group);
 	
+			int limit = DEFAULT_LIMIT;
+			if (request.getParameter("limit") != null) {
+				limit = Math.max(1, Math.min(MAX_LIMIT, Integer.parseInt(request.getParameter("limit"))));
+			}
+
 			// Run an ancestor query to ensure we see the most up-to-date
 			// view of the Greetings belonging to the selected Guestbook.
-			List<Level> levels = ObjectifyService.ofy()
+			Query<Level> query = ObjectifyService.ofy()
 				.load()
 				.type(Level.class) // We want only levels
 				.ancestor(theGroup)    // Anyone in this level group
 				.order("-date")       // Most recent first - date is indexed.
-				.list();
+				.limit(limit);        // One page at a time
+			String startCursor = request.getParameter("cursor");
+			if (startCursor != null && !startCursor.equals("")) {
+				query = query.startAt(Cursor.fromWebSafeString(startCursor));
+			}
+
+			List<Level> levels = new ArrayList<Level>();
+			QueryResultIterator<Level> iterator = query.iterator();
+			while (iterator.hasNext()) {
+				levels.add(iterator.next());
+			}
+			// A full page may be followed by more, so tell the client where to continue
+			if (levels.size() == limit) {
+				pageContext.setAttribute("cursor", iterator.getCursor().toWebSafeString());
+			}
 %>
 Levels in Group ${fn:escapeXml(group)}
+<%
+			if (pageContext.getAttribute("cursor") != null) {
+%>
+cursor ${fn:escapeXml(cursor)}
+<%
+			}
+%>
 begin
 <%
 		// Look at all of our levels
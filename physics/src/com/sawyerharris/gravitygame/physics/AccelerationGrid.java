@@ -0,0 +1,222 @@
+package com.sawyerharris.gravitygame.physics;
+
+/**
+ * Lookup table of gravitational acceleration over the world. Since planets do
+ * not move during play, acceleration is sampled once at the corners of a
+ * uniform grid and bilinearly interpolated, so a lookup costs the same no
+ * matter how many planets there are.
+ * <p>
+ * The field changes too quickly close to a planet to interpolate well, so any
+ * cell within a configurable multiple of a planet's radius is marked exact
+ * and lookups there fall back to summing over all planets. Lookups outside the
+ * world also fall back.
+ * <p>
+ * The sample arrays are allocated on the first build, so a grid costs little
+ * until a field large enough to use it is evaluated.
+ * 
+ * @author Sawyer Harris
+ *
+ */
+public class AccelerationGrid {
+	/** Default distance between samples */
+	public static final float DEFAULT_CELL_SIZE = 16;
+	/** Default exact zone around each planet, as a multiple of its radius */
+	public static final float DEFAULT_EXACT_SCALE = 3;
+
+	/** Lower left corner of the grid */
+	private final float minX;
+	private final float minY;
+	/** Distance between samples and its inverse */
+	private final float cellSize;
+	private final float invCellSize;
+	/** Number of cells in each direction; there is one more sample */
+	private final int cols;
+	private final int rows;
+	/** Exact zone around each planet, as a multiple of its radius */
+	private final float exactScale;
+
+	/** Size of the world the grid covers */
+	private final float worldWidth;
+	private final float worldHeight;
+
+	/** Acceleration at each sample, row major, or null before the first build */
+	private float[] ax;
+	private float[] ay;
+	/** Whether each cell must be evaluated exactly */
+	private boolean[] exact;
+
+	/** Field and field version the grid was last built from */
+	private GravityField builtField;
+	private int builtVersion;
+
+	/** Scratch array for sampling */
+	private final float[] sample = new float[2];
+
+	/**
+	 * Constructs an unbuilt grid with default resolution over a world of the
+	 * given size centered on the origin.
+	 * 
+	 * @param worldWidth
+	 * @param worldHeight
+	 */
+	public AccelerationGrid(float worldWidth, float worldHeight) {
+		this(worldWidth, worldHeight, DEFAULT_CELL_SIZE, DEFAULT_EXACT_SCALE);
+	}
+
+	/**
+	 * Constructs an unbuilt grid over a world of the given size centered on
+	 * the origin.
+	 * 
+	 * @param worldWidth
+	 * @param worldHeight
+	 * @param cellSize
+	 *            distance between samples
+	 * @param exactScale
+	 *            exact zone around each planet as a multiple of its radius, at
+	 *            least 1
+	 */
+	public AccelerationGrid(float worldWidth, float worldHeight, float cellSize, float exactScale) {
+		if (cellSize <= 0) {
+			throw new IllegalArgumentException("Cell size must be positive.");
+		}
+		if (exactScale < 1) {
+			throw new IllegalArgumentException("Exact zone must cover the planet.");
+		}
+		this.worldWidth = worldWidth;
+		this.worldHeight = worldHeight;
+		this.cellSize = cellSize;
+		invCellSize = 1 / cellSize;
+		this.exactScale = exactScale;
+		minX = -worldWidth / 2;
+		minY = -worldHeight / 2;
+		cols = Math.max(1, (int) Math.ceil(worldWidth / cellSize));
+		rows = Math.max(1, (int) Math.ceil(worldHeight / cellSize));
+	}
+
+	/**
+	 * Constructs an unbuilt grid with the same layout as another.
+	 * 
+	 * @param layout
+	 *            grid to copy the world size and resolution of
+	 */
+	public AccelerationGrid(AccelerationGrid layout) {
+		this(layout.worldWidth, layout.worldHeight, layout.cellSize, layout.exactScale);
+	}
+
+	/**
+	 * Returns whether another grid has the same layout, so that both give the
+	 * same results for the same field.
+	 * 
+	 * @param other
+	 * @return true if world size and resolution match
+	 */
+	public boolean hasLayoutOf(AccelerationGrid other) {
+		return worldWidth == other.worldWidth && worldHeight == other.worldHeight && cellSize == other.cellSize
+				&& exactScale == other.exactScale;
+	}
+
+	/**
+	 * Returns whether the grid reflects the current contents of the field.
+	 * 
+	 * @param field
+	 * @return true if the grid is up to date
+	 */
+	public boolean isCurrent(GravityField field) {
+		return field == builtField && field.version == builtVersion;
+	}
+
+	/**
+	 * Samples the field at every grid corner and marks the cells near planets.
+	 * Costs one exact evaluation per sample.
+	 * 
+	 * @param field
+	 */
+	public void build(GravityField field) {
+		if (ax == null) {
+			ax = new float[(cols + 1) * (rows + 1)];
+			ay = new float[(cols + 1) * (rows + 1)];
+			exact = new boolean[cols * rows];
+		}
+		int stride = cols + 1;
+		for (int r = 0; r <= rows; r++) {
+			float py = minY + r * cellSize;
+			for (int c = 0; c <= cols; c++) {
+				field.exactAcceleration(minX + c * cellSize, py, sample);
+				ax[r * stride + c] = sample[0];
+				ay[r * stride + c] = sample[1];
+			}
+		}
+
+		for (int k = 0; k < exact.length; k++) {
+			exact[k] = false;
+		}
+		for (int i = 0; i < field.size; i++) {
+			float zone = field.radius[i] * exactScale;
+			float cx = field.x[i];
+			float cy = field.y[i];
+			int col0 = clamp((int) Math.floor((cx - zone - minX) * invCellSize), cols);
+			int col1 = clamp((int) Math.floor((cx + zone - minX) * invCellSize), cols);
+			int row0 = clamp((int) Math.floor((cy - zone - minY) * invCellSize), rows);
+			int row1 = clamp((int) Math.floor((cy + zone - minY) * invCellSize), rows);
+			for (int r = row0; r <= row1; r++) {
+				float y0 = minY + r * cellSize;
+				float dy = cy < y0 ? y0 - cy : (cy > y0 + cellSize ? cy - y0 - cellSize : 0);
+				for (int c = col0; c <= col1; c++) {
+					float x0 = minX + c * cellSize;
+					float dx = cx < x0 ? x0 - cx : (cx > x0 + cellSize ? cx - x0 - cellSize : 0);
+					if (dx * dx + dy * dy <= zone * zone) {
+						exact[r * cols + c] = true;
+					}
+				}
+			}
+		}
+
+		builtField = field;
+		builtVersion = field.version;
+	}
+
+	/**
+	 * Clamps an index to the range 0 to count - 1.
+	 */
+	private static int clamp(int index, int count) {
+		return index < 0 ? 0 : (index >= count ? count - 1 : index);
+	}
+
+	/**
+	 * Interpolates the acceleration at the given position, unless it lies
+	 * outside the grid or in a cell that must be evaluated exactly.
+	 * 
+	 * @param px
+	 * @param py
+	 * @param out
+	 *            array of at least length 2 that receives the acceleration
+	 * @return true if out was written, false if the caller must evaluate
+	 *         exactly
+	 */
+	public boolean lookup(float px, float py, float[] out) {
+		if (ax == null) {
+			return false;
+		}
+		float gx = (px - minX) * invCellSize;
+		float gy = (py - minY) * invCellSize;
+		if (!(gx >= 0 && gy >= 0 && gx < cols && gy < rows)) {
+			return false;
+		}
+		int c = (int) gx;
+		int r = (int) gy;
+		if (exact[r * cols + c]) {
+			return false;
+		}
+		float fx = gx - c;
+		float fy = gy - r;
+		int n = r * (cols + 1) + c;
+		int m = n + cols + 1;
+		float bottom = ax[n] + (ax[n + 1] - ax[n]) * fx;
+		float top = ax[m] + (ax[m + 1] - ax[m]) * fx;
+		out[0] = bottom + (top - bottom) * fy;
+		bottom = ay[n] + (ay[n + 1] - ay[n]) * fx;
+		top = ay[m] + (ay[m + 1] - ay[m]) * fx;
+		out[1] = bottom + (top - bottom) * fy;
+		return true;
+	}
+}
@@ -0,0 +1,303 @@
+package com.sawyerharris.gravitygame.physics;
+
+/**
+ * Barnes-Hut quadtree over the sources of a gravity field. Distant groups of
+ * planets are approximated by a single mass at their center of mass, so an
+ * evaluation costs about log(planets) instead of planets. A group is treated
+ * as one mass when its width divided by its distance is below the opening
+ * angle; smaller angles are more accurate and slower, and 0 is exact.
+ * <p>
+ * Nodes are stored in parallel arrays. The four children of a node are
+ * stored next to each other, so a node only records the index of its first
+ * child. Rebuilding only allocates if the arrays have to grow, and evaluation
+ * never allocates.
+ * 
+ * @author Sawyer Harris
+ *
+ */
+public class BarnesHutTree {
+	/** Default opening angle */
+	public static final float DEFAULT_THETA = 0.5f;
+
+	/** Marks a node with no bodies */
+	private static final int EMPTY = -1;
+	/** Marks a node holding more than one body */
+	private static final int GROUP = -2;
+	/** Depth beyond which coincident bodies are merged into one leaf */
+	private static final int MAX_DEPTH = 24;
+
+	/** Center and half width of each node's square */
+	private float[] centerX;
+	private float[] centerY;
+	private float[] half;
+	/** Total mass and center of mass of each node */
+	private float[] mass;
+	private float[] comX;
+	private float[] comY;
+	/** Index of each node's first child, or -1 for leaves */
+	private int[] child;
+	/** Body held by each leaf, or EMPTY or GROUP */
+	private int[] body;
+	/** Number of nodes in use */
+	private int count;
+
+	/** Square of the opening angle */
+	private float theta2;
+	/** Stack of nodes still to visit during evaluation */
+	private final int[] stack = new int[3 * MAX_DEPTH + 4];
+
+	/** Field and field version the tree was last built from */
+	private GravityField builtField;
+	private int builtVersion;
+
+	/**
+	 * Constructs an empty tree with the default opening angle.
+	 */
+	public BarnesHutTree() {
+		this(DEFAULT_THETA);
+	}
+
+	/**
+	 * Constructs an empty tree.
+	 * 
+	 * @param theta
+	 *            opening angle
+	 */
+	public BarnesHutTree(float theta) {
+		setTheta(theta);
+		allocate(64);
+	}
+
+	/**
+	 * Sets the opening angle.
+	 * 
+	 * @param theta
+	 *            opening angle, 0 for exact evaluation
+	 */
+	public void setTheta(float theta) {
+		if (theta < 0) {
+			throw new IllegalArgumentException("Opening angle must not be negative.");
+		}
+		theta2 = theta * theta;
+	}
+
+	/**
+	 * Returns the opening angle.
+	 * 
+	 * @return theta
+	 */
+	public float getTheta() {
+		return (float) Math.sqrt(theta2);
+	}
+
+	/**
+	 * Returns whether the tree reflects the current contents of the field.
+	 * 
+	 * @param field
+	 * @return true if the tree is up to date
+	 */
+	public boolean isCurrent(GravityField field) {
+		return field == builtField && field.version == builtVersion;
+	}
+
+	/**
+	 * Rebuilds the tree from the sources of a field.
+	 * 
+	 * @param field
+	 */
+	public void build(GravityField field) {
+		// Root square bounds all sources
+		float minX = Float.MAX_VALUE;
+		float minY = Float.MAX_VALUE;
+		float maxX = -Float.MAX_VALUE;
+		float maxY = -Float.MAX_VALUE;
+		for (int i = 0; i < field.size; i++) {
+			minX = Math.min(minX, field.x[i]);
+			minY = Math.min(minY, field.y[i]);
+			maxX = Math.max(maxX, field.x[i]);
+			maxY = Math.max(maxY, field.y[i]);
+		}
+		count = 0;
+		if (field.size == 0) {
+			addNode(0, 0, 1);
+		} else {
+			float size = Math.max(maxX - minX, maxY - minY);
+			addNode((minX + maxX) / 2, (minY + maxY) / 2, size / 2 + 1);
+		}
+
+		for (int i = 0; i < field.size; i++) {
+			insert(field, i);
+		}
+
+		// Turn mass weighted sums into centers of mass
+		for (int n = 0; n < count; n++) {
+			if (mass[n] > 0) {
+				comX[n] /= mass[n];
+				comY[n] /= mass[n];
+			}
+		}
+
+		builtField = field;
+		builtVersion = field.version;
+	}
+
+	/**
+	 * Inserts a source, splitting leaves until it has one to itself.
+	 * 
+	 * @param field
+	 * @param i
+	 *            source index
+	 */
+	private void insert(GravityField field, int i) {
+		float x = field.x[i];
+		float y = field.y[i];
+		int node = 0;
+		int depth = 0;
+		while (true) {
+			if (child[node] < 0) {
+				if (body[node] == EMPTY) {
+					body[node] = i;
+					accumulate(node, field, i);
+					return;
+				}
+				if (body[node] == GROUP || depth >= MAX_DEPTH) {
+					// Effectively coincident with what is already here
+					body[node] = GROUP;
+					accumulate(node, field, i);
+					return;
+				}
+				// Split and move the existing body down
+				int old = body[node];
+				split(node);
+				int c = child[node] + quadrant(node, field.x[old], field.y[old]);
+				body[c] = old;
+				accumulate(c, field, old);
+				body[node] = GROUP;
+			}
+			accumulate(node, field, i);
+			node = child[node] + quadrant(node, x, y);
+			depth++;
+		}
+	}
+
+	/**
+	 * Adds a source's mass and mass weighted position to a node.
+	 */
+	private void accumulate(int node, GravityField field, int i) {
+		float m = field.mass[i];
+		mass[node] += m;
+		comX[node] += m * field.x[i];
+		comY[node] += m * field.y[i];
+	}
+
+	/**
+	 * Returns which child of a node a position falls in.
+	 */
+	private int quadrant(int node, float x, float y) {
+		return (x >= centerX[node] ? 1 : 0) + (y >= centerY[node] ? 2 : 0);
+	}
+
+	/**
+	 * Creates the four children of a leaf.
+	 */
+	private void split(int node) {
+		float h = half[node] / 2;
+		float cx = centerX[node];
+		float cy = centerY[node];
+		child[node] = addNode(cx - h, cy - h, h);
+		addNode(cx + h, cy - h, h);
+		addNode(cx - h, cy + h, h);
+		addNode(cx + h, cy + h, h);
+	}
+
+	/**
+	 * Appends an empty leaf, growing the arrays if needed.
+	 * 
+	 * @return index of the new node
+	 */
+	private int addNode(float cx, float cy, float h) {
+		if (count == child.length) {
+			allocate(count * 2);
+		}
+		centerX[count] = cx;
+		centerY[count] = cy;
+		half[count] = h;
+		mass[count] = 0;
+		comX[count] = 0;
+		comY[count] = 0;
+		child[count] = -1;
+		body[count] = EMPTY;
+		return count++;
+	}
+
+	/**
+	 * Grows the node arrays to the given capacity, keeping existing nodes.
+	 */
+	private void allocate(int capacity) {
+		centerX = copyOf(centerX, capacity);
+		centerY = copyOf(centerY, capacity);
+		half = copyOf(half, capacity);
+		mass = copyOf(mass, capacity);
+		comX = copyOf(comX, capacity);
+		comY = copyOf(comY, capacity);
+		int[] newChild = new int[capacity];
+		int[] newBody = new int[capacity];
+		if (child != null) {
+			System.arraycopy(child, 0, newChild, 0, count);
+			System.arraycopy(body, 0, newBody, 0, count);
+		}
+		child = newChild;
+		body = newBody;
+	}
+
+	/**
+	 * Copies the nodes in use into a new array of the given capacity.
+	 */
+	private float[] copyOf(float[] array, int capacity) {
+		float[] copy = new float[capacity];
+		if (array != null) {
+			System.arraycopy(array, 0, copy, 0, count);
+		}
+		return copy;
+	}
+
+	/**
+	 * Computes the approximate gravitational acceleration at the given
+	 * position. Does not allocate.
+	 * 
+	 * @param px
+	 * @param py
+	 * @param out
+	 *            array of at least length 2 that receives the x and y
+	 *            components of acceleration
+	 */
+	public void acceleration(float px, float py, float[] out) {
+		float ax = 0;
+		float ay = 0;
+		int top = 0;
+		stack[top++] = 0;
+		while (top > 0) {
+			int node = stack[--top];
+			if (mass[node] == 0) {
+				continue;
+			}
+			float dx = px - comX[node];
+			float dy = py - comY[node];
+			float r2 = dx * dx + dy * dy;
+			float width = 2 * half[node];
+			if (child[node] < 0 || width * width < theta2 * r2) {
+				float scale = mass[node] / (r2 * (float) Math.sqrt(r2));
+				ax -= dx * scale;
+				ay -= dy * scale;
+			} else {
+				int first = child[node];
+				stack[top++] = first;
+				stack[top++] = first + 1;
+				stack[top++] = first + 2;
+				stack[top++] = first + 3;
+			}
+		}
+		out[0] = ax;
+		out[1] = ay;
+	}
+}
@@ -0,0 +1,18 @@
+package com.sawyerharris.gravitygame.physics;
+
+/**
+ * Outcome of a simulation step.
+ * 
+ * @author Sawyer Harris
+ *
+ */
+public enum CollisionEvent {
+	/** Ship is still flying */
+	NONE,
+	/** Ship crashed into a planet that is not a home planet */
+	PLANET,
+	/** Ship reached a home planet */
+	HOME,
+	/** Ship left the world */
+	OUT_OF_BOUNDS
+}
@@ -0,0 +1,338 @@
+package com.sawyerharris.gravitygame.physics;
+
+/**
+ * Adaptive Runge-Kutta integrator using the embedded Dormand-Prince 5(4) pair.
+ * The difference between the 5th and 4th order solutions estimates the local
+ * error, which is used to accept or reject each step and to choose the size of
+ * the next one. Steps grow large in empty space and shrink near planets.
+ * <p>
+ * Internal steps are not tied to the requested dt. The integrator keeps the
+ * most recent accepted step as a segment and answers requests that fall inside
+ * it by cubic Hermite interpolation of position and velocity, so a step that
+ * spans several frames is only paid for once. If the state is modified
+ * outside of the integrator (reset, fling, boost toggled), integration
+ * restarts from the new state.
+ * <p>
+ * All scratch values are primitive fields, so stepping does not allocate.
+ * 
+ * @author Sawyer Harris
+ *
+ */
+public class DormandPrinceIntegrator implements Integrator {
+	/** Number of stages per attempted step */
+	private static final int STAGES = 7;
+
+	/** Node coefficients */
+	private static final float[] C = { 0, 1f / 5, 3f / 10, 4f / 5, 8f / 9, 1, 1 };
+	/** Runge-Kutta matrix, lower triangular */
+	private static final float[][] A = { {}, { 1f / 5 }, { 3f / 40, 9f / 40 }, { 44f / 45, -56f / 15, 32f / 9 },
+			{ 19372f / 6561, -25360f / 2187, 64448f / 6561, -212f / 729 },
+			{ 9017f / 3168, -355f / 33, 46732f / 5247, 49f / 176, -5103f / 18656 },
+			{ 35f / 384, 0, 500f / 1113, 125f / 192, -2187f / 6784, 11f / 84 } };
+	/** Difference between 5th and 4th order weights */
+	private static final float[] E = { 71f / 57600, 0, -71f / 16695, 71f / 1920, -17253f / 339200, 22f / 525,
+			-1f / 40 };
+
+	/** Step size controller constants */
+	private static final float SAFETY = 0.9f;
+	private static final float MIN_SCALE = 0.2f;
+	private static final float MAX_SCALE = 5f;
+
+	/** Default tolerances and step limits */
+	private static final float DEFAULT_TOLERANCE = 0.01f;
+	private static final float DEFAULT_MIN_STEP = 1e-5f;
+	private static final float DEFAULT_MAX_STEP = 0.25f;
+
+	/** Absolute error tolerance per step, in world units */
+	private float tolerance;
+	/** Smallest step allowed; steps this small are always accepted */
+	private float minStep;
+	/** Largest step allowed */
+	private float maxStep;
+	/** Size of the next step to attempt */
+	private float nextStep;
+
+	/** Stage derivatives of position and velocity */
+	private final float[] kx = new float[STAGES];
+	private final float[] ky = new float[STAGES];
+	private final float[] kvx = new float[STAGES];
+	private final float[] kvy = new float[STAGES];
+	/** Output of gravity evaluations */
+	private final float[] gravity = new float[2];
+
+	/** Whether the current segment may be used */
+	private boolean valid;
+	/** Start and end of current segment: time, position, velocity, accel */
+	private double t0, t1;
+	private float x0, y0, vx0, vy0, ax0, ay0;
+	private float x1, y1, vx1, vy1, ax1, ay1;
+	/** Time of the state most recently written out */
+	private double time;
+	/** State most recently written out, used to detect outside changes */
+	private float lastX, lastY, lastVx, lastVy, lastThrustX, lastThrustY;
+
+	/** Counters */
+	private int steps;
+	private int rejectedSteps;
+	private int evaluations;
+
+	/**
+	 * Constructs an integrator with the default tolerance and step limits.
+	 */
+	public DormandPrinceIntegrator() {
+		tolerance = DEFAULT_TOLERANCE;
+		minStep = DEFAULT_MIN_STEP;
+		maxStep = DEFAULT_MAX_STEP;
+		nextStep = DEFAULT_MAX_STEP / 16;
+		valid = false;
+	}
+
+	/**
+	 * Advances the given ship state by dt, taking as many internal steps as
+	 * needed to keep the local error within tolerance.
+	 */
+	@Override
+	public void step(ShipState state, GravityField field, float dt) {
+		if (!valid || state.x != lastX || state.y != lastY || state.vx != lastVx || state.vy != lastVy
+				|| state.thrustX != lastThrustX || state.thrustY != lastThrustY) {
+			restart(state, field);
+		}
+
+		double target = time + dt;
+		while (t1 < target) {
+			advanceSegment(state, field);
+		}
+		interpolate(state, target);
+		time = target;
+
+		lastX = state.x;
+		lastY = state.y;
+		lastVx = state.vx;
+		lastVy = state.vy;
+		lastThrustX = state.thrustX;
+		lastThrustY = state.thrustY;
+	}
+
+	/**
+	 * Discards the current segment so the next step starts from the given
+	 * state.
+	 */
+	@Override
+	public void reset() {
+		valid = false;
+	}
+
+	/**
+	 * Starts a zero-length segment at the given state.
+	 */
+	private void restart(ShipState state, GravityField field) {
+		t0 = t1 = time = 0;
+		x1 = state.x;
+		y1 = state.y;
+		vx1 = state.vx;
+		vy1 = state.vy;
+		computeAccel(x1, y1, state, field);
+		ax1 = gravity[0];
+		ay1 = gravity[1];
+		valid = true;
+	}
+
+	/**
+	 * Makes the end of the current segment its start, then attempts steps
+	 * from there until one is accepted and becomes the new end.
+	 */
+	private void advanceSegment(ShipState state, GravityField field) {
+		t0 = t1;
+		x0 = x1;
+		y0 = y1;
+		vx0 = vx1;
+		vy0 = vy1;
+		ax0 = ax1;
+		ay0 = ay1;
+
+		float h = nextStep;
+		while (true) {
+			float error = attempt(state, field, h);
+			if (error <= 1 || h <= minStep) {
+				steps++;
+				t1 = t0 + h;
+				nextStep = Math.min(h * scale(error), maxStep);
+				return;
+			}
+			rejectedSteps++;
+			h = Math.max(h * Math.max(MIN_SCALE, scale(error)), minStep);
+		}
+	}
+
+	/**
+	 * Returns the factor by which to multiply the step size given the scaled
+	 * error of the previous attempt. Uses StrictMath, since Math.pow may give
+	 * different results on different JVMs and the step sequence must be the
+	 * same wherever a replay is checked.
+	 */
+	private float scale(float error) {
+		if (error == 0) {
+			return MAX_SCALE;
+		}
+		return Math.min(MAX_SCALE, SAFETY * (float) StrictMath.pow(error, -0.2));
+	}
+
+	/**
+	 * Attempts a step of size h from the start of the segment. The 5th order
+	 * result is stored as the end of the segment.
+	 * 
+	 * @return error norm scaled so that values at most 1 are acceptable
+	 */
+	private float attempt(ShipState state, GravityField field, float h) {
+		// First stage is the derivative at the start of the segment (FSAL)
+		kx[0] = vx0;
+		ky[0] = vy0;
+		kvx[0] = ax0;
+		kvy[0] = ay0;
+
+		for (int s = 1; s < STAGES; s++) {
+			float[] a = A[s];
+			float sx = 0, sy = 0, svx = 0, svy = 0;
+			for (int j = 0; j < s; j++) {
+				sx += a[j] * kx[j];
+				sy += a[j] * ky[j];
+				svx += a[j] * kvx[j];
+				svy += a[j] * kvy[j];
+			}
+			float px = x0 + h * sx;
+			float py = y0 + h * sy;
+			kx[s] = vx0 + h * svx;
+			ky[s] = vy0 + h * svy;
+			computeAccel(px, py, state, field);
+			kvx[s] = gravity[0];
+			kvy[s] = gravity[1];
+			if (s == STAGES - 1) {
+				// Last stage is evaluated at the 5th order solution
+				x1 = px;
+				y1 = py;
+				vx1 = kx[s];
+				vy1 = ky[s];
+				ax1 = gravity[0];
+				ay1 = gravity[1];
+			}
+		}
+
+		float ex = 0, ey = 0, evx = 0, evy = 0;
+		for (int j = 0; j < STAGES; j++) {
+			ex += E[j] * kx[j];
+			ey += E[j] * ky[j];
+			evx += E[j] * kvx[j];
+			evy += E[j] * kvy[j];
+		}
+		ex *= h;
+		ey *= h;
+		evx *= h;
+		evy *= h;
+		float sum = (ex * ex + ey * ey + evx * evx + evy * evy) / (tolerance * tolerance);
+		return (float) Math.sqrt(sum / 4);
+	}
+
+	/**
+	 * Writes the position and velocity at time t, which must lie within the
+	 * current segment, into the state using cubic Hermite interpolation.
+	 */
+	private void interpolate(ShipState state, double t) {
+		float h = (float) (t1 - t0);
+		if (h == 0) {
+			state.x = x1;
+			state.y = y1;
+			state.vx = vx1;
+			state.vy = vy1;
+			return;
+		}
+		float s = (float) ((t - t0) / h);
+		float s2 = s * s;
+		float s3 = s2 * s;
+		float h00 = 2 * s3 - 3 * s2 + 1;
+		float h10 = s3 - 2 * s2 + s;
+		float h01 = -2 * s3 + 3 * s2;
+		float h11 = s3 - s2;
+		state.x = h00 * x0 + h10 * h * vx0 + h01 * x1 + h11 * h * vx1;
+		state.y = h00 * y0 + h10 * h * vy0 + h01 * y1 + h11 * h * vy1;
+		state.vx = h00 * vx0 + h10 * h * ax0 + h01 * vx1 + h11 * h * ax1;
+		state.vy = h00 * vy0 + h10 * h * ay0 + h01 * vy1 + h11 * h * ay1;
+	}
+
+	/**
+	 * Computes the acceleration at the given position due to gravity and the
+	 * ship's thrust. Result is stored in gravity.
+	 */
+	private void computeAccel(float x, float y, ShipState state, GravityField field) {
+		evaluations++;
+		field.acceleration(x, y, gravity);
+		gravity[0] += state.thrustX;
+		gravity[1] += state.thrustY;
+	}
+
+	/**
+	 * Sets the absolute error tolerance per step.
+	 * 
+	 * @param tolerance
+	 *            tolerance in world units
+	 */
+	public void setTolerance(float tolerance) {
+		if (tolerance <= 0) {
+			throw new IllegalArgumentException("Tolerance must be positive.");
+		}
+		this.tolerance = tolerance;
+	}
+
+	/**
+	 * Sets the limits on internal step size.
+	 * 
+	 * @param min
+	 *            smallest step in seconds
+	 * @param max
+	 *            largest step in seconds
+	 */
+	public void setStepLimits(float min, float max) {
+		if (min <= 0 || max < min) {
+			throw new IllegalArgumentException("Invalid step limits.");
+		}
+		minStep = min;
+		maxStep = max;
+		nextStep = Math.max(min, Math.min(nextStep, max));
+	}
+
+	/**
+	 * Returns the number of accepted internal steps since counters were reset.
+	 * 
+	 * @return steps
+	 */
+	public int getSteps() {
+		return steps;
+	}
+
+	/**
+	 * Returns the number of rejected internal steps since counters were reset.
+	 * 
+	 * @return rejectedSteps
+	 */
+	public int getRejectedSteps() {
+		return rejectedSteps;
+	}
+
+	/**
+	 * Returns the number of acceleration evaluations since counters were
+	 * reset.
+	 * 
+	 * @return evaluations
+	 */
+	public int getEvaluations() {
+		return evaluations;
+	}
+
+	/**
+	 * Resets the step, rejection and evaluation counters.
+	 */
+	public void resetCounters() {
+		steps = 0;
+		rejectedSteps = 0;
+		evaluations = 0;
+	}
+}
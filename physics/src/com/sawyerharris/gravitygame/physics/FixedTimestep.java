@@ -0,0 +1,146 @@
+package com.sawyerharris.gravitygame.physics;
+
+/**
+ * Accumulates frame time and converts it into a whole number of fixed-length
+ * simulation ticks. Leftover time is exposed as an interpolation factor so
+ * rendering can blend between the previous and current simulation states.
+ * Each tick may be integrated as several equal substeps for accuracy.
+ * 
+ * @author Sawyer Harris
+ *
+ */
+public class FixedTimestep {
+	/** Number of ticks per second the game is played at */
+	public static final int TICKS_PER_SECOND = 60;
+	/** Length of a game tick in seconds; replays must be recorded with it */
+	public static final float TICK = 1f / TICKS_PER_SECOND;
+	/** Maximum number of substeps per tick */
+	public static final int MAX_SUBSTEPS = 8;
+
+	/** Length of a tick in seconds */
+	private final float step;
+	/** Number of integration substeps per tick */
+	private int substeps;
+	/** Maximum number of ticks that may be run for a single frame */
+	private int maxTicks;
+	/** Frame time not yet consumed by ticks */
+	private float accumulator;
+
+	/**
+	 * Constructs a fixed timestep with the given tick length and limit.
+	 * 
+	 * @param step
+	 *            length of a tick in seconds
+	 * @param maxTicks
+	 *            maximum number of ticks run per frame
+	 */
+	public FixedTimestep(float step, int maxTicks) {
+		if (step <= 0) {
+			throw new IllegalArgumentException("Timestep must be positive.");
+		}
+		this.step = step;
+		substeps = 1;
+		setMaxTicks(maxTicks);
+		accumulator = 0;
+	}
+
+	/**
+	 * Adds the frame time to the accumulator and returns the number of ticks
+	 * that should be simulated. If the frame took longer than maxTicks ticks,
+	 * the excess time is dropped so the cost of a frame stays bounded and the
+	 * simulation slows down instead of taking a large step.
+	 * 
+	 * @param delta
+	 *            frame time in seconds
+	 * @return number of ticks to simulate
+	 */
+	public int advance(float delta) {
+		accumulator += delta;
+		int ticks = (int) (accumulator / step);
+		if (ticks > maxTicks) {
+			ticks = maxTicks;
+			accumulator = ticks * step;
+		}
+		accumulator -= ticks * step;
+		return ticks;
+	}
+
+	/**
+	 * Returns how far the leftover time is into the next tick, from 0 to 1.
+	 * 
+	 * @return interpolation factor
+	 */
+	public float getAlpha() {
+		return accumulator / step;
+	}
+
+	/**
+	 * Discards any accumulated time.
+	 */
+	public void reset() {
+		accumulator = 0;
+	}
+
+	/**
+	 * Returns the length of a tick in seconds.
+	 * 
+	 * @return step
+	 */
+	public float getStep() {
+		return step;
+	}
+
+	/**
+	 * Returns the number of integration substeps per tick.
+	 * 
+	 * @return substeps
+	 */
+	public int getSubsteps() {
+		return substeps;
+	}
+
+	/**
+	 * Sets the number of integration substeps per tick. More substeps improve
+	 * accuracy near planets at a proportional cost.
+	 * 
+	 * @param substeps
+	 *            substeps per tick, from 1 to MAX_SUBSTEPS
+	 */
+	public void setSubsteps(int substeps) {
+		if (substeps < 1 || substeps > MAX_SUBSTEPS) {
+			throw new IllegalArgumentException("Substeps must be from 1 to " + MAX_SUBSTEPS + ".");
+		}
+		this.substeps = substeps;
+	}
+
+	/**
+	 * Returns the length of a substep in seconds, the step simulations are
+	 * advanced by.
+	 * 
+	 * @return substep length
+	 */
+	public float getSubstep() {
+		return step / substeps;
+	}
+
+	/**
+	 * Returns the maximum number of ticks run per frame.
+	 * 
+	 * @return maxTicks
+	 */
+	public int getMaxTicks() {
+		return maxTicks;
+	}
+
+	/**
+	 * Sets the maximum number of ticks run per frame.
+	 * 
+	 * @param maxTicks
+	 */
+	public void setMaxTicks(int maxTicks) {
+		if (maxTicks < 1) {
+			throw new IllegalArgumentException("Must allow at least one tick per frame.");
+		}
+		this.maxTicks = maxTicks;
+	}
+}
@@ -0,0 +1,103 @@
+package com.sawyerharris.gravitygame.physics;
+
+/**
+ * Player input for one flight: the launch velocity, and the steps at which
+ * boost was switched on or off. Boost starts off, so even entries switch it on
+ * and odd entries switch it off. Replaying the input in a simulation of the
+ * same level reproduces the flight.
+ * 
+ * @author Sawyer Harris
+ *
+ */
+public class FlightInput {
+	/** Launch velocity */
+	private final float launchX;
+	private final float launchY;
+	/** Steps at which boost was toggled, in increasing order */
+	private int[] toggles;
+	/** Number of toggles */
+	private int toggleCount;
+
+	/**
+	 * Constructs an input with the given launch velocity and no boost.
+	 * 
+	 * @param launchX
+	 * @param launchY
+	 */
+	public FlightInput(float launchX, float launchY) {
+		this.launchX = launchX;
+		this.launchY = launchY;
+		toggles = new int[8];
+		toggleCount = 0;
+	}
+
+	/**
+	 * Records that boost was toggled before the given step.
+	 * 
+	 * @param step
+	 *            number of steps taken before the toggle
+	 * @throws IllegalArgumentException
+	 *             if step is before the previous toggle
+	 */
+	public void addToggle(int step) throws IllegalArgumentException {
+		if (step < 0 || (toggleCount > 0 && step < toggles[toggleCount - 1])) {
+			throw new IllegalArgumentException("Boost toggles must be in step order.");
+		}
+		if (toggleCount == toggles.length) {
+			int[] grown = new int[toggles.length * 2];
+			System.arraycopy(toggles, 0, grown, 0, toggleCount);
+			toggles = grown;
+		}
+		toggles[toggleCount++] = step;
+	}
+
+	/**
+	 * Returns the x component of the launch velocity.
+	 * 
+	 * @return launchX
+	 */
+	public float getLaunchX() {
+		return launchX;
+	}
+
+	/**
+	 * Returns the y component of the launch velocity.
+	 * 
+	 * @return launchY
+	 */
+	public float getLaunchY() {
+		return launchY;
+	}
+
+	/**
+	 * Returns the number of boost toggles.
+	 * 
+	 * @return toggle count
+	 */
+	public int getToggleCount() {
+		return toggleCount;
+	}
+
+	/**
+	 * Returns the step of a boost toggle.
+	 * 
+	 * @param index
+	 * @return step
+	 */
+	public int getToggle(int index) {
+		if (index < 0 || index >= toggleCount) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + toggleCount);
+		}
+		return toggles[index];
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("FlightInput [launch=").append(launchX).append(", ").append(launchY).append(", toggles=");
+		for (int i = 0; i < toggleCount; i++) {
+			sb.append(i == 0 ? "" : " ").append(toggles[i]);
+		}
+		return sb.append("]").toString();
+	}
+}
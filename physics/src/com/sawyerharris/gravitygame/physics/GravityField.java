@@ -0,0 +1,493 @@
+package com.sawyerharris.gravitygame.physics;
+
+/**
+ * Packed store of gravity sources (planets) held in parallel primitive arrays.
+ * Physics and collision code iterate over these arrays rather than over
+ * scene2d actors so the inner loops are cache friendly and free of
+ * allocation.
+ * 
+ * @author Sawyer Harris
+ *
+ */
+public class GravityField {
+	/** Mass area density of planets */
+	public static final float MASS_DENSITY = 1000;
+
+	/** Initial capacity of the arrays */
+	private static final int INITIAL_CAPACITY = 16;
+	/**
+	 * Default number of sources from which Barnes-Hut is used instead of
+	 * direct summation, where it overtakes it in GravityBenchmark
+	 */
+	public static final int DEFAULT_BARNES_HUT_THRESHOLD = 256;
+	/**
+	 * Default number of sources from which the acceleration cache is used,
+	 * below which summing directly is as cheap as a lookup
+	 */
+	public static final int DEFAULT_CACHE_THRESHOLD = 16;
+
+	/** Position, mass and radius of each source */
+	float[] x;
+	float[] y;
+	float[] mass;
+	float[] radius;
+	/** Whether each source is a home planet */
+	boolean[] home;
+	/** Number of sources in the field */
+	int size;
+	/** Incremented whenever the field is modified */
+	int version;
+	/** Optional lookup table used in place of summing over sources, or null */
+	private AccelerationGrid cache;
+	/** Number of sources from which the cache is used */
+	private int cacheThreshold = DEFAULT_CACHE_THRESHOLD;
+	/** Number of sources from which Barnes-Hut is used */
+	private int barnesHutThreshold = DEFAULT_BARNES_HUT_THRESHOLD;
+	/** Opening angle used by Barnes-Hut */
+	private float openingAngle = BarnesHutTree.DEFAULT_THETA;
+	/** Quadtree used for large fields, created on first use */
+	private BarnesHutTree tree;
+	/** Scratch array for batched evaluation */
+	private final float[] scratch = new float[2];
+
+	/**
+	 * Constructs an empty gravity field.
+	 */
+	public GravityField() {
+		x = new float[INITIAL_CAPACITY];
+		y = new float[INITIAL_CAPACITY];
+		mass = new float[INITIAL_CAPACITY];
+		radius = new float[INITIAL_CAPACITY];
+		home = new boolean[INITIAL_CAPACITY];
+		size = 0;
+	}
+
+	/**
+	 * Returns the mass of a planet of the given radius assuming uniform
+	 * density.
+	 * 
+	 * @param radius
+	 * @return mass
+	 */
+	public static float massOf(float radius) {
+		return MASS_DENSITY * radius * radius;
+	}
+
+	/**
+	 * Removes all sources from the field.
+	 */
+	public void clear() {
+		size = 0;
+		version++;
+	}
+
+	/**
+	 * Adds a source to the end of the field.
+	 * 
+	 * @param px
+	 * @param py
+	 * @param rad
+	 *            radius of source
+	 * @param m
+	 *            mass of source
+	 * @param homePlanet
+	 *            true if source is a home planet
+	 * @return index of the added source
+	 */
+	public int add(float px, float py, float rad, float m, boolean homePlanet) {
+		if (size == x.length) {
+			grow(size * 2);
+		}
+		set(size, px, py, rad, m, homePlanet);
+		return size++;
+	}
+
+	/**
+	 * Sets the source at the given index.
+	 * 
+	 * @param index
+	 * @param px
+	 * @param py
+	 * @param rad
+	 *            radius of source
+	 * @param m
+	 *            mass of source
+	 * @param homePlanet
+	 *            true if source is a home planet
+	 */
+	public void set(int index, float px, float py, float rad, float m, boolean homePlanet) {
+		x[index] = px;
+		y[index] = py;
+		radius[index] = rad;
+		mass[index] = m;
+		home[index] = homePlanet;
+		version++;
+	}
+
+	/**
+	 * Removes the source at the given index, shifting later sources down so
+	 * that indices keep matching the order planets were added in.
+	 * 
+	 * @param index
+	 * @throws IndexOutOfBoundsException
+	 *             if index < 0 || index >= size
+	 */
+	public void remove(int index) throws IndexOutOfBoundsException {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		int count = size - index - 1;
+		System.arraycopy(x, index + 1, x, index, count);
+		System.arraycopy(y, index + 1, y, index, count);
+		System.arraycopy(radius, index + 1, radius, index, count);
+		System.arraycopy(mass, index + 1, mass, index, count);
+		System.arraycopy(home, index + 1, home, index, count);
+		size--;
+		version++;
+	}
+
+	/**
+	 * Replaces the contents of this field with a copy of another, along with
+	 * its cache and Barnes-Hut settings, so that both fields give the same
+	 * accelerations. If the other field has a cache and this one has none of
+	 * the same layout, an unbuilt one is made; if the other has no cache,
+	 * neither does this one.
+	 * 
+	 * @param other
+	 */
+	public void copyFrom(GravityField other) {
+		copyPlanetsFrom(other);
+		cacheThreshold = other.cacheThreshold;
+		if (other.cache == null) {
+			cache = null;
+		} else if (cache == null || !cache.hasLayoutOf(other.cache)) {
+			cache = new AccelerationGrid(other.cache);
+		}
+		barnesHutThreshold = other.barnesHutThreshold;
+		setOpeningAngle(other.openingAngle);
+	}
+
+	/**
+	 * Replaces the gravity sources of this field with a copy of another's,
+	 * keeping this field's cache and Barnes-Hut settings, e.g. to load a
+	 * level into a Simulation whose field follows the game's cache rule.
+	 * 
+	 * @param other
+	 */
+	public void copyPlanetsFrom(GravityField other) {
+		if (x.length < other.size) {
+			grow(other.size);
+		}
+		System.arraycopy(other.x, 0, x, 0, other.size);
+		System.arraycopy(other.y, 0, y, 0, other.size);
+		System.arraycopy(other.radius, 0, radius, 0, other.size);
+		System.arraycopy(other.mass, 0, mass, 0, other.size);
+		System.arraycopy(other.home, 0, home, 0, other.size);
+		size = other.size;
+		version++;
+	}
+
+	/**
+	 * Grows the arrays to the given capacity.
+	 * 
+	 * @param capacity
+	 */
+	private void grow(int capacity) {
+		x = copyOf(x, capacity);
+		y = copyOf(y, capacity);
+		radius = copyOf(radius, capacity);
+		mass = copyOf(mass, capacity);
+		boolean[] newHome = new boolean[capacity];
+		System.arraycopy(home, 0, newHome, 0, size);
+		home = newHome;
+	}
+
+	/**
+	 * Copies the first size elements of the array into a new array of the
+	 * given capacity.
+	 */
+	private float[] copyOf(float[] array, int capacity) {
+		float[] copy = new float[capacity];
+		System.arraycopy(array, 0, copy, 0, size);
+		return copy;
+	}
+
+	/**
+	 * Computes the gravitational acceleration at the given position due to all
+	 * sources. Uses the acceleration cache where it applies if there are at
+	 * least the cache threshold number of sources, rebuilding it first if the
+	 * field has changed. Otherwise sums over sources directly, or
+	 * with Barnes-Hut if there are at least the threshold number of them. Does
+	 * not allocate, except when rebuilding the cache or tree.
+	 * 
+	 * @param px
+	 * @param py
+	 * @param out
+	 *            array of at least length 2 that receives the x and y
+	 *            components of acceleration
+	 */
+	public void acceleration(float px, float py, float[] out) {
+		if (usesCache()) {
+			updateCache();
+			if (cache.lookup(px, py, out)) {
+				return;
+			}
+		}
+		if (size >= barnesHutThreshold) {
+			if (tree == null) {
+				tree = new BarnesHutTree(openingAngle);
+			}
+			if (!tree.isCurrent(this)) {
+				tree.build(this);
+			}
+			tree.acceleration(px, py, out);
+			return;
+		}
+		exactAcceleration(px, py, out);
+	}
+
+	/**
+	 * Computes the gravitational acceleration at many positions at once. Gives
+	 * the same results as calling acceleration for each position. When
+	 * summing directly, planets are the outer loop and positions the inner
+	 * one, so each planet is loaded once for the whole batch. Does not
+	 * allocate, except when rebuilding the cache or tree.
+	 * 
+	 * @param px
+	 * @param py
+	 *            positions
+	 * @param ax
+	 * @param ay
+	 *            arrays that receive the acceleration at each position
+	 * @param count
+	 *            number of positions
+	 */
+	public void accelerations(float[] px, float[] py, float[] ax, float[] ay, int count) {
+		if (usesCache() || size >= barnesHutThreshold) {
+			for (int s = 0; s < count; s++) {
+				acceleration(px[s], py[s], scratch);
+				ax[s] = scratch[0];
+				ay[s] = scratch[1];
+			}
+			return;
+		}
+		for (int s = 0; s < count; s++) {
+			ax[s] = 0;
+			ay[s] = 0;
+		}
+		for (int i = 0; i < size; i++) {
+			float xi = x[i];
+			float yi = y[i];
+			float mi = mass[i];
+			for (int s = 0; s < count; s++) {
+				float dx = px[s] - xi;
+				float dy = py[s] - yi;
+				float r2 = dx * dx + dy * dy;
+				float scale = mi / (r2 * (float) Math.sqrt(r2));
+				ax[s] -= dx * scale;
+				ay[s] -= dy * scale;
+			}
+		}
+	}
+
+	/**
+	 * Computes the gravitational acceleration at the given position by summing
+	 * over all sources. Does not allocate.
+	 * 
+	 * @param px
+	 * @param py
+	 * @param out
+	 *            array of at least length 2 that receives the x and y
+	 *            components of acceleration
+	 */
+	public void exactAcceleration(float px, float py, float[] out) {
+		float ax = 0;
+		float ay = 0;
+		for (int i = 0; i < size; i++) {
+			float dx = px - x[i];
+			float dy = py - y[i];
+			float r2 = dx * dx + dy * dy;
+			float scale = mass[i] / (r2 * (float) Math.sqrt(r2));
+			ax -= dx * scale;
+			ay -= dy * scale;
+		}
+		out[0] = ax;
+		out[1] = ay;
+	}
+
+	/**
+	 * Sets the acceleration cache. It is built lazily on the next evaluation
+	 * and rebuilt whenever the field changes.
+	 * 
+	 * @param cache
+	 *            lookup table, or null to always sum over sources
+	 */
+	public void setCache(AccelerationGrid cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * Builds the acceleration cache now if it is used and out of date, so the
+	 * cost is not paid during the first step.
+	 */
+	public void updateCache() {
+		if (usesCache() && !cache.isCurrent(this)) {
+			cache.build(this);
+		}
+	}
+
+	/**
+	 * Returns whether evaluations go through the acceleration cache.
+	 * 
+	 * @return true if there is a cache and enough sources to use it
+	 */
+	public boolean usesCache() {
+		return cache != null && size >= cacheThreshold;
+	}
+
+	/**
+	 * Sets the number of sources from which the acceleration cache is used.
+	 * Simulations whose results are compared, e.g. a replay and its check,
+	 * must use the same threshold.
+	 * 
+	 * @param threshold
+	 *            number of sources, 0 to always use it or Integer.MAX_VALUE
+	 *            to never use it
+	 */
+	public void setCacheThreshold(int threshold) {
+		cacheThreshold = threshold;
+	}
+
+	/**
+	 * Returns the number of sources from which the acceleration cache is used.
+	 * 
+	 * @return threshold
+	 */
+	public int getCacheThreshold() {
+		return cacheThreshold;
+	}
+
+	/**
+	 * Sets the number of sources from which Barnes-Hut is used instead of
+	 * direct summation.
+	 * 
+	 * @param threshold
+	 *            number of sources, or Integer.MAX_VALUE to never use it
+	 */
+	public void setBarnesHutThreshold(int threshold) {
+		barnesHutThreshold = threshold;
+	}
+
+	/**
+	 * Returns the number of sources from which Barnes-Hut is used.
+	 * 
+	 * @return threshold
+	 */
+	public int getBarnesHutThreshold() {
+		return barnesHutThreshold;
+	}
+
+	/**
+	 * Sets the Barnes-Hut opening angle. Smaller angles are more accurate and
+	 * slower.
+	 * 
+	 * @param theta
+	 *            opening angle, 0 for exact evaluation
+	 */
+	public void setOpeningAngle(float theta) {
+		if (theta < 0) {
+			throw new IllegalArgumentException("Opening angle must not be negative.");
+		}
+		openingAngle = theta;
+		if (tree != null) {
+			tree.setTheta(theta);
+		}
+	}
+
+	/**
+	 * Returns the Barnes-Hut opening angle.
+	 * 
+	 * @return theta
+	 */
+	public float getOpeningAngle() {
+		return openingAngle;
+	}
+
+	/**
+	 * Returns the acceleration cache.
+	 * 
+	 * @return cache, or null if there is none
+	 */
+	public AccelerationGrid getCache() {
+		return cache;
+	}
+
+	/**
+	 * Returns the number of sources in the field.
+	 * 
+	 * @return size
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns a number that changes whenever the field is modified, so caches
+	 * derived from the field can tell when they are stale.
+	 * 
+	 * @return version
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Returns the x position of the source at the given index.
+	 * 
+	 * @param index
+	 * @return x position
+	 */
+	public float getX(int index) {
+		return x[index];
+	}
+
+	/**
+	 * Returns the y position of the source at the given index.
+	 * 
+	 * @param index
+	 * @return y position
+	 */
+	public float getY(int index) {
+		return y[index];
+	}
+
+	/**
+	 * Returns the radius of the source at the given index.
+	 * 
+	 * @param index
+	 * @return radius
+	 */
+	public float getRadius(int index) {
+		return radius[index];
+	}
+
+	/**
+	 * Returns the mass of the source at the given index.
+	 * 
+	 * @param index
+	 * @return mass
+	 */
+	public float getMass(int index) {
+		return mass[index];
+	}
+
+	/**
+	 * Returns whether the source at the given index is a home planet.
+	 * 
+	 * @param index
+	 * @return true if home planet
+	 */
+	public boolean isHome(int index) {
+		return home[index];
+	}
+}
@@ -0,0 +1,31 @@
+package com.sawyerharris.gravitygame.physics;
+
+/**
+ * Numerical method that advances a ship's state through a gravity field.
+ * Acceleration is a pure function of position and the state's thrust, which
+ * is held constant over a step; integrators change only position and
+ * velocity, never thrust or fuel. Implementations must not allocate while
+ * stepping.
+ * 
+ * @author Sawyer Harris
+ *
+ */
+public interface Integrator {
+	/**
+	 * Advances the given ship state by dt.
+	 * 
+	 * @param state
+	 *            ship state to update in place
+	 * @param field
+	 *            gravity sources
+	 * @param dt
+	 *            amount of time to advance
+	 */
+	public void step(ShipState state, GravityField field, float dt);
+
+	/**
+	 * Discards anything cached from previous steps, e.g. when the ship is
+	 * reset.
+	 */
+	public void reset();
+}
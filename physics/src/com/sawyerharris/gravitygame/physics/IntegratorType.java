@@ -0,0 +1,38 @@
+package com.sawyerharris.gravitygame.physics;
+
+/**
+ * Numerical method used to advance ship motion.
+ * 
+ * @author Sawyer Harris
+ *
+ */
+public enum IntegratorType {
+	/** Fixed step Runge-Kutta 4th order */
+	RK4 {
+		@Override
+		public Integrator create() {
+			return new RK4Integrator();
+		}
+	},
+	/** Adaptive step Dormand-Prince 5(4) */
+	DORMAND_PRINCE {
+		@Override
+		public Integrator create() {
+			return new DormandPrinceIntegrator();
+		}
+	},
+	/** Symplectic velocity Verlet, one gravity evaluation per step */
+	VERLET {
+		@Override
+		public Integrator create() {
+			return new VerletIntegrator();
+		}
+	};
+
+	/**
+	 * Constructs a new integrator of this type.
+	 * 
+	 * @return integrator
+	 */
+	public abstract Integrator create();
+}
@@ -0,0 +1,346 @@
+package com.sawyerharris.gravitygame.physics;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * A level as plain data: its header strings, ship origin and planets, the
+ * planets held directly in a GravityField. This is what the binary level
+ * format decodes to, without reflection or intermediate objects. JSON remains
+ * the interchange format; binary levels are generated from it at build time.
+ * <p>
+ * Binary format, big endian, strings in modified UTF-8:
+ *
+ * <pre>
+ * int     magic "GGL" followed by format version
+ * UTF     name, author, theme, type
+ * boolean has message, followed by UTF message if true
+ * byte    integrator ordinal + 1, or 0 for the default
+ * byte    flags of the ship origin, followed by the origin
+ * varint  number of planets
+ * each planet:
+ *   byte    flags, followed by the position
+ *   varint  radius
+ * </pre>
+ *
+ * A position is written as two zigzag varints in 1/256ths of a unit if its
+ * flags have FIXED_POINT set, otherwise as two floats. Fixed point is used
+ * only where it is exact, so a level decodes to the same bits it was encoded
+ * from and its replay hash is unchanged.
+ *
+ * @author Sawyer Harris
+ *
+ */
+public class LevelData {
+	/** "GGL" followed by format version 1 */
+	private static final int MAGIC = 0x47474C01;
+
+	/** Flag set on home planets */
+	private static final int HOME = 1;
+	/** Flag set if the position is written in fixed point */
+	private static final int FIXED_POINT = 2;
+	/** Fixed point positions are in units of 1 / FIXED_POINT_SCALE */
+	private static final float FIXED_POINT_SCALE = 256;
+	/** Fixed point positions must lie within +-FIXED_POINT_LIMIT */
+	private static final float FIXED_POINT_LIMIT = 1 << 20;
+	/** Upper bound on planets, to reject corrupt counts before allocating */
+	private static final int MAX_PLANETS = 1 << 16;
+
+	/** Header */
+	private final String name;
+	private final String author;
+	private final String message;
+	private final String theme;
+	private final String type;
+	/** Integrator, or null for the default */
+	private final IntegratorType integrator;
+	/** Ship origin */
+	private final float originX;
+	private final float originY;
+	/** Planets */
+	private final GravityField field;
+
+	/**
+	 * Constructs level data.
+	 *
+	 * @param name
+	 * @param author
+	 * @param message
+	 *            message shown when the level is loaded, or null
+	 * @param theme
+	 * @param type
+	 *            name of the level type
+	 * @param integrator
+	 *            integrator, or null for the default
+	 * @param originX
+	 * @param originY
+	 *            ship origin
+	 * @param field
+	 *            planets
+	 */
+	public LevelData(String name, String author, String message, String theme, String type,
+			IntegratorType integrator, float originX, float originY, GravityField field) {
+		if (name == null || author == null || theme == null || type == null || field == null) {
+			throw new IllegalArgumentException("Level is missing name, author, theme, type or planets.");
+		}
+		this.name = name;
+		this.author = author;
+		this.message = message;
+		this.theme = theme;
+		this.type = type;
+		this.integrator = integrator;
+		this.originX = originX;
+		this.originY = originY;
+		this.field = field;
+	}
+
+	/**
+	 * Encodes the level in the binary format.
+	 *
+	 * @return bytes
+	 */
+	public byte[] toBytes() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + field.size * 4);
+		try {
+			write(new DataOutputStream(bytes));
+		} catch (IOException e) {
+			// Not thrown by a ByteArrayOutputStream
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Writes the level in the binary format.
+	 *
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeUTF(name);
+		out.writeUTF(author);
+		out.writeUTF(theme);
+		out.writeUTF(type);
+		out.writeBoolean(message != null);
+		if (message != null) {
+			out.writeUTF(message);
+		}
+		out.writeByte(integrator == null ? 0 : integrator.ordinal() + 1);
+		writePosition(out, originX, originY, 0);
+		Replay.writeVarint(out, field.size);
+		for (int i = 0; i < field.size; i++) {
+			float radius = field.radius[i];
+			if (radius < 0 || radius != (int) radius) {
+				throw new IllegalArgumentException("Planet radius must be a whole number: " + radius);
+			}
+			writePosition(out, field.x[i], field.y[i], field.home[i] ? HOME : 0);
+			Replay.writeVarint(out, (int) radius);
+		}
+	}
+
+	/**
+	 * Decodes a level from the binary format.
+	 *
+	 * @param bytes
+	 * @return level
+	 * @throws IllegalArgumentException
+	 *             if the bytes are not a valid level
+	 */
+	public static LevelData fromBytes(byte[] bytes) throws IllegalArgumentException {
+		try {
+			return read(new DataInputStream(new ByteArrayInputStream(bytes)));
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Truncated level.", e);
+		}
+	}
+
+	/**
+	 * Reads a level in the binary format. Planets are added straight to a new
+	 * gravity field.
+	 *
+	 * @param in
+	 * @return level
+	 * @throws IOException
+	 *             if the stream fails or ends early
+	 * @throws IllegalArgumentException
+	 *             if the data is not a valid level
+	 */
+	public static LevelData read(DataInputStream in) throws IOException, IllegalArgumentException {
+		if (in.readInt() != MAGIC) {
+			throw new IllegalArgumentException("Not a level, or unsupported version.");
+		}
+		String name = in.readUTF();
+		String author = in.readUTF();
+		String theme = in.readUTF();
+		String type = in.readUTF();
+		String message = in.readBoolean() ? in.readUTF() : null;
+		int ordinal = in.readUnsignedByte();
+		IntegratorType[] types = IntegratorType.values();
+		if (ordinal > types.length) {
+			throw new IllegalArgumentException("Unknown integrator: " + (ordinal - 1));
+		}
+		IntegratorType integrator = ordinal == 0 ? null : types[ordinal - 1];
+
+		float[] position = new float[2];
+		readPosition(in, in.readUnsignedByte(), position);
+		float originX = position[0];
+		float originY = position[1];
+
+		int count = Replay.readVarint(in);
+		if (count > MAX_PLANETS) {
+			throw new IllegalArgumentException("Too many planets: " + count);
+		}
+		GravityField field = new GravityField();
+		for (int i = 0; i < count; i++) {
+			int flags = in.readUnsignedByte();
+			readPosition(in, flags, position);
+			float radius = Replay.readVarint(in);
+			field.add(position[0], position[1], radius, GravityField.massOf(radius), (flags & HOME) != 0);
+		}
+		return new LevelData(name, author, message, theme, type, integrator, originX, originY, field);
+	}
+
+	/**
+	 * Writes a flags byte and a position, in fixed point if both coordinates
+	 * are exactly representable.
+	 */
+	private static void writePosition(DataOutputStream out, float x, float y, int flags) throws IOException {
+		if (isFixedPoint(x) && isFixedPoint(y)) {
+			out.writeByte(flags | FIXED_POINT);
+			writeFixedPoint(out, x);
+			writeFixedPoint(out, y);
+		} else {
+			out.writeByte(flags);
+			out.writeFloat(x);
+			out.writeFloat(y);
+		}
+	}
+
+	/**
+	 * Reads a position written with the given flags into out.
+	 */
+	private static void readPosition(DataInputStream in, int flags, float[] out) throws IOException {
+		if ((flags & FIXED_POINT) != 0) {
+			out[0] = readFixedPoint(in);
+			out[1] = readFixedPoint(in);
+		} else {
+			out[0] = in.readFloat();
+			out[1] = in.readFloat();
+		}
+	}
+
+	/**
+	 * Returns true if the value is a whole number of fixed point units within
+	 * range. Scaling by a power of two is exact, so the check is too. Negative
+	 * zero would decode as positive zero, so it is not.
+	 */
+	private static boolean isFixedPoint(float value) {
+		float scaled = value * FIXED_POINT_SCALE;
+		return Math.abs(value) < FIXED_POINT_LIMIT && scaled == (int) scaled
+				&& Float.floatToIntBits(value) != Float.floatToIntBits(-0f);
+	}
+
+	/**
+	 * Writes a fixed point value as a zigzag varint, so small negative values
+	 * are short too.
+	 */
+	private static void writeFixedPoint(DataOutputStream out, float value) throws IOException {
+		int fixed = (int) (value * FIXED_POINT_SCALE);
+		Replay.writeVarint(out, (fixed << 1) ^ (fixed >> 31));
+	}
+
+	/**
+	 * Reads a fixed point value.
+	 */
+	private static float readFixedPoint(DataInputStream in) throws IOException {
+		int zigzag = Replay.readVarint(in);
+		int fixed = (zigzag >>> 1) ^ -(zigzag & 1);
+		return fixed / FIXED_POINT_SCALE;
+	}
+
+	/**
+	 * Returns the name of the level.
+	 *
+	 * @return name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the author of the level.
+	 *
+	 * @return author
+	 */
+	public String getAuthor() {
+		return author;
+	}
+
+	/**
+	 * Returns the message shown when the level is loaded.
+	 *
+	 * @return message, or null
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	/**
+	 * Returns the theme of the level.
+	 *
+	 * @return theme
+	 */
+	public String getTheme() {
+		return theme;
+	}
+
+	/**
+	 * Returns the name of the level type.
+	 *
+	 * @return type
+	 */
+	public String getType() {
+		return type;
+	}
+
+	/**
+	 * Returns the integrator the level is played with.
+	 *
+	 * @return integrator type, or null for the default
+	 */
+	public IntegratorType getIntegrator() {
+		return integrator;
+	}
+
+	/**
+	 * Returns the x coordinate of the ship origin.
+	 *
+	 * @return x
+	 */
+	public float getOriginX() {
+		return originX;
+	}
+
+	/**
+	 * Returns the y coordinate of the ship origin.
+	 *
+	 * @return y
+	 */
+	public float getOriginY() {
+		return originY;
+	}
+
+	/**
+	 * Returns the planets of the level. The field is owned by this object;
+	 * copy it before modifying.
+	 *
+	 * @return gravity field
+	 */
+	public GravityField getField() {
+		return field;
+	}
+}
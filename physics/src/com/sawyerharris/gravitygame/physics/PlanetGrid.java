@@ -0,0 +1,285 @@
+package com.sawyerharris.gravitygame.physics;
+
+/**
+ * Uniform grid over the world that buckets planets by the cells they could
+ * collide with the ship in. Each planet is stored in every cell overlapped by
+ * its radius grown by a margin (the ship's radius), so a collision query only
+ * needs to test the planets listed in the ship's own cell.
+ * <p>
+ * Buckets are stored compactly: the planets of cell c are items[cellStart[c]]
+ * to items[cellStart[c + 1] - 1]. Rebuilding only allocates if the item array
+ * has to grow, and queries never allocate.
+ * 
+ * @author Sawyer Harris
+ *
+ */
+public class PlanetGrid {
+	/** Default side length of a cell */
+	public static final float DEFAULT_CELL_SIZE = 160;
+
+	/** Lower left corner of the grid */
+	private final float minX;
+	private final float minY;
+	/** Side length of a cell */
+	private final float cellSize;
+	/** Number of columns and rows */
+	private final int cols;
+	private final int rows;
+
+	/** Index into items of the first planet of each cell, plus an end marker */
+	private final int[] cellStart;
+	/** Write cursor per cell used while building */
+	private final int[] cellFill;
+	/** Planet indices, grouped by cell */
+	private int[] items;
+
+	/** Field, field version and margin the grid was last built with */
+	private GravityField builtField;
+	private int builtVersion;
+	private float builtMargin;
+
+	/** Earliest hit found by the most recent sweep, as a fraction of the segment */
+	private float sweepFraction;
+
+	/**
+	 * Constructs an empty grid covering a world of the given size centered on
+	 * the origin.
+	 * 
+	 * @param worldWidth
+	 * @param worldHeight
+	 * @param cellSize
+	 *            side length of a cell
+	 */
+	public PlanetGrid(float worldWidth, float worldHeight, float cellSize) {
+		if (cellSize <= 0) {
+			throw new IllegalArgumentException("Cell size must be positive.");
+		}
+		this.cellSize = cellSize;
+		minX = -worldWidth / 2;
+		minY = -worldHeight / 2;
+		cols = Math.max(1, (int) Math.ceil(worldWidth / cellSize));
+		rows = Math.max(1, (int) Math.ceil(worldHeight / cellSize));
+		cellStart = new int[cols * rows + 1];
+		cellFill = new int[cols * rows];
+		items = new int[64];
+		builtField = null;
+	}
+
+	/**
+	 * Returns whether the grid reflects the current contents of the field.
+	 * 
+	 * @param field
+	 * @return true if the grid is up to date
+	 */
+	public boolean isCurrent(GravityField field) {
+		return field == builtField && field.version == builtVersion;
+	}
+
+	/**
+	 * Rebuckets all planets of the field.
+	 * 
+	 * @param field
+	 *            gravity sources
+	 * @param margin
+	 *            distance added to each planet's radius, normally the ship's
+	 *            radius
+	 */
+	public void build(GravityField field, float margin) {
+		int numCells = cols * rows;
+		for (int c = 0; c <= numCells; c++) {
+			cellStart[c] = 0;
+		}
+
+		// Count planets per cell, shifted by one so the prefix sum gives starts
+		for (int i = 0; i < field.size; i++) {
+			float reach = field.radius[i] + margin;
+			int col0 = col(field.x[i] - reach);
+			int col1 = col(field.x[i] + reach);
+			int row0 = row(field.y[i] - reach);
+			int row1 = row(field.y[i] + reach);
+			for (int r = row0; r <= row1; r++) {
+				for (int c = col0; c <= col1; c++) {
+					cellStart[r * cols + c + 1]++;
+				}
+			}
+		}
+		for (int c = 0; c < numCells; c++) {
+			cellStart[c + 1] += cellStart[c];
+		}
+		int total = cellStart[numCells];
+		if (total > items.length) {
+			items = new int[Math.max(total, items.length * 2)];
+		}
+
+		// Fill buckets in planet order
+		System.arraycopy(cellStart, 0, cellFill, 0, numCells);
+		for (int i = 0; i < field.size; i++) {
+			float reach = field.radius[i] + margin;
+			int col0 = col(field.x[i] - reach);
+			int col1 = col(field.x[i] + reach);
+			int row0 = row(field.y[i] - reach);
+			int row1 = row(field.y[i] + reach);
+			for (int r = row0; r <= row1; r++) {
+				for (int c = col0; c <= col1; c++) {
+					items[cellFill[r * cols + c]++] = i;
+				}
+			}
+		}
+
+		builtField = field;
+		builtVersion = field.version;
+		builtMargin = margin;
+	}
+
+	/**
+	 * Finds the first planet a circle of radius margin touches while moving in
+	 * a straight line between two positions. Only planets bucketed in the
+	 * cells covering the segment are tested. The grid must be current.
+	 * 
+	 * @param field
+	 *            field the grid was built from
+	 * @param x0
+	 * @param y0
+	 *            start position
+	 * @param x1
+	 * @param y1
+	 *            end position
+	 * @return index of the planet hit first, or -1 if none
+	 */
+	public int sweep(GravityField field, float x0, float y0, float x1, float y1) {
+		float[] px = field.x;
+		float[] py = field.y;
+		float[] radius = field.radius;
+		float dx = x1 - x0;
+		float dy = y1 - y0;
+		float a = dx * dx + dy * dy;
+
+		int hit = -1;
+		float best = 1;
+		int col0 = col(Math.min(x0, x1));
+		int col1 = col(Math.max(x0, x1));
+		int row0 = row(Math.min(y0, y1));
+		int row1 = row(Math.max(y0, y1));
+		for (int r = row0; r <= row1; r++) {
+			for (int c = col0; c <= col1; c++) {
+				int cell = r * cols + c;
+				int end = cellStart[cell + 1];
+				for (int k = cellStart[cell]; k < end; k++) {
+					int i = items[k];
+					// Solve |p0 + t * d - center| = reach for the smallest t
+					float fx = x0 - px[i];
+					float fy = y0 - py[i];
+					float reach = radius[i] + builtMargin;
+					float cc = fx * fx + fy * fy - reach * reach;
+					if (cc < 0) {
+						// Already overlapping at the start of the segment
+						sweepFraction = 0;
+						return i;
+					}
+					if (a == 0) {
+						continue;
+					}
+					float b = fx * dx + fy * dy;
+					if (b >= 0) {
+						// Moving away from the planet
+						continue;
+					}
+					float disc = b * b - a * cc;
+					if (disc < 0) {
+						continue;
+					}
+					float t = (-b - (float) Math.sqrt(disc)) / a;
+					if (t <= best) {
+						best = t;
+						hit = i;
+					}
+				}
+			}
+		}
+		sweepFraction = best;
+		return hit;
+	}
+
+	/**
+	 * Returns how far along the segment the most recent sweep hit.
+	 * 
+	 * @return fraction between 0 and 1
+	 */
+	public float getSweepFraction() {
+		return sweepFraction;
+	}
+
+	/**
+	 * Returns the column containing the given x coordinate, clamped to the
+	 * grid.
+	 * 
+	 * @param x
+	 * @return column
+	 */
+	public int col(float x) {
+		int c = (int) ((x - minX) / cellSize);
+		return c < 0 ? 0 : (c >= cols ? cols - 1 : c);
+	}
+
+	/**
+	 * Returns the row containing the given y coordinate, clamped to the grid.
+	 * 
+	 * @param y
+	 * @return row
+	 */
+	public int row(float y) {
+		int r = (int) ((y - minY) / cellSize);
+		return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+	}
+
+	/**
+	 * Returns the cell containing the given position, clamped to the grid.
+	 * 
+	 * @param x
+	 * @param y
+	 * @return cell index
+	 */
+	public int cellOf(float x, float y) {
+		return row(y) * cols + col(x);
+	}
+
+	/**
+	 * Returns the number of columns.
+	 * 
+	 * @return cols
+	 */
+	public int getCols() {
+		return cols;
+	}
+
+	/**
+	 * Returns the index of the first item of a cell.
+	 * 
+	 * @param cell
+	 * @return start index, inclusive
+	 */
+	public int start(int cell) {
+		return cellStart[cell];
+	}
+
+	/**
+	 * Returns the index after the last item of a cell.
+	 * 
+	 * @param cell
+	 * @return end index, exclusive
+	 */
+	public int end(int cell) {
+		return cellStart[cell + 1];
+	}
+
+	/**
+	 * Returns the planet index stored at the given item index.
+	 * 
+	 * @param index
+	 *            item index between start and end of some cell
+	 * @return planet index
+	 */
+	public int item(int index) {
+		return items[index];
+	}
+}
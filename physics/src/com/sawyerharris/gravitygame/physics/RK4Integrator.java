@@ -0,0 +1,82 @@
+package com.sawyerharris.gravitygame.physics;
+
+/**
+ * Runge-Kutta 4th order integrator for ship motion. All intermediate stage
+ * values are held in primitive fields of the integrator, so a step over any
+ * number of planets performs no heap allocation.
+ * 
+ * @author Sawyer Harris
+ *
+ */
+public class RK4Integrator implements Integrator {
+	/** Output of the most recent gravity evaluation */
+	private final float[] gravity = new float[2];
+	/** Output of the most recent acceleration evaluation */
+	private float accX;
+	private float accY;
+
+	@Override
+	public void step(ShipState state, GravityField field, float dt) {
+		float x = state.x;
+		float y = state.y;
+		float vx = state.vx;
+		float vy = state.vy;
+		float halfDt = dt / 2;
+
+		// Stage 1 at the start of the step
+		computeAccel(x, y, state, field);
+		float k1x = vx;
+		float k1y = vy;
+		float k1vx = accX;
+		float k1vy = accY;
+
+		// Stage 2 at the midpoint using stage 1 derivatives
+		float k2x = vx + k1vx * halfDt;
+		float k2y = vy + k1vy * halfDt;
+		computeAccel(x + k1x * halfDt, y + k1y * halfDt, state, field);
+		float k2vx = accX;
+		float k2vy = accY;
+
+		// Stage 3 at the midpoint using stage 2 derivatives
+		float k3x = vx + k2vx * halfDt;
+		float k3y = vy + k2vy * halfDt;
+		computeAccel(x + k2x * halfDt, y + k2y * halfDt, state, field);
+		float k3vx = accX;
+		float k3vy = accY;
+
+		// Stage 4 at the end of the step using stage 3 derivatives
+		float k4x = vx + k3vx * dt;
+		float k4y = vy + k3vy * dt;
+		computeAccel(x + k3x * dt, y + k3y * dt, state, field);
+		float k4vx = accX;
+		float k4vy = accY;
+
+		float sixthDt = dt / 6;
+		state.x = x + sixthDt * (k1x + 2 * k2x + 2 * k3x + k4x);
+		state.y = y + sixthDt * (k1y + 2 * k2y + 2 * k3y + k4y);
+		state.vx = vx + sixthDt * (k1vx + 2 * k2vx + 2 * k3vx + k4vx);
+		state.vy = vy + sixthDt * (k1vy + 2 * k2vy + 2 * k3vy + k4vy);
+	}
+
+	@Override
+	public void reset() {
+		// Nothing is carried between steps
+	}
+
+	/**
+	 * Computes the acceleration at the given position due to the gravity of
+	 * the field and the ship's thrust. Result is stored in accX, accY.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param state
+	 *            ship state holding thrust
+	 * @param field
+	 *            gravity sources
+	 */
+	private void computeAccel(float x, float y, ShipState state, GravityField field) {
+		field.acceleration(x, y, gravity);
+		accX = gravity[0] + state.thrustX;
+		accY = gravity[1] + state.thrustY;
+	}
+}
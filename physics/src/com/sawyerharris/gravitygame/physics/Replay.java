@@ -0,0 +1,293 @@
+package com.sawyerharris.gravitygame.physics;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Recorded attempt at a level: the player's input plus everything needed to
+ * re-run it deterministically, i.e. a hash of the level, the integrator, the
+ * tick length and the number of substeps each tick was integrated as. Replays
+ * are small because they store input rather than trajectories.
+ * <p>
+ * Binary format, big endian:
+ * 
+ * <pre>
+ * int     magic "GGR" followed by format version
+ * long    level hash
+ * byte    integrator ordinal
+ * float   tick length
+ * byte    substeps per tick
+ * float   launch x, launch y
+ * varint  number of boost toggles
+ * varint  substep of each toggle, as the difference from the previous one
+ * </pre>
+ * 
+ * Version 2 replays have no substeps byte and are read as one substep per
+ * tick.
+ * 
+ * @author Sawyer Harris
+ *
+ */
+public class Replay {
+	/**
+	 * "GGR" followed by format version 3. Version 1 replays were recorded
+	 * with step-counted boost and no longer play back the same.
+	 */
+	private static final int MAGIC = 0x47475203;
+	/** "GGR" followed by format version 2, without substeps */
+	private static final int MAGIC_V2 = 0x47475202;
+
+	/** Hash of the level the attempt was made on */
+	private final long levelHash;
+	/** Integrator used */
+	private final IntegratorType integrator;
+	/** Length of a tick */
+	private final float step;
+	/** Number of substeps each tick was integrated as */
+	private final int substeps;
+	/** Player input */
+	private final FlightInput input;
+
+	/**
+	 * Constructs a replay of an attempt run as one step per tick.
+	 * 
+	 * @param levelHash
+	 *            hash of the level, see hashLevel
+	 * @param integrator
+	 *            integrator used
+	 * @param step
+	 *            length of a tick
+	 * @param input
+	 *            player input
+	 */
+	public Replay(long levelHash, IntegratorType integrator, float step, FlightInput input) {
+		this(levelHash, integrator, step, 1, input);
+	}
+
+	/**
+	 * Constructs a replay.
+	 * 
+	 * @param levelHash
+	 *            hash of the level, see hashLevel
+	 * @param integrator
+	 *            integrator used
+	 * @param step
+	 *            length of a tick
+	 * @param substeps
+	 *            number of substeps each tick was integrated as, from 1 to
+	 *            FixedTimestep.MAX_SUBSTEPS
+	 * @param input
+	 *            player input, with toggles counted in substeps
+	 */
+	public Replay(long levelHash, IntegratorType integrator, float step, int substeps, FlightInput input) {
+		if (step <= 0) {
+			throw new IllegalArgumentException("Step must be positive.");
+		}
+		if (substeps < 1 || substeps > FixedTimestep.MAX_SUBSTEPS) {
+			throw new IllegalArgumentException("Substeps must be from 1 to " + FixedTimestep.MAX_SUBSTEPS + ".");
+		}
+		this.levelHash = levelHash;
+		this.integrator = integrator;
+		this.step = step;
+		this.substeps = substeps;
+		this.input = input;
+	}
+
+	/**
+	 * Hashes everything about a level that affects the physics: the ship's
+	 * origin and each planet's position, radius and home status, in order.
+	 * Uses 64 bit FNV-1a over the exact bits of each value.
+	 * 
+	 * @param field
+	 *            planets of the level
+	 * @param originX
+	 * @param originY
+	 *            ship origin
+	 * @return hash
+	 */
+	public static long hashLevel(GravityField field, float originX, float originY) {
+		long hash = 0xcbf29ce484222325L;
+		hash = mix(hash, Float.floatToIntBits(originX));
+		hash = mix(hash, Float.floatToIntBits(originY));
+		hash = mix(hash, field.size);
+		for (int i = 0; i < field.size; i++) {
+			hash = mix(hash, Float.floatToIntBits(field.x[i]));
+			hash = mix(hash, Float.floatToIntBits(field.y[i]));
+			hash = mix(hash, Float.floatToIntBits(field.radius[i]));
+			hash = mix(hash, field.home[i] ? 1 : 0);
+		}
+		return hash;
+	}
+
+	/**
+	 * Mixes the four bytes of a value into an FNV-1a hash.
+	 */
+	private static long mix(long hash, int value) {
+		for (int shift = 0; shift < 32; shift += 8) {
+			hash ^= (value >>> shift) & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * Encodes the replay in the binary format.
+	 * 
+	 * @return bytes
+	 */
+	public byte[] toBytes() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + input.getToggleCount() * 2);
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(MAGIC);
+			out.writeLong(levelHash);
+			out.writeByte(integrator.ordinal());
+			out.writeFloat(step);
+			out.writeByte(substeps);
+			out.writeFloat(input.getLaunchX());
+			out.writeFloat(input.getLaunchY());
+			writeVarint(out, input.getToggleCount());
+			int previous = 0;
+			for (int i = 0; i < input.getToggleCount(); i++) {
+				int toggle = input.getToggle(i);
+				writeVarint(out, toggle - previous);
+				previous = toggle;
+			}
+		} catch (IOException e) {
+			// Not thrown by a ByteArrayOutputStream
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Decodes a replay from the binary format.
+	 * 
+	 * @param bytes
+	 * @return replay
+	 * @throws IllegalArgumentException
+	 *             if the bytes are not a valid replay
+	 */
+	public static Replay fromBytes(byte[] bytes) throws IllegalArgumentException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		try {
+			int magic = in.readInt();
+			if (magic != MAGIC && magic != MAGIC_V2) {
+				throw new IllegalArgumentException("Not a replay, or unsupported version.");
+			}
+			long levelHash = in.readLong();
+			int ordinal = in.readUnsignedByte();
+			IntegratorType[] types = IntegratorType.values();
+			if (ordinal >= types.length) {
+				throw new IllegalArgumentException("Unknown integrator: " + ordinal);
+			}
+			float step = in.readFloat();
+			int substeps = magic == MAGIC ? in.readUnsignedByte() : 1;
+			FlightInput input = new FlightInput(in.readFloat(), in.readFloat());
+			int count = readVarint(in);
+			int toggle = 0;
+			for (int i = 0; i < count; i++) {
+				toggle += readVarint(in);
+				input.addToggle(toggle);
+			}
+			return new Replay(levelHash, types[ordinal], step, substeps, input);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Truncated replay.", e);
+		}
+	}
+
+	/**
+	 * Writes an unsigned LEB128 varint: seven bits per byte, low bits first,
+	 * high bit set on all but the last byte. Also used by LevelData.
+	 */
+	static void writeVarint(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7f) != 0) {
+			out.writeByte((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	/**
+	 * Reads an unsigned LEB128 varint.
+	 */
+	static int readVarint(DataInputStream in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				if (value < 0) {
+					throw new IllegalArgumentException("Varint out of range.");
+				}
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Varint too long.");
+	}
+
+	/**
+	 * Returns the hash of the level the attempt was made on.
+	 * 
+	 * @return level hash
+	 */
+	public long getLevelHash() {
+		return levelHash;
+	}
+
+	/**
+	 * Returns the integrator used.
+	 * 
+	 * @return integrator type
+	 */
+	public IntegratorType getIntegrator() {
+		return integrator;
+	}
+
+	/**
+	 * Returns the length of a tick.
+	 * 
+	 * @return step
+	 */
+	public float getStep() {
+		return step;
+	}
+
+	/**
+	 * Returns the number of substeps each tick was integrated as.
+	 * 
+	 * @return substeps
+	 */
+	public int getSubsteps() {
+		return substeps;
+	}
+
+	/**
+	 * Returns the length of a substep, the step the simulation was advanced
+	 * by. Computed as FixedTimestep.getSubstep does, so it is bit for bit the
+	 * same.
+	 * 
+	 * @return substep length
+	 */
+	public float getSubstep() {
+		return step / substeps;
+	}
+
+	/**
+	 * Returns the player input.
+	 * 
+	 * @return input
+	 */
+	public FlightInput getInput() {
+		return input;
+	}
+
+	@Override
+	public String toString() {
+		return "Replay [levelHash=" + Long.toHexString(levelHash) + ", integrator=" + integrator + ", step=" + step
+				+ ", substeps=" + substeps + ", input=" + input + "]";
+	}
+}
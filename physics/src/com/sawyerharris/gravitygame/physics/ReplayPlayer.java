@@ -0,0 +1,71 @@
+package com.sawyerharris.gravitygame.physics;
+
+/**
+ * Re-runs a Replay through a Simulation as fast as possible, e.g. to reproduce
+ * bugs or to verify a score. The simulation must hold the level the replay was
+ * recorded on.
+ * 
+ * @author Sawyer Harris
+ *
+ */
+public class ReplayPlayer {
+	/** Simulation replays are run in */
+	private final Simulation simulation;
+
+	/**
+	 * Constructs a player that runs replays in the given simulation.
+	 * 
+	 * @param simulation
+	 */
+	public ReplayPlayer(Simulation simulation) {
+		this.simulation = simulation;
+	}
+
+	/**
+	 * Returns whether a replay was recorded on the level held by the
+	 * simulation.
+	 * 
+	 * @param replay
+	 * @return true if the level hashes match
+	 */
+	public boolean matchesLevel(Replay replay) {
+		return replay.getLevelHash() == Replay.hashLevel(simulation.getField(), simulation.getOriginX(),
+				simulation.getOriginY());
+	}
+
+	/**
+	 * Runs a replay from the start until the ship collides or the step limit
+	 * is reached. Afterwards the simulation holds the final state, e.g. its
+	 * step count and impact time.
+	 * 
+	 * @param replay
+	 * @param maxSteps
+	 *            most steps to run, counting each substep
+	 * @return collision that ended the attempt, or NONE if the limit was hit
+	 * @throws IllegalArgumentException
+	 *             if the replay was recorded on a different level
+	 */
+	public CollisionEvent play(Replay replay, int maxSteps) throws IllegalArgumentException {
+		if (!matchesLevel(replay)) {
+			throw new IllegalArgumentException("Replay was recorded on a different level.");
+		}
+		simulation.setIntegrator(replay.getIntegrator().create());
+		simulation.reset();
+		FlightInput input = replay.getInput();
+		simulation.launch(input.getLaunchX(), input.getLaunchY());
+
+		float step = replay.getSubstep();
+		int next = 0;
+		for (int i = 0; i < maxSteps; i++) {
+			while (next < input.getToggleCount() && input.getToggle(next) <= simulation.getSteps()) {
+				simulation.setBoosting(next % 2 == 0);
+				next++;
+			}
+			CollisionEvent event = simulation.step(step);
+			if (event != CollisionEvent.NONE) {
+				return event;
+			}
+		}
+		return CollisionEvent.NONE;
+	}
+}
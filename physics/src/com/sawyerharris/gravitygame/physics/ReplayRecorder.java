@@ -0,0 +1,82 @@
+package com.sawyerharris.gravitygame.physics;
+
+/**
+ * Records an attempt in a Simulation as a Replay. Call start after the ship
+ * is launched, record before every step, including every substep, and finish
+ * when the attempt ends.
+ * 
+ * @author Sawyer Harris
+ *
+ */
+public class ReplayRecorder {
+	/** Simulation being recorded */
+	private Simulation simulation;
+	/** Hash of the level being recorded */
+	private long levelHash;
+	/** Integrator, tick length and substeps per tick of the attempt */
+	private IntegratorType integrator;
+	private float step;
+	private int substeps;
+	/** Input recorded so far */
+	private FlightInput input;
+	/** Boost state last recorded */
+	private boolean boosting;
+
+	/**
+	 * Starts recording an attempt. The ship must already be launched.
+	 * 
+	 * @param simulation
+	 *            simulation the attempt runs in
+	 * @param integrator
+	 *            type of the simulation's integrator
+	 * @param step
+	 *            length of each tick
+	 * @param substeps
+	 *            number of substeps each tick is integrated as
+	 */
+	public void start(Simulation simulation, IntegratorType integrator, float step, int substeps) {
+		this.simulation = simulation;
+		this.integrator = integrator;
+		this.step = step;
+		this.substeps = substeps;
+		levelHash = Replay.hashLevel(simulation.getField(), simulation.getOriginX(), simulation.getOriginY());
+		ShipState ship = simulation.getShip();
+		input = new FlightInput(ship.vx, ship.vy);
+		boosting = false;
+	}
+
+	/**
+	 * Records any change in boost since the last call. Must be called before
+	 * every step.
+	 */
+	public void record() {
+		if (input != null && simulation.isBoosting() != boosting) {
+			boosting = !boosting;
+			input.addToggle(simulation.getSteps());
+		}
+	}
+
+	/**
+	 * Returns the input recorded so far, e.g. to replay as a ghost.
+	 * 
+	 * @return input, or null if not recording
+	 */
+	public FlightInput getInput() {
+		return input;
+	}
+
+	/**
+	 * Stops recording.
+	 * 
+	 * @return the recorded replay, or null if not recording
+	 */
+	public Replay finish() {
+		if (input == null) {
+			return null;
+		}
+		Replay replay = new Replay(levelHash, integrator, step, substeps, input);
+		input = null;
+		simulation = null;
+		return replay;
+	}
+}
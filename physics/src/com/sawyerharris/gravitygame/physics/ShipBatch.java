@@ -0,0 +1,613 @@
+package com.sawyerharris.gravitygame.physics;
+
+/**
+ * Simulates many ships flying through the same field at once, such as ghosts
+ * of earlier attempts. Each ship replays a FlightInput from a shared origin.
+ * Ship state is kept in parallel arrays and every integrator stage evaluates
+ * gravity for all ships in flight with a single call to
+ * GravityField.accelerations, so per-ship overhead is small. Ships stop when
+ * they hit a planet or leave the world, and then cost nothing.
+ * <p>
+ * Ships are integrated with RK4 or Verlet, see supports. Steps give exactly
+ * the same results as Simulation with the same integrator, so a ship
+ * replaying a flight recorded there follows the same path. The adaptive
+ * Dormand-Prince integrator keeps per-ship step size state and is not
+ * batched.
+ * 
+ * @author Sawyer Harris
+ *
+ */
+public class ShipBatch {
+	/** Half width, height of world centered on the origin */
+	private final float halfWidth;
+	private final float halfHeight;
+	/** Broad-phase index of planets for collision checks */
+	private final PlanetGrid grid;
+
+	/** Ship starting position */
+	private float originX;
+	private float originY;
+
+	/** Integrator the ships are stepped with */
+	private IntegratorType integrator;
+
+	/** Number of ships */
+	private int count;
+	/** Number of steps taken since reset */
+	private int steps;
+
+	/** Input replayed by each ship */
+	private FlightInput[] inputs;
+	/** Position and velocity of each ship */
+	private float[] x;
+	private float[] y;
+	private float[] vx;
+	private float[] vy;
+	/** Position of each ship before the most recent step */
+	private float[] prevX;
+	private float[] prevY;
+	/** Position of each ship at the start of the current tick */
+	private float[] tickX;
+	private float[] tickY;
+	/** Thrust of each ship over the current step */
+	private float[] thrustX;
+	private float[] thrustY;
+	/** Boost remaining in seconds, and whether each ship is boosting */
+	private float[] fuel;
+	private boolean[] boosting;
+	/** Index of the next boost toggle of each ship */
+	private int[] nextToggle;
+	/** Collision that stopped each ship, or NONE if still flying */
+	private CollisionEvent[] events;
+	/** Gravity at the end of each ship's previous Verlet step */
+	private float[] gravityX;
+	private float[] gravityY;
+	/** Whether each ship's Verlet gravity may be reused */
+	private boolean[] gravityKnown;
+	/** Field and field version the Verlet gravity was evaluated in */
+	private GravityField gravityField;
+	private int gravityVersion;
+
+	/** Indices of ships in flight during the current step */
+	private int[] order;
+	/** Stage positions and accelerations, indexed by position in order */
+	private float[] ex;
+	private float[] ey;
+	private float[] ax;
+	private float[] ay;
+	/** RK4 stage derivatives, indexed by position in order */
+	private float[] k1vx;
+	private float[] k1vy;
+	private float[] k2x;
+	private float[] k2y;
+	private float[] k2vx;
+	private float[] k2vy;
+	private float[] k3x;
+	private float[] k3y;
+	private float[] k3vx;
+	private float[] k3vy;
+
+	/**
+	 * Constructs an empty batch for a world of the given size centered on the
+	 * origin.
+	 * 
+	 * @param worldWidth
+	 * @param worldHeight
+	 */
+	public ShipBatch(float worldWidth, float worldHeight) {
+		halfWidth = worldWidth / 2;
+		halfHeight = worldHeight / 2;
+		grid = new PlanetGrid(worldWidth, worldHeight, PlanetGrid.DEFAULT_CELL_SIZE);
+		integrator = IntegratorType.RK4;
+		allocate(16);
+	}
+
+	/**
+	 * Returns whether ships can be batched with the given integrator.
+	 * 
+	 * @param type
+	 * @return true for RK4 and Verlet
+	 */
+	public static boolean supports(IntegratorType type) {
+		return type == IntegratorType.RK4 || type == IntegratorType.VERLET;
+	}
+
+	/**
+	 * Sets the integrator ships are stepped with, normally the level's, and
+	 * returns every ship to the origin.
+	 * 
+	 * @param type
+	 * @throws IllegalArgumentException
+	 *             if the integrator is not supported
+	 */
+	public void setIntegratorType(IntegratorType type) throws IllegalArgumentException {
+		if (!supports(type)) {
+			throw new IllegalArgumentException("Ships cannot be batched with " + type + ".");
+		}
+		integrator = type;
+		reset();
+	}
+
+	/**
+	 * Returns the integrator ships are stepped with.
+	 * 
+	 * @return integrator type
+	 */
+	public IntegratorType getIntegratorType() {
+		return integrator;
+	}
+
+	/**
+	 * Sets the position all ships start from.
+	 * 
+	 * @param x
+	 * @param y
+	 */
+	public void setOrigin(float x, float y) {
+		originX = x;
+		originY = y;
+	}
+
+	/**
+	 * Adds a ship that replays the given input from the origin.
+	 * 
+	 * @param input
+	 * @return index of the ship
+	 */
+	public int add(FlightInput input) {
+		if (count == inputs.length) {
+			allocate(count * 2);
+		}
+		inputs[count] = input;
+		resetShip(count);
+		return count++;
+	}
+
+	/**
+	 * Removes all ships.
+	 */
+	public void clear() {
+		for (int i = 0; i < count; i++) {
+			inputs[i] = null;
+		}
+		count = 0;
+		steps = 0;
+	}
+
+	/**
+	 * Returns every ship to the origin to replay its input from the start.
+	 */
+	public void reset() {
+		for (int i = 0; i < count; i++) {
+			resetShip(i);
+		}
+		steps = 0;
+	}
+
+	/**
+	 * Puts a ship at the origin with its launch velocity and full boost.
+	 */
+	private void resetShip(int i) {
+		x[i] = originX;
+		y[i] = originY;
+		prevX[i] = originX;
+		prevY[i] = originY;
+		tickX[i] = originX;
+		tickY[i] = originY;
+		vx[i] = inputs[i].getLaunchX();
+		vy[i] = inputs[i].getLaunchY();
+		thrustX[i] = 0;
+		thrustY[i] = 0;
+		fuel[i] = Simulation.MAX_BOOST;
+		boosting[i] = false;
+		nextToggle[i] = 0;
+		events[i] = CollisionEvent.NONE;
+		gravityKnown[i] = false;
+	}
+
+	/**
+	 * Marks the start of a tick that may be run as several steps, so ships can
+	 * be drawn between their positions at the start and end of the tick.
+	 */
+	public void startTick() {
+		for (int i = 0; i < count; i++) {
+			tickX[i] = x[i];
+			tickY[i] = y[i];
+		}
+	}
+
+	/**
+	 * Advances every ship in flight by dt and stops those that collide. Does
+	 * not allocate.
+	 * 
+	 * @param field
+	 *            gravity sources
+	 * @param dt
+	 *            amount of time to advance
+	 */
+	public void step(GravityField field, float dt) {
+		int n = 0;
+		for (int i = 0; i < count; i++) {
+			if (events[i] == CollisionEvent.NONE) {
+				order[n++] = i;
+				prevX[i] = x[i];
+				prevY[i] = y[i];
+				updateThrust(i, dt);
+			}
+		}
+		if (n == 0) {
+			steps++;
+			return;
+		}
+
+		if (integrator == IntegratorType.VERLET) {
+			stepVerlet(field, dt, n);
+		} else {
+			stepRK4(field, dt, n);
+		}
+
+		if (!grid.isCurrent(field)) {
+			grid.build(field, Simulation.SHIP_RADIUS);
+		}
+		for (int j = 0; j < n; j++) {
+			int i = order[j];
+			int hit = grid.sweep(field, prevX[i], prevY[i], x[i], y[i]);
+			if (hit >= 0) {
+				float t = grid.getSweepFraction();
+				x[i] = prevX[i] + (x[i] - prevX[i]) * t;
+				y[i] = prevY[i] + (y[i] - prevY[i]) * t;
+				events[i] = field.home[hit] ? CollisionEvent.HOME : CollisionEvent.PLANET;
+			} else if (x[i] < -halfWidth || x[i] > halfWidth || y[i] < -halfHeight || y[i] > halfHeight) {
+				events[i] = CollisionEvent.OUT_OF_BOUNDS;
+			}
+		}
+		steps++;
+	}
+
+	/**
+	 * Advances the n ships in order by an RK4 step, as RK4Integrator does.
+	 */
+	private void stepRK4(GravityField field, float dt, int n) {
+		float halfDt = dt / 2;
+
+		// Stage 1 at the start of the step
+		for (int j = 0; j < n; j++) {
+			int i = order[j];
+			ex[j] = x[i];
+			ey[j] = y[i];
+		}
+		field.accelerations(ex, ey, ax, ay, n);
+		for (int j = 0; j < n; j++) {
+			int i = order[j];
+			k1vx[j] = ax[j] + thrustX[i];
+			k1vy[j] = ay[j] + thrustY[i];
+			// Stage 2 at the midpoint using stage 1 derivatives
+			k2x[j] = vx[i] + k1vx[j] * halfDt;
+			k2y[j] = vy[i] + k1vy[j] * halfDt;
+			ex[j] = x[i] + vx[i] * halfDt;
+			ey[j] = y[i] + vy[i] * halfDt;
+		}
+		field.accelerations(ex, ey, ax, ay, n);
+		for (int j = 0; j < n; j++) {
+			int i = order[j];
+			k2vx[j] = ax[j] + thrustX[i];
+			k2vy[j] = ay[j] + thrustY[i];
+			// Stage 3 at the midpoint using stage 2 derivatives
+			k3x[j] = vx[i] + k2vx[j] * halfDt;
+			k3y[j] = vy[i] + k2vy[j] * halfDt;
+			ex[j] = x[i] + k2x[j] * halfDt;
+			ey[j] = y[i] + k2y[j] * halfDt;
+		}
+		field.accelerations(ex, ey, ax, ay, n);
+		for (int j = 0; j < n; j++) {
+			int i = order[j];
+			k3vx[j] = ax[j] + thrustX[i];
+			k3vy[j] = ay[j] + thrustY[i];
+			// Stage 4 at the end of the step using stage 3 derivatives
+			ex[j] = x[i] + k3x[j] * dt;
+			ey[j] = y[i] + k3y[j] * dt;
+		}
+		field.accelerations(ex, ey, ax, ay, n);
+
+		float sixthDt = dt / 6;
+		for (int j = 0; j < n; j++) {
+			int i = order[j];
+			float k4x = vx[i] + k3vx[j] * dt;
+			float k4y = vy[i] + k3vy[j] * dt;
+			float k4vx = ax[j] + thrustX[i];
+			float k4vy = ay[j] + thrustY[i];
+			x[i] = x[i] + sixthDt * (vx[i] + 2 * k2x[j] + 2 * k3x[j] + k4x);
+			y[i] = y[i] + sixthDt * (vy[i] + 2 * k2y[j] + 2 * k3y[j] + k4y);
+			vx[i] = vx[i] + sixthDt * (k1vx[j] + 2 * k2vx[j] + 2 * k3vx[j] + k4vx);
+			vy[i] = vy[i] + sixthDt * (k1vy[j] + 2 * k2vy[j] + 2 * k3vy[j] + k4vy);
+		}
+	}
+
+	/**
+	 * Advances the n ships in order by a kick-drift-kick step, as
+	 * VerletIntegrator does. Gravity at the end of a step is reused at the
+	 * start of the next unless the ship was reset or the field changed.
+	 */
+	private void stepVerlet(GravityField field, float dt, int n) {
+		if (field != gravityField || field.version != gravityVersion) {
+			for (int i = 0; i < count; i++) {
+				gravityKnown[i] = false;
+			}
+			gravityField = field;
+			gravityVersion = field.version;
+		}
+		boolean known = true;
+		for (int j = 0; j < n; j++) {
+			known &= gravityKnown[order[j]];
+		}
+		if (!known) {
+			// Gravity is the same for every ship that already knows it, so
+			// evaluate it for all of them at once
+			for (int j = 0; j < n; j++) {
+				int i = order[j];
+				ex[j] = x[i];
+				ey[j] = y[i];
+			}
+			field.accelerations(ex, ey, ax, ay, n);
+			for (int j = 0; j < n; j++) {
+				int i = order[j];
+				gravityX[i] = ax[j];
+				gravityY[i] = ay[j];
+				gravityKnown[i] = true;
+			}
+		}
+
+		float halfDt = dt / 2;
+		for (int j = 0; j < n; j++) {
+			int i = order[j];
+			// Kick
+			k1vx[j] = vx[i] + (gravityX[i] + thrustX[i]) * halfDt;
+			k1vy[j] = vy[i] + (gravityY[i] + thrustY[i]) * halfDt;
+			// Drift
+			x[i] += k1vx[j] * dt;
+			y[i] += k1vy[j] * dt;
+			ex[j] = x[i];
+			ey[j] = y[i];
+		}
+		field.accelerations(ex, ey, ax, ay, n);
+		for (int j = 0; j < n; j++) {
+			int i = order[j];
+			// Kick
+			vx[i] = k1vx[j] + (ax[j] + thrustX[i]) * halfDt;
+			vy[i] = k1vy[j] + (ay[j] + thrustY[i]) * halfDt;
+			gravityX[i] = ax[j];
+			gravityY[i] = ay[j];
+		}
+	}
+
+	/**
+	 * Applies any boost toggles due this step, then sets the ship's thrust
+	 * and burns its fuel the same way Simulation and ShipState do.
+	 */
+	private void updateThrust(int i, float dt) {
+		FlightInput input = inputs[i];
+		while (nextToggle[i] < input.getToggleCount() && input.getToggle(nextToggle[i]) <= steps) {
+			boolean on = nextToggle[i] % 2 == 0;
+			boosting[i] = on && fuel[i] > 0;
+			nextToggle[i]++;
+		}
+
+		thrustX[i] = 0;
+		thrustY[i] = 0;
+		if (boosting[i]) {
+			if (fuel[i] > 0) {
+				float speed = (float) Math.sqrt(vx[i] * vx[i] + vy[i] * vy[i]);
+				if (speed != 0) {
+					thrustX[i] = vx[i] / speed * Simulation.BOOST_SCALAR;
+					thrustY[i] = vy[i] / speed * Simulation.BOOST_SCALAR;
+					if (fuel[i] < dt) {
+						float fraction = fuel[i] / dt;
+						thrustX[i] *= fraction;
+						thrustY[i] *= fraction;
+						fuel[i] = 0;
+					} else {
+						fuel[i] -= dt;
+					}
+				}
+			} else {
+				// Ran out of boost
+				boosting[i] = false;
+			}
+		}
+	}
+
+	/**
+	 * Grows all arrays to the given capacity, keeping existing ships.
+	 */
+	private void allocate(int capacity) {
+		FlightInput[] newInputs = new FlightInput[capacity];
+		float[] newFuel = new float[capacity];
+		boolean[] newBoosting = new boolean[capacity];
+		int[] newNextToggle = new int[capacity];
+		CollisionEvent[] newEvents = new CollisionEvent[capacity];
+		boolean[] newGravityKnown = new boolean[capacity];
+		if (inputs != null) {
+			System.arraycopy(inputs, 0, newInputs, 0, count);
+			System.arraycopy(fuel, 0, newFuel, 0, count);
+			System.arraycopy(boosting, 0, newBoosting, 0, count);
+			System.arraycopy(nextToggle, 0, newNextToggle, 0, count);
+			System.arraycopy(events, 0, newEvents, 0, count);
+			System.arraycopy(gravityKnown, 0, newGravityKnown, 0, count);
+		}
+		inputs = newInputs;
+		fuel = newFuel;
+		boosting = newBoosting;
+		nextToggle = newNextToggle;
+		events = newEvents;
+		gravityKnown = newGravityKnown;
+
+		x = copyOf(x, capacity);
+		y = copyOf(y, capacity);
+		vx = copyOf(vx, capacity);
+		vy = copyOf(vy, capacity);
+		prevX = copyOf(prevX, capacity);
+		prevY = copyOf(prevY, capacity);
+		tickX = copyOf(tickX, capacity);
+		tickY = copyOf(tickY, capacity);
+		thrustX = copyOf(thrustX, capacity);
+		thrustY = copyOf(thrustY, capacity);
+		gravityX = copyOf(gravityX, capacity);
+		gravityY = copyOf(gravityY, capacity);
+
+		// Scratch arrays hold nothing between steps
+		order = new int[capacity];
+		ex = new float[capacity];
+		ey = new float[capacity];
+		ax = new float[capacity];
+		ay = new float[capacity];
+		k1vx = new float[capacity];
+		k1vy = new float[capacity];
+		k2x = new float[capacity];
+		k2y = new float[capacity];
+		k2vx = new float[capacity];
+		k2vy = new float[capacity];
+		k3x = new float[capacity];
+		k3y = new float[capacity];
+		k3vx = new float[capacity];
+		k3vy = new float[capacity];
+	}
+
+	/**
+	 * Copies the ships in use into a new array of the given capacity.
+	 */
+	private float[] copyOf(float[] array, int capacity) {
+		float[] copy = new float[capacity];
+		if (array != null) {
+			System.arraycopy(array, 0, copy, 0, count);
+		}
+		return copy;
+	}
+
+	/**
+	 * Returns the number of ships.
+	 * 
+	 * @return count
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the number of steps taken since reset.
+	 * 
+	 * @return steps
+	 */
+	public int getSteps() {
+		return steps;
+	}
+
+	/**
+	 * Returns whether a ship is still flying.
+	 * 
+	 * @param i
+	 * @return true if it has not collided
+	 */
+	public boolean isFlying(int i) {
+		return events[i] == CollisionEvent.NONE;
+	}
+
+	/**
+	 * Returns the collision that stopped a ship.
+	 * 
+	 * @param i
+	 * @return event, or NONE if it is still flying
+	 */
+	public CollisionEvent getEvent(int i) {
+		return events[i];
+	}
+
+	/**
+	 * Returns the x position of a ship.
+	 * 
+	 * @param i
+	 * @return x
+	 */
+	public float getX(int i) {
+		return x[i];
+	}
+
+	/**
+	 * Returns the y position of a ship.
+	 * 
+	 * @param i
+	 * @return y
+	 */
+	public float getY(int i) {
+		return y[i];
+	}
+
+	/**
+	 * Returns the x position of a ship before the most recent step.
+	 * 
+	 * @param i
+	 * @return prevX
+	 */
+	public float getPrevX(int i) {
+		return prevX[i];
+	}
+
+	/**
+	 * Returns the y position of a ship before the most recent step.
+	 * 
+	 * @param i
+	 * @return prevY
+	 */
+	public float getPrevY(int i) {
+		return prevY[i];
+	}
+
+	/**
+	 * Returns the x position of a ship at the start of the current tick.
+	 * 
+	 * @param i
+	 * @return tickX
+	 */
+	public float getTickX(int i) {
+		return tickX[i];
+	}
+
+	/**
+	 * Returns the y position of a ship at the start of the current tick.
+	 * 
+	 * @param i
+	 * @return tickY
+	 */
+	public float getTickY(int i) {
+		return tickY[i];
+	}
+
+	/**
+	 * Returns the x velocity of a ship.
+	 * 
+	 * @param i
+	 * @return vx
+	 */
+	public float getVx(int i) {
+		return vx[i];
+	}
+
+	/**
+	 * Returns the y velocity of a ship.
+	 * 
+	 * @param i
+	 * @return vy
+	 */
+	public float getVy(int i) {
+		return vy[i];
+	}
+
+	/**
+	 * Returns whether a ship is boosting.
+	 * 
+	 * @param i
+	 * @return boosting
+	 */
+	public boolean isBoosting(int i) {
+		return boosting[i];
+	}
+}
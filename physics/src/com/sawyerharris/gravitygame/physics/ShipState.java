@@ -0,0 +1,71 @@
+package com.sawyerharris.gravitygame.physics;
+
+/**
+ * Mutable kinematic state of a ship as seen by the physics integrators. All
+ * values are primitive fields so that stepping the simulation never allocates.
+ * 
+ * @author Sawyer Harris
+ *
+ */
+public class ShipState {
+	/** Position of ship */
+	public float x;
+	public float y;
+	/** Velocity of ship */
+	public float vx;
+	public float vy;
+	/** Constant thrust acceleration applied over the next step (i.e. boost) */
+	public float thrustX;
+	public float thrustY;
+	/** Boost remaining, in seconds of thrust */
+	public float fuel;
+
+	/**
+	 * Sets the position and velocity of the ship and clears any thrust. Fuel
+	 * is left as it is.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param vx
+	 * @param vy
+	 */
+	public void set(float x, float y, float vx, float vy) {
+		this.x = x;
+		this.y = y;
+		this.vx = vx;
+		this.vy = vy;
+		thrustX = 0;
+		thrustY = 0;
+	}
+
+	/**
+	 * Burns the fuel used by the thrust over the next step of length dt. Fuel
+	 * is consumed at one second per second of thrust whatever the step length
+	 * or integrator, so it is integrated exactly alongside position and
+	 * velocity. If fuel runs out partway through the step, thrust is scaled
+	 * down to its average over the step so the impulse matches the fuel
+	 * burned. Must be called before the integrator advances the step.
+	 * 
+	 * @param dt
+	 *            length of the next step
+	 */
+	public void burn(float dt) {
+		if (thrustX == 0 && thrustY == 0) {
+			return;
+		}
+		if (fuel < dt) {
+			float fraction = fuel / dt;
+			thrustX *= fraction;
+			thrustY *= fraction;
+			fuel = 0;
+		} else {
+			fuel -= dt;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ShipState [x=" + x + ", y=" + y + ", vx=" + vx + ", vy=" + vy + ", thrustX=" + thrustX + ", thrustY="
+				+ thrustY + ", fuel=" + fuel + "]";
+	}
+}
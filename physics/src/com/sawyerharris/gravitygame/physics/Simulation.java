@@ -0,0 +1,412 @@
+package com.sawyerharris.gravitygame.physics;
+
+/**
+ * Headless simulation of a ship flying through a level's gravity field. Holds
+ * the ship state, gravity sources, integrator, boost and world bounds, and
+ * reports collisions as events. Has no dependency on libGDX so it can be run
+ * in tests, tools and on servers; the Ship and Planet actors are views over
+ * it.
+ * 
+ * @author Sawyer Harris
+ *
+ */
+public class Simulation {
+	/** Collision radius of ship */
+	public static final float SHIP_RADIUS = 25;
+	/** Maximum amount of boost a ship may have, in seconds of thrust */
+	public static final float MAX_BOOST = 2.5f;
+	/** Scalar for how much boost is applied */
+	public static final float BOOST_SCALAR = 200f;
+
+	/** Gravity sources */
+	private final GravityField field;
+	/** Ship state */
+	private final ShipState ship;
+	/** Integrator used to advance ship state */
+	private Integrator integrator;
+	/** Broad-phase index of planets for collision checks */
+	private final PlanetGrid grid;
+
+	/** Half width, height of world centered on the origin */
+	private final float halfWidth;
+	private final float halfHeight;
+
+	/** Ship starting position */
+	private float originX;
+	private float originY;
+	/** Position of ship before the most recent step */
+	private float prevX;
+	private float prevY;
+	/** Position of ship at the start of the current tick */
+	private float tickX;
+	private float tickY;
+
+	/** If the ship is using boost */
+	private boolean boosting;
+
+	/** Index of planet hit by the most recent collision, or -1 */
+	private int collisionIndex;
+	/** Number of steps and simulated time since reset */
+	private int steps;
+	private float time;
+	/** Time of the most recent collision since reset */
+	private float impactTime;
+
+	/**
+	 * Constructs a simulation of a world of the given size centered on the
+	 * origin, with no planets and an RK4 integrator. The field gets an
+	 * acceleration cache covering the world, used once it holds the cache
+	 * threshold number of planets, so that every simulation of a level
+	 * follows the same path.
+	 * 
+	 * @param worldWidth
+	 * @param worldHeight
+	 */
+	public Simulation(float worldWidth, float worldHeight) {
+		field = new GravityField();
+		field.setCache(new AccelerationGrid(worldWidth, worldHeight));
+		ship = new ShipState();
+		integrator = new RK4Integrator();
+		grid = new PlanetGrid(worldWidth, worldHeight, PlanetGrid.DEFAULT_CELL_SIZE);
+		halfWidth = worldWidth / 2;
+		halfHeight = worldHeight / 2;
+		reset();
+	}
+
+	/**
+	 * Resets ship to its origin at rest with full boost.
+	 */
+	public void reset() {
+		ship.set(originX, originY, 0, 0);
+		ship.fuel = MAX_BOOST;
+		prevX = originX;
+		prevY = originY;
+		tickX = originX;
+		tickY = originY;
+		boosting = false;
+		collisionIndex = -1;
+		steps = 0;
+		time = 0;
+		impactTime = 0;
+		integrator.reset();
+	}
+
+	/**
+	 * Gives the ship the given launch velocity.
+	 * 
+	 * @param vx
+	 * @param vy
+	 */
+	public void launch(float vx, float vy) {
+		ship.vx = vx;
+		ship.vy = vy;
+	}
+
+	/**
+	 * Advances the ship by dt and checks for collisions. The ship's circle is
+	 * swept along the straight line from its previous to its new position, so
+	 * fast ships cannot pass through a planet within a single step. On a
+	 * collision the ship is moved back to the point of impact. Does not
+	 * allocate.
+	 * 
+	 * @param dt
+	 *            amount of time to advance
+	 * @return collision that ended the step, or NONE
+	 */
+	public CollisionEvent step(float dt) {
+		prevX = ship.x;
+		prevY = ship.y;
+		updateThrust(dt);
+
+		integrator.step(ship, field, dt);
+		steps++;
+		time += dt;
+
+		CollisionEvent event = sweepCollisions(prevX, prevY, ship.x, ship.y);
+		if (event != CollisionEvent.NONE) {
+			float t = grid.getSweepFraction();
+			ship.x = prevX + (ship.x - prevX) * t;
+			ship.y = prevY + (ship.y - prevY) * t;
+			impactTime = time - dt * (1 - t);
+			return event;
+		}
+		if (!inBounds(ship.x, ship.y)) {
+			impactTime = time;
+			return CollisionEvent.OUT_OF_BOUNDS;
+		}
+		return CollisionEvent.NONE;
+	}
+
+	/**
+	 * Sets the thrust of the ship state for the next step based on boost and
+	 * burns the fuel it uses. Boost is applied in the direction of the
+	 * velocity at the start of the step and held constant over it, so the
+	 * integrators see thrust as a fixed input and never change fuel.
+	 * 
+	 * @param dt
+	 *            length of the next step
+	 */
+	private void updateThrust(float dt) {
+		ship.thrustX = 0;
+		ship.thrustY = 0;
+		if (boosting) {
+			if (ship.fuel > 0) {
+				float speed = (float) Math.sqrt(ship.vx * ship.vx + ship.vy * ship.vy);
+				if (speed != 0) {
+					ship.thrustX = ship.vx / speed * BOOST_SCALAR;
+					ship.thrustY = ship.vy / speed * BOOST_SCALAR;
+				}
+				ship.burn(dt);
+			} else {
+				// Ran out of boost
+				boosting = false;
+			}
+		}
+	}
+
+	/**
+	 * Checks if the ship overlaps a planet, stopping at the first one found.
+	 * Only planets bucketed in the ship's grid cell are tested. The grid is
+	 * rebuilt first if the field has changed.
+	 * 
+	 * @return HOME or PLANET if the ship hit one, otherwise NONE
+	 */
+	public CollisionEvent checkCollisions() {
+		if (!grid.isCurrent(field)) {
+			grid.build(field, SHIP_RADIUS);
+		}
+		float[] px = field.x;
+		float[] py = field.y;
+		float[] radius = field.radius;
+		int cell = grid.cellOf(ship.x, ship.y);
+		int end = grid.end(cell);
+		for (int k = grid.start(cell); k < end; k++) {
+			int i = grid.item(k);
+			float dx = ship.x - px[i];
+			float dy = ship.y - py[i];
+			float reach = radius[i] + SHIP_RADIUS;
+			if (dx * dx + dy * dy < reach * reach) {
+				collisionIndex = i;
+				return field.home[i] ? CollisionEvent.HOME : CollisionEvent.PLANET;
+			}
+		}
+		return CollisionEvent.NONE;
+	}
+
+	/**
+	 * Finds the first planet the ship touches while moving in a straight line
+	 * between two positions. Only planets bucketed in the grid cells covering
+	 * the segment are tested.
+	 * 
+	 * @param x0
+	 * @param y0
+	 *            start position
+	 * @param x1
+	 * @param y1
+	 *            end position
+	 * @return HOME or PLANET for the earliest hit, otherwise NONE
+	 */
+	public CollisionEvent sweepCollisions(float x0, float y0, float x1, float y1) {
+		if (!grid.isCurrent(field)) {
+			grid.build(field, SHIP_RADIUS);
+		}
+		int hit = grid.sweep(field, x0, y0, x1, y1);
+		if (hit < 0) {
+			return CollisionEvent.NONE;
+		}
+		collisionIndex = hit;
+		return field.home[hit] ? CollisionEvent.HOME : CollisionEvent.PLANET;
+	}
+
+	/**
+	 * Returns whether the given position is within the world.
+	 * 
+	 * @param x
+	 * @param y
+	 * @return true if in bounds
+	 */
+	public boolean inBounds(float x, float y) {
+		return x >= -halfWidth && x <= halfWidth && y >= -halfHeight && y <= halfHeight;
+	}
+
+	/**
+	 * Returns the gravity sources.
+	 * 
+	 * @return field
+	 */
+	public GravityField getField() {
+		return field;
+	}
+
+	/**
+	 * Returns the ship state.
+	 * 
+	 * @return ship
+	 */
+	public ShipState getShip() {
+		return ship;
+	}
+
+	/**
+	 * Returns the integrator.
+	 * 
+	 * @return integrator
+	 */
+	public Integrator getIntegrator() {
+		return integrator;
+	}
+
+	/**
+	 * Sets the integrator used to advance the ship.
+	 * 
+	 * @param integrator
+	 */
+	public void setIntegrator(Integrator integrator) {
+		this.integrator = integrator;
+		integrator.reset();
+	}
+
+	/**
+	 * Sets the ship's starting position.
+	 * 
+	 * @param x
+	 * @param y
+	 * @throws IllegalArgumentException
+	 *             if the position is outside the world
+	 */
+	public void setOrigin(float x, float y) throws IllegalArgumentException {
+		if (!inBounds(x, y)) {
+			throw new IllegalArgumentException("Ship origin out of bounds.");
+		}
+		originX = x;
+		originY = y;
+	}
+
+	/**
+	 * Returns the x coordinate of the ship's starting position.
+	 * 
+	 * @return originX
+	 */
+	public float getOriginX() {
+		return originX;
+	}
+
+	/**
+	 * Returns the y coordinate of the ship's starting position.
+	 * 
+	 * @return originY
+	 */
+	public float getOriginY() {
+		return originY;
+	}
+
+	/**
+	 * Returns the ship's x position before the most recent step.
+	 * 
+	 * @return prevX
+	 */
+	public float getPrevX() {
+		return prevX;
+	}
+
+	/**
+	 * Returns the ship's y position before the most recent step.
+	 * 
+	 * @return prevY
+	 */
+	public float getPrevY() {
+		return prevY;
+	}
+
+	/**
+	 * Marks the start of a tick that may be run as several steps, so the ship
+	 * can be drawn between its positions at the start and end of the tick.
+	 */
+	public void startTick() {
+		tickX = ship.x;
+		tickY = ship.y;
+	}
+
+	/**
+	 * Returns the ship's x position at the start of the current tick.
+	 * 
+	 * @return tickX
+	 */
+	public float getTickX() {
+		return tickX;
+	}
+
+	/**
+	 * Returns the ship's y position at the start of the current tick.
+	 * 
+	 * @return tickY
+	 */
+	public float getTickY() {
+		return tickY;
+	}
+
+	/**
+	 * Returns amount of boost remaining.
+	 * 
+	 * @return boost in seconds of thrust
+	 */
+	public float getBoost() {
+		return ship.fuel;
+	}
+
+	/**
+	 * Returns whether the ship is using boost.
+	 * 
+	 * @return boosting
+	 */
+	public boolean isBoosting() {
+		return boosting;
+	}
+
+	/**
+	 * Starts or stops using boost. Boost cannot be started once it has run
+	 * out.
+	 * 
+	 * @param boosting
+	 */
+	public void setBoosting(boolean boosting) {
+		this.boosting = boosting && ship.fuel > 0;
+	}
+
+	/**
+	 * Returns the index of the planet hit by the most recent collision.
+	 * 
+	 * @return planet index, or -1 if there has been no collision since reset
+	 */
+	public int getCollisionIndex() {
+		return collisionIndex;
+	}
+
+	/**
+	 * Returns the number of steps taken since reset.
+	 * 
+	 * @return steps
+	 */
+	public int getSteps() {
+		return steps;
+	}
+
+	/**
+	 * Returns the simulated time since reset.
+	 * 
+	 * @return time in seconds
+	 */
+	public float getTime() {
+		return time;
+	}
+
+	/**
+	 * Returns the time since reset at which the most recent collision
+	 * happened. Lies within the step that reported the collision.
+	 * 
+	 * @return impact time in seconds
+	 */
+	public float getImpactTime() {
+		return impactTime;
+	}
+}
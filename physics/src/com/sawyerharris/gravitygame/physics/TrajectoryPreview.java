@@ -0,0 +1,303 @@
+package com.sawyerharris.gravitygame.physics;
+
+/**
+ * Predicts the path of a shot on a background thread so aiming never stalls
+ * rendering. The render thread posts requests as the aim changes; a newer
+ * request cancels any path still being computed for an older one. Finished
+ * paths are handed over through three buffers: the worker only writes the
+ * back buffer, swapping it with the middle buffer when a path is finished,
+ * and the render thread only reads the front buffer, which poll swaps with
+ * the middle one. A finished path is therefore never overwritten before it
+ * is polled, except by a newer finished path.
+ * 
+ * @author Sawyer Harris
+ *
+ */
+public class TrajectoryPreview {
+	/** Default length of a simulated step in seconds, a game tick */
+	public static final float DEFAULT_STEP = FixedTimestep.TICK;
+	/** Default number of steps to predict */
+	public static final int DEFAULT_MAX_STEPS = 240;
+	/** Default number of steps between recorded points */
+	public static final int DEFAULT_STEPS_PER_POINT = 2;
+
+	/** Guards request and buffer hand-over state */
+	private final Object lock = new Object();
+
+	/** Simulation owned by the worker */
+	private final Simulation simulation;
+	/** Length of a simulated step */
+	private final float step;
+	/** Number of steps to predict */
+	private final int maxSteps;
+	/** Number of steps between recorded points */
+	private final int stepsPerPoint;
+
+	/** Latest requested field, copied from the caller's simulation */
+	private final GravityField pendingField;
+	/** Whether the pending field has changed since the worker last copied it */
+	private boolean fieldChanged;
+	/** Source and version of the pending field */
+	private GravityField pendingSource;
+	private int pendingVersion;
+	/** Integrator type to switch to, or null */
+	private IntegratorType pendingIntegrator;
+	/** Latest requested origin and launch velocity */
+	private float pendingOriginX;
+	private float pendingOriginY;
+	private float pendingVx;
+	private float pendingVy;
+	/** Whether there is a request the worker has not started */
+	private boolean pending;
+	/** Incremented by every request and clear; stale paths are abandoned */
+	private volatile int generation;
+
+	/** Path points as x, y pairs, read by the render thread */
+	private float[] front;
+	private int frontCount;
+	/** Newest finished path as x, y pairs, waiting to be polled */
+	private float[] middle;
+	private int middleCount;
+	/** Whether the middle buffer holds a finished path not yet swapped in */
+	private boolean ready;
+	/** Path points as x, y pairs, written only by the worker */
+	private float[] back;
+
+	/** Background worker */
+	private final Thread worker;
+	/** Whether the worker should keep running */
+	private volatile boolean running;
+
+	/**
+	 * Constructs a preview with the default step and length, and starts its
+	 * worker.
+	 * 
+	 * @param worldWidth
+	 * @param worldHeight
+	 */
+	public TrajectoryPreview(float worldWidth, float worldHeight) {
+		this(worldWidth, worldHeight, DEFAULT_STEP, DEFAULT_MAX_STEPS, DEFAULT_STEPS_PER_POINT);
+	}
+
+	/**
+	 * Constructs a preview and starts its worker.
+	 * 
+	 * @param worldWidth
+	 * @param worldHeight
+	 * @param step
+	 *            length of a simulated step
+	 * @param maxSteps
+	 *            number of steps to predict
+	 * @param stepsPerPoint
+	 *            number of steps between recorded points
+	 */
+	public TrajectoryPreview(float worldWidth, float worldHeight, float step, int maxSteps, int stepsPerPoint) {
+		if (step <= 0 || maxSteps < 1 || stepsPerPoint < 1) {
+			throw new IllegalArgumentException("Invalid preview length.");
+		}
+		simulation = new Simulation(worldWidth, worldHeight);
+		this.step = step;
+		this.maxSteps = maxSteps;
+		this.stepsPerPoint = stepsPerPoint;
+		pendingField = new GravityField();
+
+		int maxPoints = maxSteps / stepsPerPoint + 2;
+		front = new float[maxPoints * 2];
+		middle = new float[maxPoints * 2];
+		back = new float[maxPoints * 2];
+
+		running = true;
+		worker = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				work();
+			}
+		}, "TrajectoryPreview");
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/**
+	 * Sets the integrator used for predictions, normally the level's.
+	 * 
+	 * @param type
+	 */
+	public void setIntegratorType(IntegratorType type) {
+		synchronized (lock) {
+			pendingIntegrator = type;
+		}
+	}
+
+	/**
+	 * Requests a path for a shot from the given simulation's origin through its
+	 * field, without boost. Cancels any older request. The field is only copied
+	 * if it has changed since the last request.
+	 * 
+	 * @param source
+	 *            simulation being aimed in
+	 * @param vx
+	 * @param vy
+	 *            launch velocity
+	 */
+	public void request(Simulation source, float vx, float vy) {
+		synchronized (lock) {
+			GravityField field = source.getField();
+			if (field != pendingSource || field.version != pendingVersion) {
+				pendingField.copyFrom(field);
+				pendingSource = field;
+				pendingVersion = field.version;
+				fieldChanged = true;
+			}
+			pendingOriginX = source.getOriginX();
+			pendingOriginY = source.getOriginY();
+			pendingVx = vx;
+			pendingVy = vy;
+			pending = true;
+			generation++;
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * Cancels any request and empties the path.
+	 */
+	public void clear() {
+		synchronized (lock) {
+			pending = false;
+			ready = false;
+			frontCount = 0;
+			generation++;
+		}
+	}
+
+	/**
+	 * Swaps in the newest finished path, if any. Must be called from the
+	 * thread that reads the path.
+	 */
+	public void poll() {
+		synchronized (lock) {
+			if (ready) {
+				float[] temp = front;
+				front = middle;
+				middle = temp;
+				frontCount = middleCount;
+				ready = false;
+			}
+		}
+	}
+
+	/**
+	 * Returns the current path as x, y pairs. Only valid until the next poll.
+	 * 
+	 * @return path points
+	 */
+	public float[] getPoints() {
+		return front;
+	}
+
+	/**
+	 * Returns the number of points in the current path.
+	 * 
+	 * @return point count
+	 */
+	public int getPointCount() {
+		return frontCount;
+	}
+
+	/**
+	 * Stops the worker.
+	 */
+	public void dispose() {
+		running = false;
+		synchronized (lock) {
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * Worker loop. Takes the newest request, traces it into the back buffer
+	 * and, unless it went stale in the meantime, swaps it into the middle
+	 * buffer and marks it ready.
+	 */
+	private void work() {
+		while (running) {
+			int gen;
+			float vx, vy;
+			synchronized (lock) {
+				while (running && !pending) {
+					try {
+						lock.wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+				if (!running) {
+					return;
+				}
+				pending = false;
+				gen = generation;
+				if (fieldChanged) {
+					simulation.getField().copyFrom(pendingField);
+					fieldChanged = false;
+				}
+				if (pendingIntegrator != null) {
+					simulation.setIntegrator(pendingIntegrator.create());
+					pendingIntegrator = null;
+				}
+				simulation.setOrigin(pendingOriginX, pendingOriginY);
+				vx = pendingVx;
+				vy = pendingVy;
+			}
+
+			int count = trace(gen, vx, vy);
+
+			synchronized (lock) {
+				if (count >= 0 && gen == generation) {
+					float[] temp = middle;
+					middle = back;
+					back = temp;
+					middleCount = count;
+					ready = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Flies a shot, recording points into the back buffer until it collides,
+	 * leaves the world or runs out of steps.
+	 * 
+	 * @param gen
+	 *            generation of the request
+	 * @param vx
+	 * @param vy
+	 *            launch velocity
+	 * @return number of points, or -1 if the request went stale
+	 */
+	private int trace(int gen, float vx, float vy) {
+		ShipState ship = simulation.getShip();
+		simulation.reset();
+		simulation.launch(vx, vy);
+
+		int count = 0;
+		back[count++] = ship.x;
+		back[count++] = ship.y;
+		for (int i = 1; i <= maxSteps; i++) {
+			if (gen != generation) {
+				return -1;
+			}
+			CollisionEvent event = simulation.step(step);
+			if (event == CollisionEvent.OUT_OF_BOUNDS) {
+				break;
+			}
+			if (event != CollisionEvent.NONE || i % stepsPerPoint == 0 || i == maxSteps) {
+				back[count++] = ship.x;
+				back[count++] = ship.y;
+			}
+			if (event != CollisionEvent.NONE) {
+				break;
+			}
+		}
+		return count / 2;
+	}
+}
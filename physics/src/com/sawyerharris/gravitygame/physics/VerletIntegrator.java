@@ -0,0 +1,66 @@
+package com.sawyerharris.gravitygame.physics;
+
+/**
+ * Velocity Verlet (kick-drift-kick leapfrog) integrator. It is symplectic, so
+ * orbits neither gain nor lose energy over long flights, and it needs only
+ * one gravity evaluation per step because the acceleration at the end of a
+ * step is reused at the start of the next. The reused acceleration is
+ * dropped if the ship was moved or the field changed since it was evaluated.
+ * 
+ * @author Sawyer Harris
+ *
+ */
+public class VerletIntegrator implements Integrator {
+	/** Output of gravity evaluations */
+	private final float[] gravity = new float[2];
+	/** Gravity at the position the previous step ended on */
+	private float cachedAx;
+	private float cachedAy;
+	/** Position the cached gravity was evaluated at */
+	private float cachedX;
+	private float cachedY;
+	/** Field and field version the cached gravity was evaluated in */
+	private GravityField cachedField;
+	private int cachedVersion;
+	/** Whether the cached gravity may be used */
+	private boolean valid;
+
+	@Override
+	public void step(ShipState state, GravityField field, float dt) {
+		if (!valid || state.x != cachedX || state.y != cachedY || field != cachedField
+				|| field.version != cachedVersion) {
+			// Position or field was changed outside of the integrator
+			field.acceleration(state.x, state.y, gravity);
+			cachedAx = gravity[0];
+			cachedAy = gravity[1];
+		}
+		float halfDt = dt / 2;
+
+		// Kick
+		float vx = state.vx + (cachedAx + state.thrustX) * halfDt;
+		float vy = state.vy + (cachedAy + state.thrustY) * halfDt;
+
+		// Drift
+		state.x += vx * dt;
+		state.y += vy * dt;
+
+		// Kick
+		field.acceleration(state.x, state.y, gravity);
+		state.vx = vx + (gravity[0] + state.thrustX) * halfDt;
+		state.vy = vy + (gravity[1] + state.thrustY) * halfDt;
+
+		cachedAx = gravity[0];
+		cachedAy = gravity[1];
+		cachedX = state.x;
+		cachedY = state.y;
+		cachedField = field;
+		cachedVersion = field.version;
+		valid = true;
+	}
+
+	@Override
+	public void reset() {
+		valid = false;
+		cachedField = null;
+	}
+}
@@ -0,0 +1,114 @@
+package com.sawyerharris.gravitygame.physics;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that a physics step allocates nothing on the heap, using the
+ * per-thread allocation counter of HotSpot JVMs. Skipped on JVMs without one.
+ * <p>
+ * Reading the counter allocates a little, by an amount that varies between
+ * readings, so many steps are measured and fewer bytes than steps must have
+ * been allocated. Any object allocated per step takes at least 16 bytes.
+ *
+ * @author Sawyer Harris
+ *
+ */
+public class AllocationTest {
+	/** Steps taken before measuring, enough to load and initialize classes */
+	private static final int WARMUP_STEPS = 100;
+	/** Steps measured */
+	private static final int STEPS = 10000;
+	/** Length of a step, the game's tick */
+	private static final float DT = FixedTimestep.TICK;
+
+	private com.sun.management.ThreadMXBean threads;
+
+	@Before
+	public void setup() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		threads = (com.sun.management.ThreadMXBean) bean;
+		assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+	}
+
+	/**
+	 * Returns the number of bytes allocated by this thread so far.
+	 */
+	private long allocated() {
+		return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Creates a field of planets far enough from the origin that a slow ship
+	 * launched from it does not reach them.
+	 */
+	private static void fill(GravityField field, int count) {
+		for (int i = 0; i < count; i++) {
+			float angle = (float) (2 * Math.PI * i / count);
+			float x = 500 * (float) Math.cos(angle);
+			float y = 800 * (float) Math.sin(angle);
+			field.add(x, y, 20, GravityField.massOf(20), i == 0);
+		}
+	}
+
+	@Test
+	public void rk4StepDoesNotAllocate() {
+		GravityField field = new GravityField();
+		fill(field, 10);
+		RK4Integrator integrator = new RK4Integrator();
+		ShipState state = new ShipState();
+		state.set(0, 0, 10, 5);
+		state.thrustX = 1;
+		for (int i = 0; i < WARMUP_STEPS; i++) {
+			integrator.step(state, field, DT);
+		}
+
+		long start = allocated();
+		for (int i = 0; i < STEPS; i++) {
+			integrator.step(state, field, DT);
+		}
+		long bytes = allocated() - start;
+		assertTrue(bytes + " bytes allocated in " + STEPS + " steps", bytes < STEPS);
+	}
+
+	@Test
+	public void simulationStepDoesNotAllocate() {
+		for (IntegratorType type : IntegratorType.values()) {
+			assertSimulationDoesNotAllocate(type, 10);
+			// Enough planets to use the acceleration cache
+			assertSimulationDoesNotAllocate(type, GravityField.DEFAULT_CACHE_THRESHOLD * 2);
+		}
+	}
+
+	/**
+	 * Flies a ship with boost and checks that stepping it allocates nothing
+	 * once the integrator, collision grid and cache have been set up.
+	 */
+	private void assertSimulationDoesNotAllocate(IntegratorType type, int planets) {
+		Simulation simulation = new Simulation(1280, 1920);
+		fill(simulation.getField(), planets);
+		simulation.setIntegrator(type.create());
+		simulation.setOrigin(0, 0);
+		simulation.reset();
+		simulation.launch(2, 1);
+		for (int i = 0; i < WARMUP_STEPS; i++) {
+			simulation.step(DT);
+		}
+
+		simulation.setBoosting(true);
+		long start = allocated();
+		for (int i = 0; i < STEPS; i++) {
+			simulation.step(DT);
+		}
+		long bytes = allocated() - start;
+		assertTrue(type + " with " + planets + " planets: " + bytes + " bytes allocated in " + STEPS + " steps",
+				bytes < STEPS);
+	}
+}
@@ -0,0 +1,119 @@
+package com.sawyerharris.gravitygame.physics;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Checks that boost gives the same change in velocity and uses the same fuel
+ * whatever the step length or integrator.
+ *
+ * @author Sawyer Harris
+ *
+ */
+public class BoostTest {
+	/** Step lengths compared, including one that does not divide MAX_BOOST */
+	private static final float[] STEPS = { 1 / 30f, 1 / 60f, 1 / 240f, 0.07f };
+	/** Launch speed, along x */
+	private static final float LAUNCH = 100;
+	/** Allowed error in speed from rounding over many steps */
+	private static final float SPEED_TOLERANCE = 0.05f;
+	/** Allowed error in fuel from rounding over many steps */
+	private static final float FUEL_TOLERANCE = 1e-4f;
+
+	/**
+	 * Creates a simulation with no planets and room for a ship to boost in.
+	 */
+	private static Simulation createSimulation(IntegratorType type) {
+		Simulation simulation = new Simulation(8000, 8000);
+		simulation.setIntegrator(type.create());
+		simulation.setOrigin(-3000, 0);
+		simulation.reset();
+		simulation.launch(LAUNCH, 0);
+		return simulation;
+	}
+
+	/**
+	 * Flies for the given time, boosting for the first part of it.
+	 *
+	 * @return the simulation afterwards
+	 */
+	private static Simulation fly(IntegratorType type, float dt, float boostTime, float time) {
+		Simulation simulation = createSimulation(type);
+		int boostSteps = Math.round(boostTime / dt);
+		int steps = (int) Math.ceil(time / dt);
+		simulation.setBoosting(true);
+		for (int i = 0; i < steps; i++) {
+			if (i == boostSteps) {
+				simulation.setBoosting(false);
+			}
+			assertEquals(CollisionEvent.NONE, simulation.step(dt));
+		}
+		return simulation;
+	}
+
+	@Test
+	public void fullBoostGivesSameDeltaV() {
+		float deltaV = Simulation.BOOST_SCALAR * Simulation.MAX_BOOST;
+		for (IntegratorType type : IntegratorType.values()) {
+			for (float dt : STEPS) {
+				// Boost is held on past the point the fuel runs out
+				Simulation simulation = fly(type, dt, 2 * Simulation.MAX_BOOST, 2 * Simulation.MAX_BOOST);
+				String name = type + " with dt " + dt;
+				assertEquals(name, 0, simulation.getBoost(), 0);
+				assertEquals(name, LAUNCH + deltaV, simulation.getShip().vx, SPEED_TOLERANCE);
+				assertEquals(name, 0, simulation.getShip().vy, 0);
+			}
+		}
+	}
+
+	@Test
+	public void partialBoostBurnsItsDuration() {
+		float boostTime = 1;
+		for (IntegratorType type : IntegratorType.values()) {
+			for (float dt : STEPS) {
+				Simulation simulation = fly(type, dt, boostTime, 2);
+				// Boost is toggled on step boundaries, so the time boosted is a
+				// whole number of steps
+				float boosted = Math.round(boostTime / dt) * dt;
+				String name = type + " with dt " + dt;
+				assertEquals(name, Simulation.MAX_BOOST - boosted, simulation.getBoost(), FUEL_TOLERANCE);
+				assertEquals(name, LAUNCH + Simulation.BOOST_SCALAR * boosted, simulation.getShip().vx,
+						SPEED_TOLERANCE);
+			}
+		}
+	}
+
+	@Test
+	public void lastStepThrustMatchesRemainingFuel() {
+		ShipState state = new ShipState();
+		state.fuel = 0.004f;
+		state.thrustX = Simulation.BOOST_SCALAR;
+		float dt = 1 / 60f;
+		state.burn(dt);
+		assertEquals(0, state.fuel, 0);
+		// Impulse over the step equals that of the remaining fuel at full thrust
+		assertEquals(Simulation.BOOST_SCALAR * 0.004f, state.thrustX * dt, 1e-6f);
+		assertEquals(0, state.thrustY, 0);
+	}
+
+	@Test
+	public void integratorsDoNotBurnFuel() {
+		GravityField field = new GravityField();
+		field.add(200, 100, 30, GravityField.massOf(30), true);
+		for (IntegratorType type : IntegratorType.values()) {
+			Integrator integrator = type.create();
+			ShipState state = new ShipState();
+			state.set(0, 0, 50, 20);
+			state.thrustX = 30;
+			state.thrustY = -40;
+			state.fuel = 1;
+			for (int i = 0; i < 10; i++) {
+				integrator.step(state, field, 1 / 60f);
+			}
+			assertEquals(type.toString(), 1, state.fuel, 0);
+			assertEquals(type.toString(), 30, state.thrustX, 0);
+			assertEquals(type.toString(), -40, state.thrustY, 0);
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package com.sawyerharris.gravitygame.physics;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks that copies of a field give the same accelerations as the original.
+ *
+ * @author Sawyer Harris
+ *
+ */
+public class GravityFieldTest {
+	/** World size */
+	private static final float WIDTH = 1280;
+	private static final float HEIGHT = 1920;
+
+	/**
+	 * Adds enough planets to the field to use an acceleration cache.
+	 */
+	private static void fill(GravityField field) {
+		int planets = GravityField.DEFAULT_CACHE_THRESHOLD * 2;
+		for (int i = 0; i < planets; i++) {
+			float angle = (float) (2 * Math.PI * i / planets);
+			field.add(400 * (float) Math.cos(angle), 700 * (float) Math.sin(angle), 30, GravityField.massOf(30),
+					i == 0);
+		}
+	}
+
+	/**
+	 * Checks that both fields give bit-identical accelerations over a grid of
+	 * points.
+	 */
+	private static void assertSameAccelerations(GravityField expected, GravityField actual) {
+		float[] a = new float[2];
+		float[] b = new float[2];
+		for (float x = -600; x <= 600; x += 37) {
+			for (float y = -900; y <= 900; y += 41) {
+				expected.acceleration(x, y, a);
+				actual.acceleration(x, y, b);
+				assertTrue("at " + x + ", " + y, a[0] == b[0] && a[1] == b[1]);
+			}
+		}
+	}
+
+	@Test
+	public void copyOfUncachedFieldIsUncached() {
+		GravityField field = new GravityField();
+		fill(field);
+		Simulation simulation = new Simulation(WIDTH, HEIGHT);
+		GravityField copy = simulation.getField();
+		copy.copyFrom(field);
+		copy.updateCache();
+		assertNull(copy.getCache());
+		assertSameAccelerations(field, copy);
+	}
+
+	@Test
+	public void copyOfCachedFieldIsCached() {
+		Simulation simulation = new Simulation(WIDTH, HEIGHT);
+		GravityField field = simulation.getField();
+		fill(field);
+		field.updateCache();
+		GravityField copy = new GravityField();
+		copy.copyFrom(field);
+		copy.updateCache();
+		assertNotNull(copy.getCache());
+		assertSameAccelerations(field, copy);
+	}
+
+	@Test
+	public void planetCopyKeepsCache() {
+		GravityField level = new GravityField();
+		fill(level);
+		Simulation simulation = new Simulation(WIDTH, HEIGHT);
+		simulation.getField().copyPlanetsFrom(level);
+		simulation.getField().updateCache();
+
+		// Built the way the game builds it
+		Simulation game = new Simulation(WIDTH, HEIGHT);
+		fill(game.getField());
+		game.getField().updateCache();
+		assertNotNull(simulation.getField().getCache());
+		assertSameAccelerations(game.getField(), simulation.getField());
+	}
+}
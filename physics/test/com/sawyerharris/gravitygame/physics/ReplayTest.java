@@ -0,0 +1,155 @@
+package com.sawyerharris.gravitygame.physics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks that a recorded attempt, encoded and decoded, replays to exactly the
+ * same final state as the live attempt.
+ *
+ * @author Sawyer Harris
+ *
+ */
+public class ReplayTest {
+	/** Length of a step, the game's tick */
+	private static final float DT = FixedTimestep.TICK;
+	/** Most ticks flown by an attempt */
+	private static final int MAX_STEPS = 1200;
+	/** Steps at which the player starts and stops boosting */
+	private static final int BOOST_ON = 20;
+	private static final int BOOST_OFF = 50;
+
+	/**
+	 * Creates a simulation of a level with the given number of planets, the
+	 * first of which is home.
+	 */
+	private static Simulation createLevel(int planets) {
+		Simulation simulation = new Simulation(1280, 1920);
+		GravityField field = simulation.getField();
+		for (int i = 0; i < planets; i++) {
+			float angle = (float) (2 * Math.PI * i / planets);
+			field.add(400 * (float) Math.cos(angle), 700 * (float) Math.sin(angle), 30, GravityField.massOf(30),
+					i == 0);
+		}
+		simulation.setOrigin(-20, 10);
+		simulation.reset();
+		return simulation;
+	}
+
+	/**
+	 * Flies an attempt as the play screen does, one step per tick, recording
+	 * it.
+	 *
+	 * @return replay of the attempt
+	 */
+	private static Replay fly(Simulation simulation, IntegratorType type) {
+		return fly(simulation, type, 1);
+	}
+
+	/**
+	 * Flies an attempt as the play screen does, running each tick as the
+	 * given number of substeps, recording it. Boost only changes between
+	 * ticks.
+	 *
+	 * @return replay of the attempt
+	 */
+	private static Replay fly(Simulation simulation, IntegratorType type, int substeps) {
+		simulation.setIntegrator(type.create());
+		simulation.reset();
+		simulation.launch(90, 40);
+		ReplayRecorder recorder = new ReplayRecorder();
+		recorder.start(simulation, type, DT, substeps);
+		float dt = DT / substeps;
+		for (int i = 0; i < MAX_STEPS; i++) {
+			if (i == BOOST_ON) {
+				simulation.setBoosting(true);
+			} else if (i == BOOST_OFF) {
+				simulation.setBoosting(false);
+			}
+			simulation.startTick();
+			for (int j = 0; j < substeps; j++) {
+				recorder.record();
+				if (simulation.step(dt) != CollisionEvent.NONE) {
+					return recorder.finish();
+				}
+			}
+		}
+		return recorder.finish();
+	}
+
+	@Test
+	public void replayMatchesLiveAttempt() {
+		for (IntegratorType type : IntegratorType.values()) {
+			assertReplayMatches(type, 5, 1);
+			// Enough planets to use the acceleration cache
+			assertReplayMatches(type, GravityField.DEFAULT_CACHE_THRESHOLD * 2, 1);
+			assertReplayMatches(type, 5, 4);
+		}
+	}
+
+	private static void assertReplayMatches(IntegratorType type, int planets, int substeps) {
+		String name = type + " with " + planets + " planets and " + substeps + " substeps";
+		Simulation live = createLevel(planets);
+		Replay replay = Replay.fromBytes(fly(live, type, substeps).toBytes());
+		assertEquals(name, 2, replay.getInput().getToggleCount());
+		assertEquals(name, substeps, replay.getSubsteps());
+		assertEquals(name, BOOST_ON * substeps, replay.getInput().getToggle(0));
+
+		Simulation copy = createLevel(planets);
+		CollisionEvent event = new ReplayPlayer(copy).play(replay, live.getSteps());
+		ShipState a = live.getShip();
+		ShipState b = copy.getShip();
+		assertEquals(name, live.getSteps(), copy.getSteps());
+		assertEquals(name, live.getImpactTime(), copy.getImpactTime(), 0);
+		assertEquals(name, live.getCollisionIndex(), copy.getCollisionIndex());
+		assertTrue(name + ": " + a + " vs " + b, a.x == b.x && a.y == b.y && a.vx == b.vx && a.vy == b.vy);
+		assertEquals(name, a.fuel, b.fuel, 0);
+		if (live.getSteps() < MAX_STEPS * substeps) {
+			assertTrue(name, event != CollisionEvent.NONE);
+		}
+	}
+
+	@Test
+	public void encodingRoundTrips() {
+		FlightInput input = new FlightInput(12.5f, -3.25f);
+		input.addToggle(3);
+		input.addToggle(300);
+		input.addToggle(100000);
+		Replay replay = new Replay(0x123456789abcdefL, IntegratorType.VERLET, DT, 3, input);
+		Replay decoded = Replay.fromBytes(replay.toBytes());
+		assertEquals(replay.getLevelHash(), decoded.getLevelHash());
+		assertEquals(replay.getIntegrator(), decoded.getIntegrator());
+		assertEquals(replay.getStep(), decoded.getStep(), 0);
+		assertEquals(3, decoded.getSubsteps());
+		assertEquals(input.getLaunchX(), decoded.getInput().getLaunchX(), 0);
+		assertEquals(input.getLaunchY(), decoded.getInput().getLaunchY(), 0);
+		assertEquals(3, decoded.getInput().getToggleCount());
+		for (int i = 0; i < 3; i++) {
+			assertEquals(input.getToggle(i), decoded.getInput().getToggle(i));
+		}
+	}
+
+	@Test
+	public void tickStartIsKeptAcrossSubsteps() {
+		Simulation simulation = createLevel(5);
+		simulation.launch(90, 40);
+		simulation.startTick();
+		float x = simulation.getShip().x;
+		float y = simulation.getShip().y;
+		for (int i = 0; i < 4; i++) {
+			simulation.step(DT / 4);
+		}
+		// Interpolation blends from the start of the tick, not the last substep
+		assertEquals(x, simulation.getTickX(), 0);
+		assertEquals(y, simulation.getTickY(), 0);
+		assertTrue(simulation.getPrevX() != x);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void replayOfAnotherLevelIsRejected() {
+		Replay replay = fly(createLevel(5), IntegratorType.RK4);
+		new ReplayPlayer(createLevel(6)).play(replay, MAX_STEPS);
+	}
+}
@@ -0,0 +1,150 @@
+package com.sawyerharris.gravitygame.physics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks that every ship of a batch ends exactly where a simulation with the
+ * same integrator flying the same input ends.
+ *
+ * @author Sawyer Harris
+ *
+ */
+public class ShipBatchTest {
+	/** Length of a step, the game's tick */
+	private static final float DT = FixedTimestep.TICK;
+	/** Most steps flown */
+	private static final int MAX_STEPS = 1200;
+	/** Number of ships in the batch */
+	private static final int SHIPS = 24;
+	/** World size */
+	private static final float WIDTH = 1280;
+	private static final float HEIGHT = 1920;
+	/** Ship starting position */
+	private static final float ORIGIN_X = -20;
+	private static final float ORIGIN_Y = 10;
+
+	/**
+	 * Adds a ring of planets to the field, the first of which is home.
+	 */
+	private static void fill(GravityField field, int planets) {
+		for (int i = 0; i < planets; i++) {
+			float angle = (float) (2 * Math.PI * i / planets);
+			field.add(400 * (float) Math.cos(angle), 700 * (float) Math.sin(angle), 30, GravityField.massOf(30),
+					i == 0);
+		}
+	}
+
+	/**
+	 * Creates the input of ship i, launched in a different direction from the
+	 * others, with a different boost pattern.
+	 */
+	private static FlightInput createInput(int i) {
+		float angle = (float) (2 * Math.PI * i / SHIPS);
+		FlightInput input = new FlightInput(120 * (float) Math.cos(angle), 120 * (float) Math.sin(angle));
+		int toggles = i % 4;
+		for (int j = 0; j < toggles; j++) {
+			input.addToggle(10 + i + 25 * j);
+		}
+		return input;
+	}
+
+	@Test
+	public void batchMatchesSimulation() {
+		for (IntegratorType type : IntegratorType.values()) {
+			if (!ShipBatch.supports(type)) {
+				continue;
+			}
+			assertBatchMatches(type, 5);
+			// Enough planets to use the acceleration cache
+			assertBatchMatches(type, GravityField.DEFAULT_CACHE_THRESHOLD * 2);
+		}
+	}
+
+	@Test
+	public void verletRecordingMatchesBatch() {
+		// A flight recorded the way the play screen records it
+		Simulation simulation = new Simulation(WIDTH, HEIGHT);
+		fill(simulation.getField(), 5);
+		simulation.setIntegrator(IntegratorType.VERLET.create());
+		simulation.setOrigin(ORIGIN_X, ORIGIN_Y);
+		simulation.reset();
+		simulation.launch(70, 110);
+		ReplayRecorder recorder = new ReplayRecorder();
+		recorder.start(simulation, IntegratorType.VERLET, DT, 1);
+		int steps = 0;
+		for (; steps < MAX_STEPS; steps++) {
+			simulation.setBoosting(steps >= 30 && steps < 90);
+			recorder.record();
+			if (simulation.step(DT) != CollisionEvent.NONE) {
+				break;
+			}
+		}
+		Replay replay = recorder.finish();
+
+		ShipBatch batch = new ShipBatch(WIDTH, HEIGHT);
+		batch.setIntegratorType(IntegratorType.VERLET);
+		batch.setOrigin(ORIGIN_X, ORIGIN_Y);
+		batch.add(replay.getInput());
+		GravityField field = new GravityField();
+		fill(field, 5);
+		for (int i = 0; i < MAX_STEPS; i++) {
+			batch.step(field, DT);
+		}
+		ShipState ship = simulation.getShip();
+		assertTrue(ship + " vs (" + batch.getX(0) + ", " + batch.getY(0) + ")",
+				ship.x == batch.getX(0) && ship.y == batch.getY(0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void dormandPrinceIsNotBatched() {
+		new ShipBatch(WIDTH, HEIGHT).setIntegratorType(IntegratorType.DORMAND_PRINCE);
+	}
+
+	private static void assertBatchMatches(IntegratorType type, int planets) {
+		GravityField field = new GravityField();
+		fill(field, planets);
+		field.setCache(new AccelerationGrid(WIDTH, HEIGHT));
+		field.updateCache();
+
+		ShipBatch batch = new ShipBatch(WIDTH, HEIGHT);
+		batch.setIntegratorType(type);
+		batch.setOrigin(ORIGIN_X, ORIGIN_Y);
+		FlightInput[] inputs = new FlightInput[SHIPS];
+		for (int i = 0; i < SHIPS; i++) {
+			inputs[i] = createInput(i);
+			assertEquals(i, batch.add(inputs[i]));
+		}
+		batch.reset();
+		for (int i = 0; i < MAX_STEPS; i++) {
+			batch.step(field, DT);
+		}
+
+		int collided = 0;
+		for (int i = 0; i < SHIPS; i++) {
+			String name = type + " ship " + i + " with " + planets + " planets";
+			Simulation simulation = new Simulation(WIDTH, HEIGHT);
+			fill(simulation.getField(), planets);
+			simulation.setIntegrator(type.create());
+			simulation.setOrigin(ORIGIN_X, ORIGIN_Y);
+			simulation.reset();
+			long hash = Replay.hashLevel(simulation.getField(), ORIGIN_X, ORIGIN_Y);
+			Replay replay = new Replay(hash, type, DT, inputs[i]);
+			CollisionEvent event = new ReplayPlayer(simulation).play(replay, MAX_STEPS);
+
+			assertEquals(name, event, batch.getEvent(i));
+			assertEquals(name, event == CollisionEvent.NONE, batch.isFlying(i));
+			ShipState ship = simulation.getShip();
+			assertTrue(name + ": " + ship + " vs (" + batch.getX(i) + ", " + batch.getY(i) + ")", ship.x == batch.getX(i)
+					&& ship.y == batch.getY(i) && ship.vx == batch.getVx(i) && ship.vy == batch.getVy(i));
+			if (event != CollisionEvent.NONE) {
+				collided++;
+			}
+		}
+		assertEquals(MAX_STEPS, batch.getSteps());
+		// The comparison means little unless some ships hit something
+		assertTrue(collided + " collisions with " + planets + " planets", collided > 0);
+	}
+}
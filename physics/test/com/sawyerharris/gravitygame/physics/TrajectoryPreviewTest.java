@@ -0,0 +1,36 @@
+package com.sawyerharris.gravitygame.physics;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks that a finished preview path is not thrown away by a newer request
+ * before the render thread polls it.
+ *
+ * @author Sawyer Harris
+ *
+ */
+public class TrajectoryPreviewTest {
+	/** Steps of a path that runs to the limit, long enough to still be tracing when polled */
+	private static final int MAX_STEPS = 20000000;
+
+	@Test
+	public void finishedPathSurvivesNewerRequest() throws InterruptedException {
+		TrajectoryPreview preview = new TrajectoryPreview(1000, 1000, 1 / 60f, MAX_STEPS, MAX_STEPS);
+		try {
+			Simulation source = new Simulation(1000, 1000);
+			source.setOrigin(0, 0);
+			// Leaves the world within a few steps
+			preview.request(source, 100000, 0);
+			Thread.sleep(200);
+			// Drifts without leaving the world until the step limit
+			preview.request(source, 0.001f, 0);
+			Thread.sleep(20);
+			preview.poll();
+			assertTrue(preview.getPointCount() > 0);
+		} finally {
+			preview.dispose();
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package com.sawyerharris.gravitygame.physics;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks that the Verlet integrator does not reuse gravity evaluated before
+ * the field changed.
+ *
+ * @author Sawyer Harris
+ *
+ */
+public class VerletIntegratorTest {
+	/** Length of a step */
+	private static final float DT = 1 / 60f;
+
+	@Test
+	public void fieldChangeWithoutResetIsSeen() {
+		GravityField field = new GravityField();
+		field.add(200, 0, 30, GravityField.massOf(30), true);
+		VerletIntegrator integrator = new VerletIntegrator();
+		ShipState state = new ShipState();
+		state.set(0, 0, 0, 50);
+		for (int i = 0; i < 10; i++) {
+			integrator.step(state, field, DT);
+		}
+
+		// Move the planet to the other side without resetting the integrator
+		field.set(0, -200, 0, 30, GravityField.massOf(30), true);
+		ShipState fresh = new ShipState();
+		fresh.set(state.x, state.y, state.vx, state.vy);
+		integrator.step(state, field, DT);
+		new VerletIntegrator().step(fresh, field, DT);
+		assertTrue(state + " vs " + fresh,
+				state.x == fresh.x && state.y == fresh.y && state.vx == fresh.vx && state.vy == fresh.vy);
+	}
+
+	@Test
+	public void otherFieldIsSeen() {
+		GravityField field = new GravityField();
+		field.add(200, 0, 30, GravityField.massOf(30), true);
+		GravityField other = new GravityField();
+		other.add(-200, 0, 30, GravityField.massOf(30), true);
+		VerletIntegrator integrator = new VerletIntegrator();
+		ShipState state = new ShipState();
+		state.set(0, 0, 0, 50);
+		integrator.step(state, field, DT);
+
+		ShipState fresh = new ShipState();
+		fresh.set(state.x, state.y, state.vx, state.vy);
+		integrator.step(state, other, DT);
+		new VerletIntegrator().step(fresh, other, DT);
+		assertTrue(state + " vs " + fresh,
+				state.x == fresh.x && state.y == fresh.y && state.vx == fresh.vx && state.vy == fresh.vy);
+	}
+}
@@ -0,0 +1,128 @@
+package com.sawyerharris.gravitygame.tools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Json;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+import com.sawyerharris.gravitygame.game.Level;
+import com.sawyerharris.gravitygame.manager.LevelPack;
+import com.sawyerharris.gravitygame.physics.GravityField;
+import com.sawyerharris.gravitygame.physics.LevelData;
+import com.sawyerharris.gravitygame.physics.Replay;
+
+/**
+ * Converts the JSON levels in the level list to the level pack read by
+ * LevelManager. Every level is decoded again and checked against its JSON, so
+ * a packed level always plays the same as its source.
+ *
+ * @author Sawyer Harris
+ *
+ */
+public class LevelConverter {
+	/** Level list file and level folder, relative to android/assets */
+	private static final String LEVELS_META_FILE = "meta/levels.txt";
+	private static final String LEVELS_FOLDER = "levels";
+	/** Pack written, relative to android/assets */
+	private static final String LEVELS_PACK_FILE = "levels/levels.pack";
+
+	/**
+	 * Checks that a level converts to binary and decodes to the same level.
+	 *
+	 * @param level
+	 * @param decoded
+	 *            level decoded from its binary form
+	 * @throws IllegalStateException
+	 *             if the levels differ
+	 */
+	public static void check(Level level, Level decoded) throws IllegalStateException {
+		LevelData data = level.toData();
+		LevelData other = decoded.toData();
+		if (hash(other) != hash(data) || !other.getName().equals(data.getName())
+				|| !other.getAuthor().equals(data.getAuthor()) || !other.getTheme().equals(data.getTheme())
+				|| !other.getType().equals(data.getType()) || other.getIntegrator() != data.getIntegrator()
+				|| !(other.getMessage() == null ? data.getMessage() == null
+						: other.getMessage().equals(data.getMessage()))) {
+			throw new IllegalStateException("Binary level does not match: " + level.getName());
+		}
+	}
+
+	/**
+	 * Hashes the physics of level data the way replays do.
+	 */
+	private static long hash(LevelData data) {
+		GravityField field = data.getField();
+		return Replay.hashLevel(field, data.getOriginX(), data.getOriginY());
+	}
+
+	/**
+	 * Packs every section of the level list. The pack is left untouched if it
+	 * is already up to date. Must be run with android/assets as the working
+	 * directory.
+	 *
+	 * @param args
+	 *            unused
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		File metaFile = new File(LEVELS_META_FILE);
+		if (!metaFile.exists()) {
+			throw new IllegalArgumentException("Level list not found; run from android/assets.");
+		}
+		JsonValue meta = new JsonReader().parse(new FileHandle(metaFile));
+		Json json = new Json();
+		ArrayList<String> sectionNames = new ArrayList<String>();
+		ArrayList<ArrayList<Level>> sections = new ArrayList<ArrayList<Level>>();
+		long jsonBytes = 0;
+		for (JsonValue section = meta.child; section != null; section = section.next) {
+			ArrayList<Level> levels = new ArrayList<Level>();
+			for (String name : section.asStringArray()) {
+				File file = new File(LEVELS_FOLDER, name);
+				levels.add(json.fromJson(Level.class, new FileHandle(file)));
+				jsonBytes += file.length();
+			}
+			sectionNames.add(section.name);
+			sections.add(levels);
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		LevelPack.write(bytes, sectionNames, sections);
+		File packFile = new File(LEVELS_PACK_FILE);
+		boolean changed = !packFile.exists() || !Arrays.equals(new FileHandle(packFile).readBytes(), bytes.toByteArray());
+		if (changed) {
+			OutputStream out = new FileOutputStream(packFile);
+			try {
+				bytes.writeTo(out);
+			} finally {
+				out.close();
+			}
+		}
+
+		// Read the pack back as the game does
+		LevelPack pack = LevelPack.read(new FileHandle(packFile));
+		int count = 0;
+		for (int s = 0; s < sections.size(); s++) {
+			LevelPack.Section section = pack.getSection(sectionNames.get(s));
+			ArrayList<Level> levels = sections.get(s);
+			if (section == null || section.size() != levels.size()) {
+				throw new IllegalStateException("Pack section does not match: " + sectionNames.get(s));
+			}
+			for (int i = 0; i < levels.size(); i++) {
+				if (!section.getLevelName(i).equals(levels.get(i).getName())) {
+					throw new IllegalStateException("Pack index does not match: " + levels.get(i).getName());
+				}
+				check(levels.get(i), section.get(i));
+				count++;
+			}
+		}
+		System.out.println("Packed " + count + " levels in " + sections.size() + " sections" + (changed ? "" : ", unchanged")
+				+ ": " + jsonBytes + " bytes of JSON to " + bytes.size() + " bytes.");
+	}
+}
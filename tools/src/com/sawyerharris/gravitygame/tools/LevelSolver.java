@@ -0,0 +1,260 @@
+package com.sawyerharris.gravitygame.tools;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Json;
+import com.sawyerharris.gravitygame.game.Level;
+import com.sawyerharris.gravitygame.game.Level.PlanetMeta;
+import com.sawyerharris.gravitygame.physics.CollisionEvent;
+import com.sawyerharris.gravitygame.physics.FixedTimestep;
+import com.sawyerharris.gravitygame.physics.GravityField;
+import com.sawyerharris.gravitygame.physics.Simulation;
+import com.sawyerharris.gravitygame.screen.LevelScreen;
+
+/**
+ * Headless batch solver that checks whether levels can be beaten. Sweeps
+ * launch angles, launch speeds and boost durations over a level, flying each
+ * shot with the same simulation the game uses, split across all cores with
+ * fork/join.
+ * <p>
+ * Boost is modelled as held from launch for a fixed number of ticks, which
+ * covers the common way players use it.
+ * 
+ * @author Sawyer Harris
+ *
+ */
+public class LevelSolver {
+	/** Length of a physics tick, matching the play screen */
+	private static final float TICK = FixedTimestep.TICK;
+	/** Longest flight simulated before a shot is counted as lost */
+	private static final float MAX_FLIGHT_TIME = 15;
+	/** Number of angles handled by one fork/join leaf */
+	private static final int ANGLES_PER_TASK = 2;
+
+	/** Default sweep resolution and range */
+	public static final int DEFAULT_ANGLES = 120;
+	public static final int DEFAULT_SPEEDS = 40;
+	public static final float DEFAULT_MIN_SPEED = 20;
+	public static final float DEFAULT_MAX_SPEED = 500;
+	/** Default boost durations tried, in ticks */
+	public static final int[] DEFAULT_BOOST_LEVELS = { 0, 25, 50, 100, Math.round(Simulation.MAX_BOOST / TICK) };
+
+	/** Level folder, relative to android/assets */
+	private static final String LEVELS_FOLDER = "levels";
+
+	/** Sweep resolution and range */
+	private final int angles;
+	private final int speeds;
+	private final float minSpeed;
+	private final float maxSpeed;
+	private final int[] boostLevels;
+
+	/** Pool that runs the sweep */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Constructs a solver with the default sweep on all cores.
+	 */
+	public LevelSolver() {
+		this(DEFAULT_ANGLES, DEFAULT_SPEEDS, DEFAULT_MIN_SPEED, DEFAULT_MAX_SPEED, DEFAULT_BOOST_LEVELS);
+	}
+
+	/**
+	 * Constructs a solver with the given sweep on all cores.
+	 * 
+	 * @param angles
+	 *            number of launch angles, evenly spaced around the circle
+	 * @param speeds
+	 *            number of launch speeds
+	 * @param minSpeed
+	 * @param maxSpeed
+	 *            range of launch speeds in world units per second
+	 * @param boostLevels
+	 *            boost durations in ticks, in increasing order
+	 */
+	public LevelSolver(int angles, int speeds, float minSpeed, float maxSpeed, int[] boostLevels) {
+		if (angles < 1 || speeds < 1 || boostLevels.length == 0) {
+			throw new IllegalArgumentException("Sweep must try at least one shot.");
+		}
+		if (minSpeed < 0 || maxSpeed < minSpeed) {
+			throw new IllegalArgumentException("Invalid speed range.");
+		}
+		this.angles = angles;
+		this.speeds = speeds;
+		this.minSpeed = minSpeed;
+		this.maxSpeed = maxSpeed;
+		this.boostLevels = boostLevels;
+		pool = new ForkJoinPool();
+	}
+
+	/**
+	 * Sweeps every launch vector over a level.
+	 * 
+	 * @param level
+	 * @return result of the sweep
+	 */
+	public SolverResult solve(Level level) {
+		SolverResult result = new SolverResult(angles, speeds, minSpeed, maxSpeed, boostLevels);
+		pool.invoke(new SweepTask(level, result, 0, angles));
+		return result;
+	}
+
+	/**
+	 * Builds a simulation of a level. Each task builds its own since
+	 * simulations are not thread safe.
+	 * 
+	 * @param level
+	 * @return simulation with the ship at the level's origin
+	 */
+	static Simulation createSimulation(Level level) {
+		Simulation simulation = new Simulation(LevelScreen.WORLD_WIDTH, LevelScreen.WORLD_HEIGHT);
+		GravityField field = simulation.getField();
+		for (PlanetMeta meta : level.getPlanets()) {
+			int radius = meta.getRadius();
+			field.add(meta.getPosition().x, meta.getPosition().y, radius, GravityField.massOf(radius),
+					meta.isHomePlanet());
+		}
+		simulation.setIntegrator(level.getIntegratorType().create());
+		simulation.setOrigin(level.getShipOrigin().x, level.getShipOrigin().y);
+		simulation.reset();
+		return simulation;
+	}
+
+	/**
+	 * Flies a single shot.
+	 * 
+	 * @param simulation
+	 * @param vx
+	 * @param vy
+	 *            launch velocity
+	 * @param boostTicks
+	 *            ticks to hold boost from launch
+	 * @return true if the ship reached a home planet
+	 */
+	static boolean fly(Simulation simulation, float vx, float vy, int boostTicks) {
+		simulation.reset();
+		simulation.launch(vx, vy);
+		simulation.setBoosting(boostTicks > 0);
+		int maxTicks = (int) (MAX_FLIGHT_TIME / TICK);
+		for (int tick = 0; tick < maxTicks; tick++) {
+			if (tick == boostTicks) {
+				simulation.setBoosting(false);
+			}
+			CollisionEvent event = simulation.step(TICK);
+			if (event == CollisionEvent.HOME) {
+				return true;
+			} else if (event != CollisionEvent.NONE) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Sweeps a range of angles, splitting it until it is small enough to fly
+	 * directly.
+	 * 
+	 * @author Sawyer Harris
+	 *
+	 */
+	private class SweepTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Level level;
+		private final SolverResult result;
+		/** Range of angle indices, end exclusive */
+		private final int start;
+		private final int end;
+
+		SweepTask(Level level, SolverResult result, int start, int end) {
+			this.level = level;
+			this.result = result;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start > ANGLES_PER_TASK) {
+				int mid = (start + end) >>> 1;
+				invokeAll(new SweepTask(level, result, start, mid), new SweepTask(level, result, mid, end));
+				return;
+			}
+			Simulation simulation = createSimulation(level);
+			for (int a = start; a < end; a++) {
+				double angle = Math.toRadians(result.getAngle(a));
+				float cos = (float) Math.cos(angle);
+				float sin = (float) Math.sin(angle);
+				for (int s = 0; s < speeds; s++) {
+					float speed = result.getSpeed(s);
+					// Boost levels are increasing, so the first win is the least boost
+					for (int b = 0; b < boostLevels.length; b++) {
+						if (fly(simulation, cos * speed, sin * speed, boostLevels[b])) {
+							result.set(a, s, b);
+							break;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Solves the level files given as arguments, or every level in the levels
+	 * folder if there are none, and prints a report for each. Must be run with
+	 * android/assets as the working directory. Exits with status 1 if any level
+	 * cannot be beaten.
+	 * 
+	 * @param args
+	 *            level file paths
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		ArrayList<File> files = new ArrayList<File>();
+		if (args.length > 0) {
+			for (String arg : args) {
+				files.add(new File(arg));
+			}
+		} else {
+			File[] list = new File(LEVELS_FOLDER).listFiles();
+			if (list == null) {
+				throw new IllegalArgumentException("Level folder not found; run from android/assets.");
+			}
+			for (File file : list) {
+				if (file.getName().endsWith(".txt")) {
+					files.add(file);
+				}
+			}
+		}
+
+		Json json = new Json();
+		LevelSolver solver = new LevelSolver();
+		boolean allSolvable = true;
+		for (File file : files) {
+			Level level = json.fromJson(Level.class, new FileHandle(file));
+			long start = System.nanoTime();
+			SolverResult result = solver.solve(level);
+			long millis = (System.nanoTime() - start) / 1000000;
+
+			System.out.println("== " + file.getName() + " (" + level.getName() + ") in " + millis + " ms");
+			if (result.isSolvable()) {
+				int[] shot = result.getMinBoostShot();
+				int boostLevel = result.get(shot[0], shot[1]);
+				System.out.println("Solvable: " + result.getSolutionCount() + " winning shots");
+				System.out.println(String.format("Min boost shot: angle %.1f deg, speed %.0f, boost %d ticks",
+						result.getAngle(shot[0]), result.getSpeed(shot[1]), result.getBoostTicks(boostLevel)));
+			} else {
+				System.out.println("UNSOLVABLE");
+				allSolvable = false;
+			}
+			System.out.print(result.heatmap());
+		}
+		if (!allSolvable) {
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package com.sawyerharris.gravitygame.tools;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Json;
+import com.sawyerharris.gravitygame.game.Level;
+import com.sawyerharris.gravitygame.physics.CollisionEvent;
+import com.sawyerharris.gravitygame.physics.Replay;
+import com.sawyerharris.gravitygame.physics.ReplayPlayer;
+import com.sawyerharris.gravitygame.physics.Simulation;
+
+/**
+ * Re-runs a recorded replay against a level file and prints how the attempt
+ * ended, e.g. to reproduce a bug report.
+ * 
+ * @author Sawyer Harris
+ *
+ */
+public class ReplayRunner {
+	/** Longest attempt replayed, in steps */
+	private static final int MAX_STEPS = 60 * 60;
+
+	/**
+	 * Usage: ReplayRunner level-file replay-file
+	 * 
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.out.println("Usage: ReplayRunner <level file> <replay file>");
+			System.exit(2);
+		}
+		Level level = new Json().fromJson(Level.class, new FileHandle(new File(args[0])));
+		Replay replay = Replay.fromBytes(read(new File(args[1])));
+		System.out.println(replay);
+
+		Simulation simulation = LevelSolver.createSimulation(level);
+		ReplayPlayer player = new ReplayPlayer(simulation);
+		if (!player.matchesLevel(replay)) {
+			System.out.println("Replay was recorded on a different version of this level.");
+			System.exit(1);
+		}
+		long start = System.nanoTime();
+		CollisionEvent event = player.play(replay, MAX_STEPS);
+		long micros = (System.nanoTime() - start) / 1000;
+		System.out.println(String.format("Result: %s after %d steps (%.3f s of play, impact at %.4f s) in %d us",
+				event, simulation.getSteps(), simulation.getTime(), simulation.getImpactTime(), micros));
+	}
+
+	/**
+	 * Reads a whole file.
+	 */
+	private static byte[] read(File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			byte[] bytes = new byte[(int) file.length()];
+			int offset = 0;
+			while (offset < bytes.length) {
+				int count = in.read(bytes, offset, bytes.length - offset);
+				if (count < 0) {
+					break;
+				}
+				offset += count;
+			}
+			return bytes;
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package com.sawyerharris.gravitygame.tools;
+
+/**
+ * Outcome of sweeping launch vectors over a level. Holds, for every angle and
+ * speed tried, the least boost that reached a home planet.
+ * 
+ * @author Sawyer Harris
+ *
+ */
+public class SolverResult {
+	/** Marks a launch vector that never reached home */
+	public static final int UNSOLVED = -1;
+
+	/** Number of angles and speeds tried */
+	private final int angles;
+	private final int speeds;
+	/** Lowest and highest launch speed tried */
+	private final float minSpeed;
+	private final float maxSpeed;
+	/** Boost ticks for each boost level tried */
+	private final int[] boostLevels;
+	/** Index into boostLevels of the least boost that won, per angle and speed */
+	private final int[] minBoostLevel;
+
+	/**
+	 * Constructs an empty result, with every launch vector unsolved.
+	 * 
+	 * @param angles
+	 * @param speeds
+	 * @param minSpeed
+	 * @param maxSpeed
+	 * @param boostLevels
+	 */
+	SolverResult(int angles, int speeds, float minSpeed, float maxSpeed, int[] boostLevels) {
+		this.angles = angles;
+		this.speeds = speeds;
+		this.minSpeed = minSpeed;
+		this.maxSpeed = maxSpeed;
+		this.boostLevels = boostLevels;
+		minBoostLevel = new int[angles * speeds];
+		for (int i = 0; i < minBoostLevel.length; i++) {
+			minBoostLevel[i] = UNSOLVED;
+		}
+	}
+
+	/**
+	 * Records the least boost level that won for a launch vector. Each index
+	 * is written by a single task, so no locking is needed.
+	 * 
+	 * @param angle
+	 * @param speed
+	 * @param level
+	 */
+	void set(int angle, int speed, int level) {
+		minBoostLevel[speed * angles + angle] = level;
+	}
+
+	/**
+	 * Returns the least boost level that won for a launch vector.
+	 * 
+	 * @param angle
+	 *            angle index
+	 * @param speed
+	 *            speed index
+	 * @return index into the boost levels, or UNSOLVED
+	 */
+	public int get(int angle, int speed) {
+		return minBoostLevel[speed * angles + angle];
+	}
+
+	/**
+	 * Returns whether any launch vector reached a home planet.
+	 * 
+	 * @return true if the level can be beaten
+	 */
+	public boolean isSolvable() {
+		for (int level : minBoostLevel) {
+			if (level != UNSOLVED) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the number of launch vectors that reached a home planet.
+	 * 
+	 * @return number of winning shots
+	 */
+	public int getSolutionCount() {
+		int count = 0;
+		for (int level : minBoostLevel) {
+			if (level != UNSOLVED) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the winning launch vector that needs the least boost, preferring
+	 * slower launches among equals.
+	 * 
+	 * @return angle and speed index, or null if the level is unsolvable
+	 */
+	public int[] getMinBoostShot() {
+		int[] best = null;
+		int bestLevel = Integer.MAX_VALUE;
+		for (int s = 0; s < speeds; s++) {
+			for (int a = 0; a < angles; a++) {
+				int level = get(a, s);
+				if (level != UNSOLVED && level < bestLevel) {
+					bestLevel = level;
+					best = new int[] { a, s };
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the launch angle for an angle index.
+	 * 
+	 * @param angle
+	 * @return angle in degrees
+	 */
+	public float getAngle(int angle) {
+		return 360f * angle / angles;
+	}
+
+	/**
+	 * Returns the launch speed for a speed index.
+	 * 
+	 * @param speed
+	 * @return speed in world units per second
+	 */
+	public float getSpeed(int speed) {
+		if (speeds == 1) {
+			return minSpeed;
+		}
+		return minSpeed + (maxSpeed - minSpeed) * speed / (speeds - 1);
+	}
+
+	/**
+	 * Returns the number of boost ticks of a boost level.
+	 * 
+	 * @param level
+	 * @return boost ticks
+	 */
+	public int getBoostTicks(int level) {
+		return boostLevels[level];
+	}
+
+	/**
+	 * Returns a text heatmap of winning launch vectors, one row per speed from
+	 * fastest to slowest and one column per angle. Each cell shows the least
+	 * boost level that won, or '.' if none did.
+	 * 
+	 * @return heatmap
+	 */
+	public String heatmap() {
+		StringBuilder sb = new StringBuilder();
+		for (int s = speeds - 1; s >= 0; s--) {
+			sb.append(String.format("%6.0f |", getSpeed(s)));
+			for (int a = 0; a < angles; a++) {
+				int level = get(a, s);
+				sb.append(level == UNSOLVED ? '.' : Character.forDigit(level, 36));
+			}
+			sb.append('\n');
+		}
+		sb.append("       +");
+		for (int a = 0; a < angles; a++) {
+			sb.append(a % (angles / 4 == 0 ? 1 : angles / 4) == 0 ? '|' : '-');
+		}
+		sb.append("\n        0 deg at the left, counterclockwise; boost ticks per level:");
+		for (int i = 0; i < boostLevels.length; i++) {
+			sb.append(' ').append(Character.forDigit(i, 36)).append('=').append(boostLevels[i]);
+		}
+		sb.append('\n');
+		return sb.toString();
+	}
+}